@@ -0,0 +1,50 @@
+package io.github.yangziwen.checkstyle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+
+/**
+ * The checkstyle version
+ * resolved from the maven metadata packed into the checkstyle jar,
+ * which survives the repackaging into the jar with dependencies,
+ * unlike the implementation version of the manifest
+ *
+ * @author yangziwen
+ */
+public final class CheckstyleVersion {
+
+    static final String POM_PROPERTIES_PATH = "META-INF/maven/com.puppycrawl.tools/checkstyle/pom.properties";
+
+    private static final String VERSION = resolve(Checker.class.getClassLoader());
+
+    private CheckstyleVersion() {
+    }
+
+    /**
+     * @return the version of the checkstyle on the classpath, or null if it can not be resolved
+     */
+    public static String get() {
+        return VERSION;
+    }
+
+    static String resolve(ClassLoader classLoader) {
+        if (classLoader == null) {
+            return null;
+        }
+        try (InputStream in = classLoader.getResourceAsStream(POM_PROPERTIES_PATH)) {
+            if (in == null) {
+                return null;
+            }
+            Properties properties = new Properties();
+            properties.load(in);
+            String version = properties.getProperty("version");
+            return version == null || version.trim().isEmpty() ? null : version.trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+}
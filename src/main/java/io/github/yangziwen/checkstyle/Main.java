@@ -22,14 +22,20 @@ package io.github.yangziwen.checkstyle;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Filter;
 import java.util.logging.Level;
@@ -42,27 +48,22 @@ import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.eclipse.jgit.diff.HistogramDiff;
-import org.eclipse.jgit.util.StringUtils;
 
 import com.puppycrawl.tools.checkstyle.AstTreeStringPrinter;
 import com.puppycrawl.tools.checkstyle.Checker;
-import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
 import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
 import com.puppycrawl.tools.checkstyle.DefaultLogger;
 import com.puppycrawl.tools.checkstyle.Definitions;
 import com.puppycrawl.tools.checkstyle.DetailNodeTreeStringPrinter;
 import com.puppycrawl.tools.checkstyle.JavaParser;
-import com.puppycrawl.tools.checkstyle.ModuleFactory;
-import com.puppycrawl.tools.checkstyle.PackageObjectFactory;
-import com.puppycrawl.tools.checkstyle.PropertiesExpander;
 import com.puppycrawl.tools.checkstyle.SuppressionsStringPrinter;
-import com.puppycrawl.tools.checkstyle.ThreadModeSettings;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
 import com.puppycrawl.tools.checkstyle.XMLLogger;
 import com.puppycrawl.tools.checkstyle.XpathFileGeneratorAstFilter;
 import com.puppycrawl.tools.checkstyle.XpathFileGeneratorAuditListener;
@@ -75,9 +76,24 @@ import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
 import com.puppycrawl.tools.checkstyle.api.RootModule;
 import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
 
+import io.github.yangziwen.checkstyle.ast.AstCache;
+import io.github.yangziwen.checkstyle.checker.CheckTimingCache;
+import io.github.yangziwen.checkstyle.checker.ThreadsNumberTuner;
 import io.github.yangziwen.checkstyle.diff.DiffCalculator;
 import io.github.yangziwen.checkstyle.diff.DiffEntryWrapper;
-import io.github.yangziwen.checkstyle.filter.DiffLineFilter;
+import io.github.yangziwen.checkstyle.diff.FileClassifier;
+import io.github.yangziwen.checkstyle.diff.RevisionBlob;
+import io.github.yangziwen.checkstyle.discovery.FileDiscoverer;
+import io.github.yangziwen.checkstyle.engine.BaselineCache;
+import io.github.yangziwen.checkstyle.engine.BatchChecker;
+import io.github.yangziwen.checkstyle.engine.BatchEntry;
+import io.github.yangziwen.checkstyle.engine.BatchResult;
+import io.github.yangziwen.checkstyle.engine.CheckRequest;
+import io.github.yangziwen.checkstyle.engine.CheckResult;
+import io.github.yangziwen.checkstyle.engine.ConfigurationCache;
+import io.github.yangziwen.checkstyle.engine.DiffCheckstyleEngine;
+import io.github.yangziwen.checkstyle.listener.JsonLogger;
+import io.github.yangziwen.checkstyle.listener.SarifLogger;
 
 /**
  * Wrapper command line program for the Checker.
@@ -119,6 +135,12 @@ public final class Main {
     /** Name for the option 'c'. */
     private static final String OPTION_C_NAME = "c";
 
+    /** Name for the option 'A'. */
+    private static final String OPTION_CAPITAL_A_NAME = "A";
+
+    /** Name for the option 'advisory-config'. */
+    private static final String OPTION_ADVISORY_CONFIG_NAME = "advisory-config";
+
     /** Name for the option 'f'. */
     private static final String OPTION_F_NAME = "f";
 
@@ -217,20 +239,130 @@ public final class Main {
     /** Name for the option 'include-staged-codes' */
     private static final String OPTION_GIT_INCLUDE_STAGED_CODES_NAME = "include-staged-codes";
 
+    /** Name for the option 'tc'. */
+    private static final String OPTION_TC_NAME = "tc";
+
+    /** Name for the option 'timing-cache' */
+    private static final String OPTION_TIMING_CACHE_NAME = "timing-cache";
+
+    /** Name for the option 'ff'. */
+    private static final String OPTION_FF_NAME = "ff";
+
+    /** Name for the option 'fail-fast' */
+    private static final String OPTION_FAIL_FAST_NAME = "fail-fast";
+
+    /** Name for the option 'po'. */
+    private static final String OPTION_PO_NAME = "po";
+
+    /** Name for the option 'prefetch-objects' */
+    private static final String OPTION_PREFETCH_OBJECTS_NAME = "prefetch-objects";
+
+    /** Name for the option 'mb'. */
+    private static final String OPTION_MB_NAME = "mb";
+
+    /** Name for the option 'merge-base' */
+    private static final String OPTION_MERGE_BASE_NAME = "merge-base";
+
+    /** Name for the option 'cc'. */
+    private static final String OPTION_CC_NAME = "cc";
+
+    /** Name for the option 'config-cache' */
+    private static final String OPTION_CONFIG_CACHE_NAME = "config-cache";
+
+    /** Name for the option 'ac'. */
+    private static final String OPTION_AC_NAME = "ac";
+
+    /** Name for the option 'ast-cache' */
+    private static final String OPTION_AST_CACHE_NAME = "ast-cache";
+
+    /** Name for the option 'fr'. */
+    private static final String OPTION_FR_NAME = "fr";
+
+    /** Name for the option 'full-rev' */
+    private static final String OPTION_FULL_REV_NAME = "full-rev";
+
+    /** Name for the option 'bt'. */
+    private static final String OPTION_BT_NAME = "bt";
+
+    /** Name for the option 'batch' */
+    private static final String OPTION_BATCH_NAME = "batch";
+
+    /** Name for the option 'rs'. */
+    private static final String OPTION_RS_NAME = "rs";
+
+    /** Name for the option 'recurse-submodules' */
+    private static final String OPTION_RECURSE_SUBMODULES_NAME = "recurse-submodules";
+
+    /** Name for the option 'rt'. */
+    private static final String OPTION_RT_NAME = "rt";
+
+    /** Name for the option 'ratchet' */
+    private static final String OPTION_RATCHET_NAME = "ratchet";
+
+    /** Name for the option 'ct'. */
+    private static final String OPTION_CT_NAME = "ct";
+
+    /** Name for the option 'check-timeout' */
+    private static final String OPTION_CHECK_TIMEOUT_NAME = "check-timeout";
+
+    /** Name for the option 'db'. */
+    private static final String OPTION_DB_NAME = "db";
+
+    /** Name for the option 'diff-budget' */
+    private static final String OPTION_DIFF_BUDGET_NAME = "diff-budget";
+
+    /** Name for the option 'gm'. */
+    private static final String OPTION_GM_NAME = "gm";
+
+    /** Name for the option 'generated-markers' */
+    private static final String OPTION_GENERATED_MARKERS_NAME = "generated-markers";
+
+    /** Name for the option 'df'. */
+    private static final String OPTION_DF_NAME = "df";
+
+    /** Name for the option 'diff-file' */
+    private static final String OPTION_DIFF_FILE_NAME = "diff-file";
+
+    /** Name for the option 'di'. */
+    private static final String OPTION_DI_NAME = "di";
+
+    /** Name for the option 'diff-index' */
+    private static final String OPTION_DIFF_INDEX_NAME = "diff-index";
+
+    /** Name for the option 'wdi'. */
+    private static final String OPTION_WDI_NAME = "wdi";
+
+    /** Name for the option 'write-diff-index' */
+    private static final String OPTION_WRITE_DIFF_INDEX_NAME = "write-diff-index";
+
+    /** The diff file location which stands for the standard input. */
+    private static final String STDIN_LOCATION = "-";
+
     /** Name for 'xml' format. */
     private static final String XML_FORMAT_NAME = "xml";
 
     /** Name for 'plain' format. */
     private static final String PLAIN_FORMAT_NAME = "plain";
 
+    /** Name for 'json' format. */
+    private static final String JSON_FORMAT_NAME = "json";
+
+    /** Name for 'sarif' format. */
+    private static final String SARIF_FORMAT_NAME = "sarif";
+
+    /** All the supported output formats. */
+    private static final List<String> FORMAT_NAMES = Arrays.asList(
+            PLAIN_FORMAT_NAME, XML_FORMAT_NAME, JSON_FORMAT_NAME, SARIF_FORMAT_NAME);
+
     /** A string value of 1. */
     private static final String ONE_STRING_VALUE = "1";
 
+    /** The value of the threads number options to pick the number automatically. */
+    private static final String AUTO_THREADS_NUMBER_VALUE = "auto";
+
     /** Default distance between tab stops. */
     private static final String DEFAULT_TAB_WIDTH = "8";
 
-    private static final List<DiffEntryWrapper> DIFF_ENTRY_LIST = new ArrayList<>();
-
 
     /** Don't create instance of this class, use {@link #main(String[])} method instead. */
     private Main() {
@@ -241,9 +373,23 @@ public final class Main {
      * is the number of errors found in all the files.
      * @param args the command line arguments.
      * @throws IOException if there is a problem with files access
-     * @noinspection CallToPrintStackTrace, CallToSystemExit
+     * @noinspection CallToSystemExit
      **/
     public static void main(String... args) throws IOException {
+        final int exitStatus = execute(args);
+        if (exitStatus != 0) {
+            System.exit(exitStatus);
+        }
+    }
+
+    /**
+     * Runs the checks specified by the command line arguments.
+     * @param args the command line arguments.
+     * @return the exit status, which is the number of errors found in all the files
+     * @throws IOException if there is a problem with files access
+     * @noinspection CallToPrintStackTrace
+     **/
+    static int execute(String... args) throws IOException {
         int errorCounter = 0;
         boolean cliViolations = false;
         // provide proper exit code based on results.
@@ -260,18 +406,72 @@ public final class Main {
                         + Main.class.getPackage().getImplementationVersion());
                 exitStatus = 0;
             }
+            else if (commandLine.hasOption(OPTION_WRITE_DIFF_INDEX_NAME)) {
+                exitStatus = writeDiffIndex(commandLine);
+            }
             else {
                 List<File> filesToProcess = Collections.emptyList();
-
-                if (commandLine.hasOption(OPTION_GIT_DIR_NAME)) {
-                    filesToProcess = getGitDiffFilesToProcess(getExclusions(commandLine), commandLine);
+                List<DiffEntryWrapper> diffEntryList = Collections.emptyList();
+                List<RevisionBlob> revisionBlobList = null;
+                List<BatchResult> batchResultList = null;
+
+                String gitDirPath = commandLine.getOptionValue(OPTION_GIT_DIR_NAME);
+                if (gitDirPath != null && !new File(gitDirPath).isDirectory()) {
+                    System.out.println("git directory " + gitDirPath + " is not a directory!");
+                    exitStatus = 1;
+                    return exitStatus;
+                }
+                if (commandLine.hasOption(OPTION_BATCH_NAME)) {
+                    batchResultList = getBatchDiffs(getExclusions(commandLine), commandLine);
+                    if (batchResultList == null) {
+                        exitStatus = 1;
+                        return exitStatus;
+                    }
+                    diffEntryList = batchResultList.stream()
+                            .flatMap(batchResult -> batchResult.getDiffEntries().stream())
+                            .collect(Collectors.toList());
+                    filesToProcess = diffEntryList.stream()
+                            .map(DiffEntryWrapper::getNewFile)
+                            .collect(Collectors.toList());
                     if (CollectionUtils.isEmpty(filesToProcess)) {
+                        printBatchSummaries(batchResultList);
                         System.out.println("There is no file need to check");
-                        return;
+                        exitStatus = (int) batchResultList.stream()
+                                .filter(batchResult -> batchResult.getFailure() != null)
+                                .count();
+                        return exitStatus;
+                    }
+                }
+                else if (gitDirPath != null && commandLine.hasOption(OPTION_FULL_REV_NAME)) {
+                    revisionBlobList = getRevisionBlobs(getExclusions(commandLine), commandLine);
+                    filesToProcess = revisionBlobList.stream()
+                            .map(blob -> new File(gitDirPath, blob.getPaths().get(0)))
+                            .collect(Collectors.toList());
+                    if (CollectionUtils.isEmpty(filesToProcess)) {
+                        System.out.println("There is no file need to check");
+                        return exitStatus;
+                    }
+                }
+                else if (gitDirPath != null || commandLine.hasOption(OPTION_DIFF_FILE_NAME)
+                        || commandLine.hasOption(OPTION_DIFF_INDEX_NAME)) {
+                    if (commandLine.hasOption(OPTION_DIFF_FILE_NAME)) {
+                        diffEntryList = getUnifiedDiffEntries(getExclusions(commandLine), commandLine);
+                    }
+                    else if (commandLine.hasOption(OPTION_DIFF_INDEX_NAME)) {
+                        diffEntryList = getIndexedDiffEntries(getExclusions(commandLine), commandLine);
+                    }
+                    else {
+                        diffEntryList = getGitDiffEntries(getExclusions(commandLine), commandLine);
+                    }
+                    filesToProcess = diffEntryList.stream()
+                            .map(DiffEntryWrapper::getNewFile)
+                            .collect(Collectors.toList());
+                    if (CollectionUtils.isEmpty(filesToProcess)) {
+                        System.out.println("There is no file need to check");
+                        return exitStatus;
                     }
                 } else {
-                    filesToProcess = getFilesToProcess(getExclusions(commandLine),
-                            commandLine.getArgs());
+                    filesToProcess = getFilesToProcess(commandLine);
                 }
 
                 // return error if something is wrong in arguments
@@ -283,7 +483,8 @@ public final class Main {
                     messages.forEach(System.out::println);
                 }
                 else {
-                    errorCounter = runCli(commandLine, filesToProcess);
+                    errorCounter = runCli(commandLine, filesToProcess, diffEntryList, revisionBlobList,
+                            batchResultList);
                     exitStatus = errorCounter;
                 }
             }
@@ -312,10 +513,8 @@ public final class Main {
                     System.out.println(errorCounterMessage.getMessage());
                 }
             }
-            if (exitStatus != 0) {
-                System.exit(exitStatus);
-            }
         }
+        return exitStatus;
     }
 
     /**
@@ -392,25 +591,30 @@ public final class Main {
             }
         }
         // ensure a configuration file is specified
-        else if (cmdLine.hasOption(OPTION_C_NAME)) {
-            final String configLocation = cmdLine.getOptionValue(OPTION_C_NAME);
-            try {
-                // test location only
-                CommonUtil.getUriByFilename(configLocation);
-            }
-            catch (CheckstyleException ignored) {
-                result.add(String.format("Could not find config XML file '%s'.", configLocation));
-            }
-
-            // validate optional parameters
-            if (cmdLine.hasOption(OPTION_F_NAME)) {
-                final String format = cmdLine.getOptionValue(OPTION_F_NAME);
-                if (!PLAIN_FORMAT_NAME.equals(format) && !XML_FORMAT_NAME.equals(format)) {
+        else if (cmdLine.hasOption(OPTION_C_NAME) || cmdLine.hasOption(OPTION_CAPITAL_A_NAME)) {
+            final List<ConfigProfile> profiles = getConfigProfiles(cmdLine);
+            final Set<String> outputLocations = new HashSet<>();
+            for (ConfigProfile profile : profiles) {
+                try {
+                    // test location only
+                    CommonUtil.getUriByFilename(profile.configLocation);
+                }
+                catch (CheckstyleException ignored) {
+                    result.add(String.format("Could not find config XML file '%s'.",
+                            profile.configLocation));
+                }
+                if (!FORMAT_NAMES.contains(profile.format)) {
                     result.add(String.format("Invalid output format."
-                            + " Found '%s' but expected '%s' or '%s'.",
-                            format, PLAIN_FORMAT_NAME, XML_FORMAT_NAME));
+                            + " Found '%s' but expected one of %s.",
+                            profile.format, FORMAT_NAMES));
+                }
+                if (profile.outputLocation != null && !outputLocations.add(profile.outputLocation)) {
+                    result.add(String.format("Output file '%s' is shared by multiple configs.",
+                            profile.outputLocation));
                 }
             }
+
+            // validate optional parameters
             if (cmdLine.hasOption(OPTION_P_NAME)) {
                 final String propertiesLocation = cmdLine.getOptionValue(OPTION_P_NAME);
                 final File file = new File(propertiesLocation);
@@ -418,6 +622,13 @@ public final class Main {
                     result.add(String.format("Could not find file '%s'.", propertiesLocation));
                 }
             }
+            verifyFailFastParameter(cmdLine, result);
+            verifyDiffBudgetParameter(cmdLine, result);
+            verifyCheckTimeoutParameter(cmdLine, result);
+            verifyRatchetParameter(cmdLine, result);
+            verifyFullRevParameter(cmdLine, result);
+            verifyBatchParameter(cmdLine, result);
+            verifyDiffIndexParameter(cmdLine, result);
             verifyThreadsNumberParameter(cmdLine, result, OPTION_CAPITAL_C_NAME,
                 "Checker threads number must be greater than zero",
                 "Invalid Checker threads number");
@@ -448,6 +659,9 @@ public final class Main {
         if (cmdLine.hasOption(cliParameterName)) {
             final String checkerThreadsNumberStr =
                 cmdLine.getOptionValue(cliParameterName);
+            if (AUTO_THREADS_NUMBER_VALUE.equals(checkerThreadsNumberStr)) {
+                return;
+            }
             if (CommonUtil.isInt(checkerThreadsNumberStr)) {
                 final int checkerThreadsNumber = Integer.parseInt(checkerThreadsNumberStr);
                 if (checkerThreadsNumber < 1) {
@@ -460,20 +674,121 @@ public final class Main {
         }
     }
 
+    /**
+     * Verifies the fail fast CLI parameter value.
+     * @param cmdLine a command line
+     * @param result a resulting list of errors
+     */
+    private static void verifyFailFastParameter(CommandLine cmdLine, List<String> result) {
+        if (cmdLine.hasOption(OPTION_FF_NAME)) {
+            final String threshold = cmdLine.getOptionValue(OPTION_FF_NAME);
+            if (threshold != null
+                    && (!CommonUtil.isInt(threshold) || Integer.parseInt(threshold) < 1)) {
+                result.add("Fail fast threshold must be a number greater than zero");
+            }
+        }
+    }
+
+    /**
+     * Verifies diff budget CLI parameter value.
+     * @param cmdLine a command line
+     * @param result a resulting list of errors
+     */
+    private static void verifyDiffBudgetParameter(CommandLine cmdLine, List<String> result) {
+        final String budget = cmdLine.getOptionValue(OPTION_DIFF_BUDGET_NAME);
+        if (budget != null && !CommonUtil.isInt(budget)) {
+            result.add("Diff budget must be a number of milliseconds");
+        }
+    }
+
+    /**
+     * Verifies check timeout CLI parameter value.
+     * @param cmdLine a command line
+     * @param result a resulting list of errors
+     */
+    private static void verifyCheckTimeoutParameter(CommandLine cmdLine, List<String> result) {
+        final String timeout = cmdLine.getOptionValue(OPTION_CHECK_TIMEOUT_NAME);
+        if (timeout != null && (!CommonUtil.isInt(timeout) || Integer.parseInt(timeout) < 0)) {
+            result.add("Check timeout must be a non-negative number of milliseconds");
+        }
+    }
+
+    /**
+     * Verifies the ratchet mode, which needs the old blobs of the git repository.
+     * @param cmdLine a command line
+     * @param result a resulting list of errors
+     */
+    private static void verifyRatchetParameter(CommandLine cmdLine, List<String> result) {
+        if (cmdLine.hasOption(OPTION_RATCHET_NAME)
+                && (!cmdLine.hasOption(OPTION_GIT_DIR_NAME) || cmdLine.hasOption(OPTION_DIFF_FILE_NAME))) {
+            result.add("Ratchet mode is only available with a git directory and without a diff file");
+        }
+    }
+
+    /**
+     * Verifies the batch mode, which takes the repositories and the revisions from the manifest.
+     * @param cmdLine a command line
+     * @param result a resulting list of errors
+     */
+    private static void verifyBatchParameter(CommandLine cmdLine, List<String> result) {
+        if (cmdLine.hasOption(OPTION_BATCH_NAME)
+                && (cmdLine.hasOption(OPTION_GIT_DIR_NAME) || cmdLine.hasOption(OPTION_DIFF_FILE_NAME)
+                        || cmdLine.hasOption(OPTION_RATCHET_NAME) || cmdLine.hasOption(OPTION_FULL_REV_NAME)
+                        || cmdLine.hasOption(OPTION_FF_NAME))) {
+            result.add("Batch mode is not available with a git directory, a diff file, "
+                    + "the ratchet mode, the full revision mode or the fail fast mode");
+        }
+    }
+
+    /**
+     * Verifies the diff index, which replaces the diff of a git directory or a diff file.
+     * @param cmdLine a command line
+     * @param result a resulting list of errors
+     */
+    private static void verifyDiffIndexParameter(CommandLine cmdLine, List<String> result) {
+        if (cmdLine.hasOption(OPTION_DIFF_INDEX_NAME)
+                && (cmdLine.hasOption(OPTION_GIT_DIR_NAME) || cmdLine.hasOption(OPTION_DIFF_FILE_NAME)
+                        || cmdLine.hasOption(OPTION_BATCH_NAME) || cmdLine.hasOption(OPTION_RATCHET_NAME)
+                        || cmdLine.hasOption(OPTION_FULL_REV_NAME))) {
+            result.add("Diff index is not available with a git directory, a diff file, "
+                    + "the batch mode, the ratchet mode or the full revision mode");
+        }
+    }
+
+    /**
+     * Verifies the full revision mode, which checks the whole revision instead of a diff.
+     * @param cmdLine a command line
+     * @param result a resulting list of errors
+     */
+    private static void verifyFullRevParameter(CommandLine cmdLine, List<String> result) {
+        if (cmdLine.hasOption(OPTION_FULL_REV_NAME)
+                && (!cmdLine.hasOption(OPTION_GIT_DIR_NAME) || cmdLine.hasOption(OPTION_DIFF_FILE_NAME)
+                        || cmdLine.hasOption(OPTION_RATCHET_NAME))) {
+            result.add("Full revision mode is only available with a git directory "
+                    + "and without a diff file or the ratchet mode");
+        }
+    }
+
     /**
      * Do execution of CheckStyle based on Command line options.
      * @param commandLine command line object
      * @param filesToProcess List of files to process found from the command line.
+     * @param diffEntryList the diff entries to filter the violations.
+     * @param revisionBlobList the blobs of the revision to check in full, null if not scanning a revision.
+     * @param batchResultList the diffs of the repositories in the batch mode, null if not in the batch mode.
      * @return number of violations
      * @throws IOException if a file could not be read.
      * @throws CheckstyleException if something happens processing the files.
      */
-    private static int runCli(CommandLine commandLine, List<File> filesToProcess)
+    private static int runCli(CommandLine commandLine, List<File> filesToProcess,
+            List<DiffEntryWrapper> diffEntryList, List<RevisionBlob> revisionBlobList,
+            List<BatchResult> batchResultList)
             throws IOException, CheckstyleException {
         int result = 0;
 
         // create config helper object
-        final CliOptions config = convertCliToPojo(commandLine, filesToProcess);
+        final CliOptions config = convertCliToPojo(commandLine, filesToProcess, diffEntryList,
+                revisionBlobList, batchResultList);
         if (commandLine.hasOption(OPTION_T_NAME)) {
             // print AST
             final File file = config.files.get(0);
@@ -539,34 +854,82 @@ public final class Main {
      * Util method to convert CommandLine type to POJO object.
      * @param cmdLine command line object
      * @param filesToProcess List of files to process found from the command line.
+     * @param diffEntryList the diff entries to filter the violations.
+     * @param revisionBlobList the blobs of the revision to check in full, null if not scanning a revision.
+     * @param batchResultList the diffs of the repositories in the batch mode, null if not in the batch mode.
      * @return command line option as POJO object
      */
-    private static CliOptions convertCliToPojo(CommandLine cmdLine, List<File> filesToProcess) {
+    private static CliOptions convertCliToPojo(CommandLine cmdLine, List<File> filesToProcess,
+            List<DiffEntryWrapper> diffEntryList, List<RevisionBlob> revisionBlobList,
+            List<BatchResult> batchResultList) {
         final CliOptions conf = new CliOptions();
-        conf.format = cmdLine.getOptionValue(OPTION_F_NAME);
-        if (conf.format == null) {
-            conf.format = PLAIN_FORMAT_NAME;
-        }
-        conf.outputLocation = cmdLine.getOptionValue(OPTION_O_NAME);
-        conf.configLocation = cmdLine.getOptionValue(OPTION_C_NAME);
+        conf.configProfiles = getConfigProfiles(cmdLine);
         conf.propertiesLocation = cmdLine.getOptionValue(OPTION_P_NAME);
         conf.suppressionLineColumnNumber = cmdLine.getOptionValue(OPTION_S_NAME);
         conf.files = filesToProcess;
+        conf.diffEntries = diffEntryList;
+        conf.revisionBlobs = revisionBlobList;
+        conf.batchResults = batchResultList;
         conf.executeIgnoredModules = cmdLine.hasOption(OPTION_EXECUTE_IGNORED_MODULES_NAME);
-        final String checkerThreadsNumber = cmdLine.getOptionValue(
-                OPTION_CAPITAL_C_NAME, ONE_STRING_VALUE);
-        conf.checkerThreadsNumber = Integer.parseInt(checkerThreadsNumber);
+        conf.checkerThreadsNumber = getCheckerThreadsNumber(cmdLine, filesToProcess, revisionBlobList);
         final String treeWalkerThreadsNumber = cmdLine.getOptionValue(
                 OPTION_CAPITAL_W_NAME, ONE_STRING_VALUE);
-        conf.treeWalkerThreadsNumber = Integer.parseInt(treeWalkerThreadsNumber);
+        // each checker thread always owns a single TreeWalker
+        conf.treeWalkerThreadsNumber = AUTO_THREADS_NUMBER_VALUE.equals(treeWalkerThreadsNumber)
+                ? 1 : Integer.parseInt(treeWalkerThreadsNumber);
         final String tabWidth =
                 cmdLine.getOptionValue(OPTION_TAB_WIDTH_NAME, DEFAULT_TAB_WIDTH);
         conf.tabWidth = Integer.parseInt(tabWidth);
+        conf.timingCacheLocation = cmdLine.getOptionValue(OPTION_TIMING_CACHE_NAME);
+        if (cmdLine.hasOption(OPTION_CONFIG_CACHE_NAME)) {
+            conf.configCacheLocation = cmdLine.getOptionValue(OPTION_CONFIG_CACHE_NAME,
+                    ConfigurationCache.DEFAULT_CACHE_DIR.getPath());
+        }
+        if (cmdLine.hasOption(OPTION_AST_CACHE_NAME)) {
+            conf.astCacheLocation = cmdLine.getOptionValue(OPTION_AST_CACHE_NAME);
+        }
+        if (cmdLine.hasOption(OPTION_RATCHET_NAME) || revisionBlobList != null) {
+            conf.gitDirLocation = cmdLine.getOptionValue(OPTION_GIT_DIR_NAME);
+        }
+        if (cmdLine.hasOption(OPTION_RATCHET_NAME)) {
+            conf.baselineCacheLocation = cmdLine.getOptionValue(OPTION_RATCHET_NAME,
+                    BaselineCache.DEFAULT_CACHE_DIR.getPath());
+        }
+        conf.checkTimeoutMillis = Long.parseLong(cmdLine.getOptionValue(OPTION_CHECK_TIMEOUT_NAME, "0"));
+        if (cmdLine.hasOption(OPTION_FF_NAME)) {
+            conf.failFastThreshold = Integer.parseInt(
+                    cmdLine.getOptionValue(OPTION_FF_NAME, ONE_STRING_VALUE));
+        }
         conf.generateXpathSuppressionsFile =
                 cmdLine.hasOption(OPTION_GENERATE_XPATH_SUPPRESSION_NAME);
         return conf;
     }
 
+    /**
+     * Gets the number of checker threads, the 'auto' value is tuned by the number and the total size
+     * of the files to check and the cpus available to the process.
+     * @param cmdLine command line object
+     * @param filesToProcess List of files to process found from the command line.
+     * @param revisionBlobList the blobs of the revision to check in full, null if not scanning a revision.
+     * @return the number of checker threads
+     */
+    private static int getCheckerThreadsNumber(CommandLine cmdLine, List<File> filesToProcess,
+            List<RevisionBlob> revisionBlobList) {
+        final String threadsNumber = cmdLine.getOptionValue(OPTION_CAPITAL_C_NAME, ONE_STRING_VALUE);
+        final int result;
+        if (AUTO_THREADS_NUMBER_VALUE.equals(threadsNumber)) {
+            // the blobs of a revision are not on disk
+            final long totalBytes = revisionBlobList != null
+                    ? revisionBlobList.stream().mapToLong(RevisionBlob::getSize).sum()
+                    : filesToProcess.stream().mapToLong(File::length).sum();
+            result = ThreadsNumberTuner.tuneCheckerThreads(filesToProcess.size(), totalBytes);
+        }
+        else {
+            result = Integer.parseInt(threadsNumber);
+        }
+        return result;
+    }
+
     /**
      * Executes required Checkstyle actions based on passed parameters.
      * @param cliOptions
@@ -589,67 +952,221 @@ public final class Main {
             props = loadProperties(new File(cliOptions.propertiesLocation));
         }
 
-        // create a configuration
-        final ThreadModeSettings multiThreadModeSettings =
-                new ThreadModeSettings(
-                        cliOptions.checkerThreadsNumber, cliOptions.treeWalkerThreadsNumber);
+        final CheckTimingCache timingCache = cliOptions.checkerThreadsNumber > 1
+                && cliOptions.timingCacheLocation != null
+                ? new CheckTimingCache(new File(cliOptions.timingCacheLocation)).load()
+                : null;
+        final AstCache astCache = createAstCache(cliOptions.astCacheLocation,
+                cliOptions.configProfiles.size());
+        final CheckRequest request = CheckRequest.builder()
+                .threadsNumber(cliOptions.checkerThreadsNumber)
+                .failFastThreshold(cliOptions.failFastThreshold)
+                .timingCache(timingCache)
+                .fileTimeoutMillis(cliOptions.checkTimeoutMillis)
+                .astCache(astCache)
+                .repoDir(cliOptions.gitDirLocation != null ? new File(cliOptions.gitDirLocation) : null)
+                .build();
+
+        int errorCount = 0;
+        for (ConfigProfile profile : cliOptions.configProfiles) {
+            final int profileErrorCount = runCheckstyle(cliOptions, profile, props, request);
+            if (!profile.advisory) {
+                errorCount += profileErrorCount;
+            }
+        }
 
-        final ConfigurationLoader.IgnoredModulesOptions ignoredModulesOptions;
-        if (cliOptions.executeIgnoredModules) {
-            ignoredModulesOptions = ConfigurationLoader.IgnoredModulesOptions.EXECUTE;
+        if (timingCache != null) {
+            timingCache.persist();
         }
-        else {
-            ignoredModulesOptions = ConfigurationLoader.IgnoredModulesOptions.OMIT;
+        if (astCache != null) {
+            astCache.evict();
+        }
+        final String evictionMessage = getAstCacheEvictionMessage(astCache, cliOptions.astCacheLocation,
+                cliOptions.configProfiles.size());
+        if (evictionMessage != null) {
+            System.out.println(evictionMessage);
         }
 
-        final Configuration config = ConfigurationLoader.loadConfiguration(
-                cliOptions.configLocation, new PropertiesExpander(props),
-                ignoredModulesOptions, multiThreadModeSettings);
+        return errorCount;
+    }
+
+    /**
+     * Creates the ast cache, the configs share the trees parsed by the first one
+     * through the cache in memory at least.
+     * @param astCacheLocation
+     *        the directory to keep the trees across runs, null if absent
+     * @param configCount
+     *        the number of the configs to run
+     * @return the ast cache, or null if the trees are not cached
+     */
+    static AstCache createAstCache(String astCacheLocation, int configCount) {
+        final AstCache astCache;
+        if (astCacheLocation != null) {
+            astCache = new AstCache(new File(astCacheLocation));
+        }
+        else if (configCount > 1) {
+            astCache = new AstCache(null, 0L, AstCache.DEFAULT_MAX_MEMORY_BYTES);
+        }
+        else {
+            astCache = null;
+        }
+        return astCache;
+    }
 
-        // create RootModule object and run it
-        final int errorCounter;
-        final ClassLoader moduleClassLoader = Checker.class.getClassLoader();
-        final RootModule rootModule = getRootModule(config.getName(), moduleClassLoader);
+    /**
+     * Gets the message reporting the trees evicted from the ast cache in memory,
+     * which are parsed again by the following configs.
+     * @param astCache
+     *        the ast cache shared by the configs, null if absent
+     * @param astCacheLocation
+     *        the directory to keep the trees across runs, null if absent
+     * @param configCount
+     *        the number of the configs run
+     * @return the message, or null if nothing is parsed again for the evictions
+     */
+    static String getAstCacheEvictionMessage(AstCache astCache, String astCacheLocation, int configCount) {
+        if (astCache == null || astCacheLocation != null
+                || configCount < 2 || astCache.getEvictionCount() == 0) {
+            return null;
+        }
+        return String.format("%d parsed tree(s) exceeded the %dMB ast cache in memory and were parsed again, "
+                + "use --%s to keep them on disk", astCache.getEvictionCount(),
+                AstCache.DEFAULT_MAX_MEMORY_BYTES / 1024 / 1024, OPTION_AST_CACHE_NAME);
+    }
 
-        try {
-            final AuditListener listener;
-            if (cliOptions.generateXpathSuppressionsFile) {
-                // create filter to print generated xpath suppressions file
-                final Configuration treeWalkerConfig = getTreeWalkerConfig(config);
-                if (treeWalkerConfig != null) {
-                    final DefaultConfiguration moduleConfig =
-                            new DefaultConfiguration(
-                                    XpathFileGeneratorAstFilter.class.getName());
-                    moduleConfig.addAttribute(OPTION_TAB_WIDTH_NAME,
-                            Integer.toString(cliOptions.tabWidth));
-                    ((DefaultConfiguration) treeWalkerConfig).addChild(moduleConfig);
-                }
+    /**
+     * Runs the checks of a single config on the files.
+     * @param cliOptions
+     *        pojo object that contains all options
+     * @param profile
+     *        the config with its own output
+     * @param props
+     *        the properties to expand the config
+     * @param request
+     *        the request shared by all the configs
+     * @return number of violations of ERROR level
+     * @throws IOException
+     *         when output file could not be found
+     * @throws CheckstyleException
+     *         when the config could not be loaded
+     */
+    private static int runCheckstyle(CliOptions cliOptions, ConfigProfile profile,
+            Properties props, CheckRequest request) throws CheckstyleException, IOException {
+        final Configuration config = cliOptions.configCacheLocation != null
+                ? new ConfigurationCache(new File(cliOptions.configCacheLocation)).load(
+                        profile.configLocation, props, cliOptions.executeIgnoredModules)
+                : DiffCheckstyleEngine.loadConfiguration(
+                        profile.configLocation, props, cliOptions.executeIgnoredModules);
 
-                listener = new XpathFileGeneratorAuditListener(System.out,
-                        AutomaticBean.OutputStreamOptions.NONE);
-            }
-            else {
-                listener = createListener(cliOptions.format,
-                        cliOptions.outputLocation);
+        final AuditListener listener;
+        if (cliOptions.generateXpathSuppressionsFile) {
+            // create filter to print generated xpath suppressions file
+            final Configuration treeWalkerConfig = getTreeWalkerConfig(config);
+            if (treeWalkerConfig != null) {
+                final DefaultConfiguration moduleConfig =
+                        new DefaultConfiguration(
+                                XpathFileGeneratorAstFilter.class.getName());
+                moduleConfig.addAttribute(OPTION_TAB_WIDTH_NAME,
+                        Integer.toString(cliOptions.tabWidth));
+                ((DefaultConfiguration) treeWalkerConfig).addChild(moduleConfig);
             }
 
-            rootModule.setModuleClassLoader(moduleClassLoader);
-            rootModule.configure(config);
-            rootModule.addListener(listener);
+            listener = new XpathFileGeneratorAuditListener(System.out,
+                    AutomaticBean.OutputStreamOptions.NONE);
+        }
+        else {
+            listener = createListener(profile.format,
+                    profile.outputLocation, cliOptions.diffEntries);
+        }
 
-            if (CollectionUtils.isNotEmpty(DIFF_ENTRY_LIST) && rootModule instanceof Checker) {
-                Checker checker = (Checker) rootModule;
-                checker.addFilter(new DiffLineFilter(DIFF_ENTRY_LIST));
-            }
+        // run the engine
+        final DiffCheckstyleEngine engine = new DiffCheckstyleEngine(config);
+        final CheckResult result;
+        if (cliOptions.batchResults != null) {
+            final List<BatchResult> batchResults = BatchChecker.builder()
+                    .engine(engine)
+                    .request(request)
+                    .threadsNumber(cliOptions.checkerThreadsNumber)
+                    .build()
+                    .check(cliOptions.batchResults, listener);
+            printBatchSummaries(batchResults);
+            // a failed repository counts as an error
+            result = CheckResult.builder()
+                    .errorCount(batchResults.stream()
+                            .mapToInt(batchResult -> batchResult.getFailure() != null
+                                    ? 1 : batchResult.getErrorCount())
+                            .sum())
+                    .build();
+        }
+        else if (cliOptions.revisionBlobs != null) {
+            result = engine.checkRevision(cliOptions.revisionBlobs, listener, request);
+        }
+        else if (cliOptions.baselineCacheLocation != null) {
+            result = engine.ratchet(cliOptions.diffEntries, listener, request,
+                    new BaselineCache(new File(cliOptions.baselineCacheLocation)));
+        }
+        else {
+            result = engine.process(cliOptions.files, cliOptions.diffEntries, listener, request);
+        }
 
-            // run RootModule
-            errorCounter = rootModule.process(cliOptions.files);
+        if (result.isFailFastTriggered()) {
+            System.out.println(String.format("Fail fast after %d error(s), the remaining files are skipped",
+                    cliOptions.failFastThreshold));
         }
-        finally {
-            rootModule.destroy();
+        if (profile.advisory && result.getErrorCount() > 0) {
+            System.out.println(String.format("Advisory config %s ends with %d error(s), "
+                    + "which do not affect the exit code", profile.configLocation, result.getErrorCount()));
         }
 
-        return errorCounter;
+        return result.getErrorCount();
+    }
+
+    /**
+     * Collects the configs in the order of the command line, the '-o' and '-f' options following
+     * a config belong to it, and the ones preceding all the configs are shared by the configs
+     * without their own. A single config takes the '-o' and '-f' options wherever they are.
+     * @param cmdLine command line object
+     * @return the configs
+     */
+    private static List<ConfigProfile> getConfigProfiles(CommandLine cmdLine) {
+        final List<ConfigProfile> profiles = new ArrayList<>();
+        String defaultFormat = null;
+        String defaultOutputLocation = null;
+        ConfigProfile current = null;
+        for (Option option : cmdLine.getOptions()) {
+            final String name = option.getOpt();
+            if (OPTION_C_NAME.equals(name) || OPTION_CAPITAL_A_NAME.equals(name)) {
+                current = new ConfigProfile();
+                current.configLocation = option.getValue();
+                current.advisory = OPTION_CAPITAL_A_NAME.equals(name);
+                profiles.add(current);
+            }
+            else if (OPTION_F_NAME.equals(name)) {
+                if (current == null) {
+                    defaultFormat = option.getValue();
+                }
+                else {
+                    current.format = option.getValue();
+                }
+            }
+            else if (OPTION_O_NAME.equals(name)) {
+                if (current == null) {
+                    defaultOutputLocation = option.getValue();
+                }
+                else {
+                    current.outputLocation = option.getValue();
+                }
+            }
+        }
+        for (ConfigProfile profile : profiles) {
+            if (profile.format == null) {
+                profile.format = defaultFormat != null ? defaultFormat : PLAIN_FORMAT_NAME;
+            }
+            if (profile.outputLocation == null) {
+                profile.outputLocation = defaultOutputLocation;
+            }
+        }
+        return profiles;
     }
 
     /**
@@ -662,7 +1179,8 @@ public final class Main {
 
         final Configuration[] children = config.getChildren();
         for (Configuration child : children) {
-            if ("TreeWalker".equals(child.getName())) {
+            if ("TreeWalker".equals(child.getName())
+                    || TreeWalker.class.getName().equals(child.getName())) {
                 result = child;
                 break;
             }
@@ -670,23 +1188,6 @@ public final class Main {
         return result;
     }
 
-    /**
-     * Creates a new instance of the root module that will control and run
-     * Checkstyle.
-     * @param name The name of the module. This will either be a short name that
-     *        will have to be found or the complete package name.
-     * @param moduleClassLoader Class loader used to load the root module.
-     * @return The new instance of the root module.
-     * @throws CheckstyleException if no module can be instantiated from name
-     */
-    private static RootModule getRootModule(String name, ClassLoader moduleClassLoader)
-            throws CheckstyleException {
-        final ModuleFactory factory = new PackageObjectFactory(
-                Checker.class.getPackage().getName(), moduleClassLoader);
-
-        return (RootModule) factory.createModule(name);
-    }
-
     /**
      * Loads properties from a File.
      * @param file
@@ -718,11 +1219,12 @@ public final class Main {
      * {@link AuditListener#auditFinished(AuditEvent)}.
      * @param format format of the audit listener
      * @param outputLocation the location of output
+     * @param diffEntryList the diff entries to provide the hunk context of the events
      * @return a fresh new {@code AuditListener}
      * @exception IOException when provided output location is not found
      */
-    private static AuditListener createListener(String format, String outputLocation)
-            throws IOException {
+    private static AuditListener createListener(String format, String outputLocation,
+            List<DiffEntryWrapper> diffEntryList) throws IOException {
         final AuditListener listener;
         if (XML_FORMAT_NAME.equals(format)) {
             final OutputStream out = getOutputStream(outputLocation);
@@ -736,12 +1238,21 @@ public final class Main {
                     getOutputStreamOptions(outputLocation);
             listener = new DefaultLogger(out, closeOutputStreamOption);
         }
+        else if (JSON_FORMAT_NAME.equals(format)) {
+            final OutputStream out = getOutputStream(outputLocation);
+            final AutomaticBean.OutputStreamOptions closeOutputStreamOption =
+                    getOutputStreamOptions(outputLocation);
+            listener = new JsonLogger(out, closeOutputStreamOption, diffEntryList);
+        }
+        else if (SARIF_FORMAT_NAME.equals(format)) {
+            final OutputStream out = getOutputStream(outputLocation);
+            final AutomaticBean.OutputStreamOptions closeOutputStreamOption =
+                    getOutputStreamOptions(outputLocation);
+            listener = new SarifLogger(out, closeOutputStreamOption, diffEntryList);
+        }
         else {
-            final LocalizedMessage outputFormatExceptionMessage = new LocalizedMessage(1,
-                    Definitions.CHECKSTYLE_BUNDLE, CREATE_LISTENER_EXCEPTION,
-                    new String[] {format, PLAIN_FORMAT_NAME, XML_FORMAT_NAME}, null,
-                    Main.class, null);
-            throw new IllegalStateException(outputFormatExceptionMessage.getMessage());
+            throw new IllegalStateException(String.format("Invalid output format."
+                    + " Found '%s' but expected one of %s.", format, FORMAT_NAMES));
         }
 
         return listener;
@@ -782,51 +1293,109 @@ public final class Main {
     }
 
     /**
-     * Determines the files to process.
-     * @param patternsToExclude The list of directory patterns to exclude from searching.
-     * @param filesToProcess
-     *        arguments that were not processed yet but shall be
+     * Determines the files to process, the directories excluded by path or pattern are pruned
+     * before they are listed.
+     * @param commandLine the command line object
      * @return list of files to process
      */
-    private static List<File> getFilesToProcess(List<Pattern> patternsToExclude,
-            String... filesToProcess) {
-        final List<File> files = new LinkedList<>();
-        for (String element : filesToProcess) {
-            files.addAll(listFiles(new File(element), patternsToExclude));
+    private static List<File> getFilesToProcess(CommandLine commandLine) {
+        final List<Path> excludedPaths = new ArrayList<>();
+        if (commandLine.hasOption(OPTION_E_NAME)) {
+            for (String value : commandLine.getOptionValues(OPTION_E_NAME)) {
+                excludedPaths.add(Paths.get(value));
+            }
         }
-
-        return files;
+        final List<Pattern> excludePatterns = new ArrayList<>();
+        if (commandLine.hasOption(OPTION_X_NAME)) {
+            for (String value : commandLine.getOptionValues(OPTION_X_NAME)) {
+                excludePatterns.add(Pattern.compile(value));
+            }
+        }
+        return FileDiscoverer.builder()
+                .excludedPaths(excludedPaths)
+                .excludePatterns(excludePatterns)
+                .build()
+                .discover(Arrays.stream(commandLine.getArgs())
+                        .map(File::new)
+                        .collect(Collectors.toList()));
     }
 
-    private static List<File> getGitDiffFilesToProcess(List<Pattern> patternsToExclude, CommandLine commandLine) {
-        String gitDirPath = commandLine.getOptionValue(OPTION_GIT_DIR_NAME);
-        File repoDir = new File(gitDirPath);
-        if (!repoDir.isDirectory()) {
-            System.out.println("git directory " + gitDirPath + " is not a directory!");
-            System.exit(1);
+    /**
+     * Writes the diff index of the git repository specified by the command line without checking,
+     * so the other processes map the index instead of calculating the diff again.
+     * @param commandLine the command line object
+     * @return the exit status, 0 if the index is written
+     */
+    private static int writeDiffIndex(CommandLine commandLine) {
+        final String gitDirPath = commandLine.getOptionValue(OPTION_GIT_DIR_NAME);
+        final int result;
+        if (gitDirPath == null || !new File(gitDirPath).isDirectory()
+                || commandLine.hasOption(OPTION_DIFF_FILE_NAME) || commandLine.hasOption(OPTION_DIFF_INDEX_NAME)
+                || commandLine.hasOption(OPTION_BATCH_NAME) || commandLine.hasOption(OPTION_FULL_REV_NAME)) {
+            System.out.println("Writing the diff index is only available with a git directory and without "
+                    + "a diff file, a diff index, the batch mode or the full revision mode");
+            result = 1;
         }
-        String oldRev = commandLine.getOptionValue(OPTION_GIT_BASE_REV_NAME);
-        boolean includeStagedCodes = commandLine.hasOption(OPTION_GIT_INCLUDE_STAGED_CODES_NAME);
-        if (StringUtils.isEmptyOrNull(oldRev)) {
-            oldRev = includeStagedCodes ? "HEAD" : "HEAD~";
+        else {
+            final Path indexFile = Paths.get(commandLine.getOptionValue(OPTION_WRITE_DIFF_INDEX_NAME));
+            int status = 0;
+            try {
+                final List<DiffEntryWrapper> diffEntries = DiffCheckstyleEngine.writeDiffIndex(
+                        createGitDiffRequest(getExclusions(commandLine), commandLine), indexFile);
+                System.out.println(String.format("The diff index of %d file(s) is written to %s",
+                        diffEntries.size(), indexFile));
+            }
+            catch (CheckstyleException ex) {
+                ex.printStackTrace();
+                System.out.println("error happened when write the diff index " + indexFile);
+                status = 1;
+            }
+            result = status;
         }
-        String newRev = "HEAD";
-        DiffCalculator calculator = DiffCalculator.builder().diffAlgorithm(new HistogramDiff()).build();
-        try {
-            List<DiffEntryWrapper> diffEntryList = calculator.calculateDiff(repoDir, oldRev, newRev, includeStagedCodes)
-                    .stream()
-                    .filter(diffEntry -> !diffEntry.isDeleted())
-                    .filter(diffEntry -> patternsToExclude.stream()
-                            .noneMatch(p -> p.matcher(diffEntry.getNewPath()).matches()))
-                    .collect(Collectors.toList());
-
-            DIFF_ENTRY_LIST.addAll(diffEntryList);
+        return result;
+    }
 
-            return diffEntryList.stream()
-                    .map(DiffEntryWrapper::getNewFile)
-                    .collect(Collectors.toList());
+    /**
+     * Creates the request to calculate the diff of the git repository specified by the command line.
+     * @param patternsToExclude The list of patterns to exclude the changed files.
+     * @param commandLine the command line object
+     * @return the request
+     */
+    private static CheckRequest createGitDiffRequest(List<Pattern> patternsToExclude,
+            CommandLine commandLine) {
+        return CheckRequest.builder()
+                .repoDir(new File(commandLine.getOptionValue(OPTION_GIT_DIR_NAME)))
+                .baseRev(commandLine.getOptionValue(OPTION_GIT_BASE_REV_NAME))
+                .includeStagedCodes(commandLine.hasOption(OPTION_GIT_INCLUDE_STAGED_CODES_NAME))
+                .prefetchObjects(commandLine.hasOption(OPTION_PREFETCH_OBJECTS_NAME))
+                .mergeBase(commandLine.hasOption(OPTION_MERGE_BASE_NAME))
+                .recurseSubmodules(commandLine.hasOption(OPTION_RECURSE_SUBMODULES_NAME))
+                .threadsNumber(getScanThreadsNumber(commandLine))
+                .excludePatterns(patternsToExclude)
+                .generatedMarkers(getGeneratedMarkers(commandLine))
+                .diffBudgetMillis(getDiffBudgetMillis(commandLine))
+                .build();
+    }
 
-        } catch (Exception e) {
+    /**
+     * Calculates the diff entries of the git repository specified by the command line.
+     * @param patternsToExclude The list of patterns to exclude the changed files.
+     * @param commandLine the command line object
+     * @return the diff entries, or an empty list when failed to calculate the diff
+     */
+    private static List<DiffEntryWrapper> getGitDiffEntries(List<Pattern> patternsToExclude,
+            CommandLine commandLine) {
+        final CheckRequest request = createGitDiffRequest(patternsToExclude, commandLine);
+        try {
+            final List<DiffEntryWrapper> diffEntries = DiffCheckstyleEngine.calculateDiffEntries(request);
+            diffEntries.stream()
+                    .filter(diffEntry -> diffEntry.getDiffFallback() != null)
+                    .forEach(diffEntry -> System.err.println(String.format(
+                            "The diff of %s exceeds the budget of %d ms, fall back to %s",
+                            diffEntry.getNewPath(), request.getDiffBudgetMillis(),
+                            diffEntry.getDiffFallback())));
+            return diffEntries;
+        } catch (CheckstyleException e) {
             e.printStackTrace();
             System.out.println("error happened when calculate git diff");
             return Collections.emptyList();
@@ -834,55 +1403,171 @@ public final class Main {
     }
 
     /**
-     * Traverses a specified node looking for files to check. Found files are added to a specified
-     * list. Subdirectories are also traversed.
-     * @param node
-     *        the node to process
-     * @param patternsToExclude The list of directory patterns to exclude from searching.
-     * @return found files
+     * Scans the blobs of the revision specified by the command line.
+     * @param patternsToExclude The list of patterns to exclude the files.
+     * @param commandLine the command line object
+     * @return the blobs, or an empty list when failed to scan the revision
      */
-    private static List<File> listFiles(File node, List<Pattern> patternsToExclude) {
-        // could be replaced with org.apache.commons.io.FileUtils.list() method
-        // if only we add commons-io library
-        final List<File> result = new LinkedList<>();
+    private static List<RevisionBlob> getRevisionBlobs(List<Pattern> patternsToExclude,
+            CommandLine commandLine) {
+        final CheckRequest request = CheckRequest.builder()
+                .repoDir(new File(commandLine.getOptionValue(OPTION_GIT_DIR_NAME)))
+                .headRev(commandLine.getOptionValue(OPTION_FULL_REV_NAME))
+                .excludePatterns(patternsToExclude)
+                .generatedMarkers(getGeneratedMarkers(commandLine))
+                .threadsNumber(getScanThreadsNumber(commandLine))
+                .build();
+        try {
+            return DiffCheckstyleEngine.scanRevision(request);
+        } catch (CheckstyleException e) {
+            e.printStackTrace();
+            System.out.println("error happened when scan the revision");
+            return Collections.emptyList();
+        }
+    }
 
-        if (node.canRead()) {
-            if (node.isDirectory()) {
-                if (!isDirectoryExcluded(node.getAbsolutePath(), patternsToExclude)) {
-                    final File[] files = node.listFiles();
-                    // listFiles() can return null, so we need to check it
-                    if (files != null) {
-                        for (File element : files) {
-                            result.addAll(listFiles(element, patternsToExclude));
-                        }
-                    }
+    /**
+     * Gets the number of threads to scan the revision, to diff the submodules
+     * or to diff the repositories in the batch mode,
+     * the 'auto' value stands for all the available cpus, since the amount of the work is unknown yet.
+     * @param commandLine the command line object
+     * @return the number of threads
+     */
+    private static int getScanThreadsNumber(CommandLine commandLine) {
+        final String threadsNumber = commandLine.getOptionValue(OPTION_CAPITAL_C_NAME, ONE_STRING_VALUE);
+        final int result;
+        if (AUTO_THREADS_NUMBER_VALUE.equals(threadsNumber)) {
+            result = ThreadsNumberTuner.getAvailableCpus();
+        }
+        else {
+            result = CommonUtil.isInt(threadsNumber) ? Math.max(Integer.parseInt(threadsNumber), 1) : 1;
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the diff entries of the repositories listed in the batch manifest,
+     * at most as many repositories as the checker threads are diffed at the same time.
+     * @param patternsToExclude The list of patterns to exclude the changed files.
+     * @param commandLine the command line object
+     * @return the diffs of the repositories, or null when failed to read the manifest
+     */
+    private static List<BatchResult> getBatchDiffs(List<Pattern> patternsToExclude,
+            CommandLine commandLine) {
+        final File manifest = new File(commandLine.getOptionValue(OPTION_BATCH_NAME));
+        final List<BatchEntry> entries;
+        try (Reader reader = Files.newBufferedReader(manifest.toPath(), StandardCharsets.UTF_8)) {
+            entries = BatchEntry.parseManifest(reader, manifest.getAbsoluteFile().getParentFile());
+        }
+        catch (IOException | IllegalArgumentException ex) {
+            System.out.println("error happened when read the batch manifest " + manifest + ": " + ex.getMessage());
+            return null;
+        }
+        final CheckRequest request = CheckRequest.builder()
+                .prefetchObjects(commandLine.hasOption(OPTION_PREFETCH_OBJECTS_NAME))
+                .mergeBase(commandLine.hasOption(OPTION_MERGE_BASE_NAME))
+                .recurseSubmodules(commandLine.hasOption(OPTION_RECURSE_SUBMODULES_NAME))
+                .excludePatterns(patternsToExclude)
+                .generatedMarkers(getGeneratedMarkers(commandLine))
+                .diffBudgetMillis(getDiffBudgetMillis(commandLine))
+                .build();
+        return BatchChecker.builder()
+                .request(request)
+                .threadsNumber(getScanThreadsNumber(commandLine))
+                .build()
+                .calculateDiffs(entries);
+    }
+
+    /**
+     * Prints the summary of each repository in the batch mode.
+     * @param batchResults the results of the repositories
+     */
+    private static void printBatchSummaries(List<BatchResult> batchResults) {
+        for (BatchResult batchResult : batchResults) {
+            final BatchEntry entry = batchResult.getEntry();
+            final String range = entry.getBaseRev() + ".." + entry.getHeadRev();
+            if (batchResult.getFailure() != null) {
+                Throwable cause = batchResult.getFailure();
+                while (cause.getCause() != null) {
+                    cause = cause.getCause();
                 }
+                System.out.println(String.format("Repository %s (%s) failed: %s",
+                        entry.getRepoDir(), range, cause));
             }
-            else if (node.isFile()) {
-                result.add(node);
+            else {
+                System.out.println(String.format("Repository %s (%s): %d file(s), %d error(s), %d ms",
+                        entry.getRepoDir(), range, batchResult.getDiffEntries().size(),
+                        batchResult.getErrorCount(), batchResult.getElapsedMillis()));
             }
         }
-        return result;
     }
 
     /**
-     * Checks if a directory {@code path} should be excluded based on if it matches one of the
-     * patterns supplied.
-     * @param path The path of the directory to check
-     * @param patternsToExclude The list of directory patterns to exclude from searching.
-     * @return True if the directory matches one of the patterns.
+     * Gets the time budget to diff a single file from the command line.
+     * @param commandLine the command line object
+     * @return the budget in milliseconds, the invalid value is reported by the validation later
      */
-    private static boolean isDirectoryExcluded(String path, List<Pattern> patternsToExclude) {
-        boolean result = false;
+    private static long getDiffBudgetMillis(CommandLine commandLine) {
+        final String budget = commandLine.getOptionValue(OPTION_DIFF_BUDGET_NAME);
+        return budget != null && CommonUtil.isInt(budget)
+                ? Long.parseLong(budget)
+                : DiffCalculator.DEFAULT_DIFF_BUDGET_MILLIS;
+    }
 
-        for (Pattern pattern : patternsToExclude) {
-            if (pattern.matcher(path).find()) {
-                result = true;
-                break;
-            }
+    /**
+     * Gets the markers to detect the generated files from the command line.
+     * @param commandLine the command line object
+     * @return the markers, empty if the detection by markers is disabled
+     */
+    private static List<String> getGeneratedMarkers(CommandLine commandLine) {
+        if (!commandLine.hasOption(OPTION_GENERATED_MARKERS_NAME)) {
+            return FileClassifier.DEFAULT_GENERATED_MARKERS;
         }
+        return Arrays.stream(commandLine.getOptionValue(OPTION_GENERATED_MARKERS_NAME).split(","))
+                .map(String::trim)
+                .filter(marker -> !marker.isEmpty())
+                .collect(Collectors.toList());
+    }
 
-        return result;
+    /**
+     * Parses the diff entries from the unified diff specified by the command line,
+     * the paths in the diff are relative to the git directory, or the working directory if absent.
+     * @param patternsToExclude The list of patterns to exclude the changed files.
+     * @param commandLine the command line object
+     * @return the diff entries, or an empty list when failed to parse the diff
+     */
+    private static List<DiffEntryWrapper> getUnifiedDiffEntries(List<Pattern> patternsToExclude,
+            CommandLine commandLine) {
+        final String diffFileLocation = commandLine.getOptionValue(OPTION_DIFF_FILE_NAME);
+        final File baseDir = new File(commandLine.getOptionValue(OPTION_GIT_DIR_NAME,
+                System.getProperty("user.dir")));
+        try (Reader reader = STDIN_LOCATION.equals(diffFileLocation)
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Paths.get(diffFileLocation), StandardCharsets.UTF_8)) {
+            return DiffCheckstyleEngine.parseDiffEntries(reader, baseDir, patternsToExclude);
+        } catch (CheckstyleException | IOException e) {
+            e.printStackTrace();
+            System.out.println("error happened when parse the diff file " + diffFileLocation);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Maps the diff index specified by the command line instead of calculating the diff.
+     * @param patternsToExclude The list of patterns to exclude the changed files.
+     * @param commandLine the command line object
+     * @return the diff entries, or an empty list when failed to read the index
+     */
+    private static List<DiffEntryWrapper> getIndexedDiffEntries(List<Pattern> patternsToExclude,
+            CommandLine commandLine) {
+        final String indexLocation = commandLine.getOptionValue(OPTION_DIFF_INDEX_NAME);
+        try {
+            return DiffCheckstyleEngine.readDiffIndex(Paths.get(indexLocation), patternsToExclude);
+        } catch (CheckstyleException e) {
+            e.printStackTrace();
+            System.out.println("error happened when read the diff index " + indexLocation);
+            return Collections.emptyList();
+        }
     }
 
     /** Prints the usage information. **/
@@ -899,7 +1584,12 @@ public final class Main {
      */
     private static Options buildOptions() {
         final Options options = new Options();
-        options.addOption(OPTION_C_NAME, true, "Sets the check configuration file to use.");
+        options.addOption(OPTION_C_NAME, true, "Sets the check configuration file to use, "
+                + "could be repeated to run multiple configs on the same diff with the files parsed once. "
+                + "The '-o' and '-f' options following a config belong to it");
+        options.addOption(OPTION_CAPITAL_A_NAME, OPTION_ADVISORY_CONFIG_NAME, true,
+                "Sets an advisory check configuration file, which is run like '-c' but its errors "
+                        + "do not affect the exit code, could be repeated");
         options.addOption(OPTION_O_NAME, true, "Sets the output file. Defaults to stdout");
         options.addOption(OPTION_P_NAME, true, "Loads the properties file");
         options.addOption(OPTION_S_NAME, true,
@@ -914,8 +1604,8 @@ public final class Main {
                 "Generates to output a suppression.xml to use to suppress all violations"
                         + " from user's config");
         options.addOption(OPTION_F_NAME, true, String.format(
-                "Sets the output format. (%s|%s). Defaults to %s",
-                PLAIN_FORMAT_NAME, XML_FORMAT_NAME, PLAIN_FORMAT_NAME));
+                "Sets the output format. (%s). Defaults to %s",
+                String.join("|", FORMAT_NAMES), PLAIN_FORMAT_NAME));
         options.addOption(OPTION_V_NAME, false, "Print product version and exit");
         options.addOption(OPTION_T_NAME, OPTION_TREE_NAME, false,
                 "Print Abstract Syntax Tree(AST) of the file");
@@ -934,14 +1624,90 @@ public final class Main {
         options.addOption(OPTION_EXECUTE_IGNORED_MODULES_NAME, false,
                 "Allows ignored modules to be run.");
         options.addOption(OPTION_CAPITAL_C_NAME, OPTION_CHECKER_THREADS_NUMBER_NAME, true,
-                "(experimental) The number of Checker threads (must be greater than zero)");
+                "The number of Checker threads (must be greater than zero, or 'auto' to pick it "
+                        + "by the number and the size of the files and the available cpus), "
+                        + "the files are scheduled with the largest estimated cost first");
         options.addOption(OPTION_CAPITAL_W_NAME, OPTION_TREE_WALKER_THREADS_NUMBER_NAME, true,
-                "(experimental) The number of TreeWalker threads (must be greater than zero)");
+                "(experimental) The number of TreeWalker threads (must be greater than zero, or 'auto'), "
+                        + "each Checker thread always owns a single TreeWalker");
+        options.addOption(Option.builder(OPTION_FF_NAME)
+                .longOpt(OPTION_FAIL_FAST_NAME)
+                .hasArg()
+                .optionalArg(true)
+                .argName("N")
+                .desc("Stop checking the remaining files once N errors are reported. Defaults to 1")
+                .build());
+        options.addOption(Option.builder(OPTION_CC_NAME)
+                .longOpt(OPTION_CONFIG_CACHE_NAME)
+                .hasArg()
+                .optionalArg(true)
+                .argName("dir")
+                .desc("Keep the parsed configuration with the resolved module class names in the directory, "
+                        + "so the next runs skip the xml parsing. Defaults to "
+                        + ConfigurationCache.DEFAULT_CACHE_DIR.getPath())
+                .build());
+        options.addOption(Option.builder(OPTION_AC_NAME)
+                .longOpt(OPTION_AST_CACHE_NAME)
+                .hasArg()
+                .argName("dir")
+                .desc("Keep the parsed syntax trees keyed by the blob ids of the files in the directory, "
+                        + "so the unchanged files skip the parsing in the next runs")
+                .build());
+        options.addOption(Option.builder(OPTION_RT_NAME)
+                .longOpt(OPTION_RATCHET_NAME)
+                .hasArg()
+                .optionalArg(true)
+                .argName("dir")
+                .desc("Check the whole changed files and report only the violations not found in their "
+                        + "old versions, the violations of the old versions are kept in the directory "
+                        + "by their blob ids. Fail fast is not applied in this mode. Defaults to "
+                        + BaselineCache.DEFAULT_CACHE_DIR.getPath())
+                .build());
+        options.addOption(OPTION_CT_NAME, OPTION_CHECK_TIMEOUT_NAME, true,
+                "The time limit in milliseconds to check a single file, a file exceeding it is reported "
+                        + "as an error and the remaining files go on, 0 for unlimited. Defaults to 0");
+        options.addOption(OPTION_TC_NAME, OPTION_TIMING_CACHE_NAME, true,
+                "The file to keep the check time of each file, "
+                        + "which helps scheduling the files in the next multi-threaded run");
         options.addOption(OPTION_GD_NAME, OPTION_GIT_DIR_NAME, true, "The git directory");
+        options.addOption(OPTION_DF_NAME, OPTION_DIFF_FILE_NAME, true,
+                "The unified diff file (e.g. the output of git diff -U0) to take the changed lines from, "
+                        + "'-' for the standard input, the git diff is not calculated in this case");
+        options.addOption(OPTION_FR_NAME, OPTION_FULL_REV_NAME, true,
+                "Check all the files of the revision straight from the git objects instead of a diff, "
+                        + "the files sharing the same blob and file name are checked only once");
+        options.addOption(OPTION_BT_NAME, OPTION_BATCH_NAME, true,
+                "Check the changes of many repositories in a single run, the manifest file holds a line of "
+                        + "'<repo path> <base rev> [<head rev>]' for each repository, "
+                        + "at most as many repositories as the checker threads are diffed and checked at a time");
+        options.addOption(OPTION_WDI_NAME, OPTION_WRITE_DIFF_INDEX_NAME, true,
+                "Calculate the diff of the git directory once and write it to the diff index file "
+                        + "without checking, for the other processes to map it by --diff-index");
+        options.addOption(OPTION_DI_NAME, OPTION_DIFF_INDEX_NAME, true,
+                "Read the changed files and lines from the diff index file mapped into memory "
+                        + "instead of calculating the diff");
         options.addOption(OPTION_BR_NAME, OPTION_GIT_BASE_REV_NAME, true,
                 "The git base revision, will proccess the changed files between this revision and HEAD");
         options.addOption(OPTION_IS_NAME, OPTION_GIT_INCLUDE_STAGED_CODES_NAME, false,
                 "Whether to include indexed codes when calculating diffs");
+        options.addOption(OPTION_MB_NAME, OPTION_MERGE_BASE_NAME, false,
+                "Whether to diff against the merge base of the base revision and HEAD "
+                        + "instead of the base revision itself");
+        options.addOption(OPTION_RS_NAME, OPTION_RECURSE_SUBMODULES_NAME, false,
+                "Whether to check the changed files inside the changed submodules, "
+                        + "the submodules are diffed between their old and new commits concurrently");
+        options.addOption(OPTION_DB_NAME, OPTION_DIFF_BUDGET_NAME, true,
+                "The time budget in milliseconds to diff a single file, the diff falls back to myers "
+                        + "and then a whole file replace edit when exceeded, 0 for unlimited. Defaults to "
+                        + DiffCalculator.DEFAULT_DIFF_BUDGET_MILLIS);
+        options.addOption(OPTION_GM_NAME, OPTION_GENERATED_MARKERS_NAME, true,
+                "The comma separated markers to detect the generated files by their headers, "
+                        + "defaults to @Generated, an empty value disables the detection by markers. "
+                        + "The binary and generated files (by .gitattributes, NUL bytes or the markers) "
+                        + "are skipped by default, they are neither diffed nor checked");
+        options.addOption(OPTION_PO_NAME, OPTION_PREFETCH_OBJECTS_NAME, false,
+                "Whether to read all the changed blobs in the order of pack offsets before diffing, "
+                        + "which speeds up the cold runs on large repositories");
         return options;
     }
 
@@ -950,12 +1716,8 @@ public final class Main {
 
         /** Properties file location. */
         private String propertiesLocation;
-        /** Config file location. */
-        private String configLocation;
-        /** Output format. */
-        private String format;
-        /** Output file location. */
-        private String outputLocation;
+        /** The configs to run in order. */
+        private List<ConfigProfile> configProfiles;
         /** List of file to validate. */
         private List<File> files;
         /** Switch whether to execute ignored modules or not. */
@@ -970,6 +1732,40 @@ public final class Main {
         private int tabWidth;
         /** Switch whether to generate suppressions file or not. */
         private boolean generateXpathSuppressionsFile;
+        /** The timing cache file location. */
+        private String timingCacheLocation;
+        /** The number of errors to stop the check, null if fail fast is disabled. */
+        private Integer failFastThreshold;
+        /** The directory of the configuration cache, null if the cache is disabled. */
+        private String configCacheLocation;
+        /** The directory of the ast cache, null if the cache is disabled. */
+        private String astCacheLocation;
+        /** The directory of the baseline cache, null if the ratchet mode is disabled. */
+        private String baselineCacheLocation;
+        /** The blobs of the revision to check in full, null if not scanning a revision. */
+        private List<RevisionBlob> revisionBlobs;
+        /** The diffs of the repositories in the batch mode, null if not in the batch mode. */
+        private List<BatchResult> batchResults;
+        /** The git directory, only kept for the ratchet and the full revision modes. */
+        private String gitDirLocation;
+        /** The time limit to check a single file in milliseconds, 0 for unlimited. */
+        private long checkTimeoutMillis;
+        /** The diff entries to filter the violations, empty if not checking a git repository. */
+        private List<DiffEntryWrapper> diffEntries;
+
+    }
+
+    /** A config with its own output and exit code policy. **/
+    private static class ConfigProfile {
+
+        /** Config file location. */
+        private String configLocation;
+        /** Output format. */
+        private String format;
+        /** Output file location. */
+        private String outputLocation;
+        /** Whether the errors of the config do not affect the exit code. */
+        private boolean advisory;
 
     }
 
@@ -0,0 +1,275 @@
+package io.github.yangziwen.checkstyle.ast;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+
+import io.github.yangziwen.checkstyle.CheckstyleVersion;
+
+/**
+ * The ast cache
+ * keep the encoded trees of the parsed files keyed by the blob id of the file content,
+ * the charset and the checkstyle version, so the unchanged files skip the parsing
+ * both within a run (in memory) and across runs (on disk),
+ * both levels are bounded by size and the least recently used entries are evicted first,
+ * the entries are kept in memory only when the checkstyle version can not be resolved
+ *
+ * @author yangziwen
+ */
+public class AstCache {
+
+    public static final long DEFAULT_MAX_DISK_BYTES = 256L * 1024 * 1024;
+
+    public static final long DEFAULT_MAX_MEMORY_BYTES = 64L * 1024 * 1024;
+
+    /** increase it when the encoding of the trees changes */
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    /** the entries are kept as charset/xx/yyy..., where xxyyy... is the blob id */
+    private static final int ENTRY_PATH_DEPTH = 3;
+
+    private static final Pattern ENTRY_DIR_NAME_PATTERN = Pattern.compile("[0-9a-f]{2}");
+
+    private static final Pattern ENTRY_FILE_NAME_PATTERN =
+            Pattern.compile("[0-9a-f]{" + (Constants.OBJECT_ID_STRING_LENGTH - 2) + "}");
+
+    private final File versionDir;
+
+    private final long maxDiskBytes;
+
+    private final long maxMemoryBytes;
+
+    private final Map<String, byte[]> memoryEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long memoryBytes;
+
+    private final AtomicInteger hitCount = new AtomicInteger();
+
+    private final AtomicInteger missCount = new AtomicInteger();
+
+    private final AtomicInteger evictionCount = new AtomicInteger();
+
+    public AstCache(File cacheDir) {
+        this(cacheDir, DEFAULT_MAX_DISK_BYTES, DEFAULT_MAX_MEMORY_BYTES);
+    }
+
+    /**
+     * @param cacheDir          the directory to keep the entries across runs, null to cache in memory only
+     * @param maxDiskBytes      the max total size of the entries on disk
+     * @param maxMemoryBytes    the max total size of the entries in memory
+     */
+    public AstCache(File cacheDir, long maxDiskBytes, long maxMemoryBytes) {
+        this(cacheDir, maxDiskBytes, maxMemoryBytes, CheckstyleVersion.get());
+    }
+
+    AstCache(File cacheDir, long maxDiskBytes, long maxMemoryBytes, String checkstyleVersion) {
+        // the trees on disk may be decoded by another checkstyle version, so they are never shared blindly
+        this.versionDir = cacheDir != null && checkstyleVersion != null
+                ? new File(cacheDir, FORMAT_VERSION + "-" + checkstyleVersion)
+                : null;
+        this.maxDiskBytes = maxDiskBytes;
+        this.maxMemoryBytes = maxMemoryBytes;
+    }
+
+    /**
+     * compute the key of the file content, which is the git blob id of the content prefixed by the charset
+     *
+     * @param content   the raw content of the file
+     * @param charset   the charset to decode the content
+     * @return the key
+     */
+    public static String computeKey(byte[] content, String charset) {
+        return computeKey(content, content.length, charset);
+    }
+
+    /**
+     * compute the key of the file content held by the leading bytes of the buffer
+     *
+     * @param buffer    the buffer holding the raw content of the file
+     * @param length    the length of the content
+     * @param charset   the charset to decode the content
+     * @return the key
+     */
+    public static String computeKey(byte[] buffer, int length, String charset) {
+        ObjectId blobId = new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, buffer, 0, length);
+        return charset.toLowerCase() + "/" + blobId.name();
+    }
+
+    /**
+     * @param key   the key of the file content
+     * @return the encoded tree, or null if absent
+     */
+    byte[] get(String key) {
+        byte[] data = getFromMemory(key);
+        if (data == null && versionDir != null) {
+            File file = getCacheFile(key);
+            if (file.isFile()) {
+                try {
+                    data = Files.readAllBytes(file.toPath());
+                    // the modified time tells the eviction how recently the entry is used
+                    file.setLastModified(System.currentTimeMillis());
+                    putToMemory(key, data);
+                } catch (IOException e) {
+                    data = null;
+                }
+            }
+        }
+        (data != null ? hitCount : missCount).incrementAndGet();
+        return data;
+    }
+
+    /**
+     * put the encoded tree, the failure to write the disk is ignored since the cache is only an optimization
+     *
+     * @param key   the key of the file content
+     * @param data  the encoded tree
+     */
+    void put(String key, byte[] data) {
+        putToMemory(key, data);
+        if (versionDir == null) {
+            return;
+        }
+        File file = getCacheFile(key);
+        File tempFile = null;
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            tempFile = File.createTempFile(file.getName(), TEMP_FILE_SUFFIX, file.getParentFile());
+            Files.write(tempFile.toPath(), data);
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * evict the least recently used entries on disk until the total size is within the limit,
+     * only the entries of the current version are counted and evicted,
+     * the other files in the directory are never touched
+     */
+    public void evict() {
+        if (versionDir == null || !versionDir.isDirectory()) {
+            return;
+        }
+        Path versionPath = versionDir.toPath();
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(versionPath, ENTRY_PATH_DEPTH)) {
+            files = stream
+                    .filter(path -> isEntryFile(versionPath.relativize(path)))
+                    .filter(Files::isRegularFile)
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            return;
+        }
+        List<CacheFile> cacheFiles = new ArrayList<>(files.size());
+        long totalBytes = 0L;
+        for (Path path : files) {
+            try {
+                CacheFile cacheFile = new CacheFile(path, Files.size(path), Files.getLastModifiedTime(path));
+                cacheFiles.add(cacheFile);
+                totalBytes += cacheFile.size;
+            } catch (IOException e) {
+                // deleted by another process
+            }
+        }
+        if (totalBytes <= maxDiskBytes) {
+            return;
+        }
+        cacheFiles.sort(Comparator.comparing(cacheFile -> cacheFile.lastModified));
+        for (CacheFile cacheFile : cacheFiles) {
+            if (totalBytes <= maxDiskBytes) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(cacheFile.path);
+                totalBytes -= cacheFile.size;
+            } catch (IOException e) {
+                // try the next one
+            }
+        }
+    }
+
+    public int getHitCount() {
+        return hitCount.get();
+    }
+
+    public int getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return the number of the trees dropped from memory, they are parsed again unless kept on disk
+     */
+    public int getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private File getCacheFile(String key) {
+        // spread the entries like the loose objects of git
+        int slash = key.lastIndexOf('/');
+        return new File(versionDir, key.substring(0, slash + 3) + "/" + key.substring(slash + 3));
+    }
+
+    private static boolean isEntryFile(Path relativePath) {
+        return relativePath.getNameCount() == ENTRY_PATH_DEPTH
+                && ENTRY_DIR_NAME_PATTERN.matcher(relativePath.getName(1).toString()).matches()
+                && ENTRY_FILE_NAME_PATTERN.matcher(relativePath.getName(2).toString()).matches();
+    }
+
+    private synchronized byte[] getFromMemory(String key) {
+        return memoryEntries.get(key);
+    }
+
+    private synchronized void putToMemory(String key, byte[] data) {
+        if (data.length > maxMemoryBytes) {
+            evictionCount.incrementAndGet();
+            return;
+        }
+        byte[] previous = memoryEntries.put(key, data);
+        memoryBytes += data.length - (previous != null ? previous.length : 0);
+        Iterator<byte[]> iterator = memoryEntries.values().iterator();
+        while (memoryBytes > maxMemoryBytes && iterator.hasNext()) {
+            memoryBytes -= iterator.next().length;
+            iterator.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    private static class CacheFile {
+
+        private final Path path;
+
+        private final long size;
+
+        private final FileTime lastModified;
+
+        CacheFile(Path path, long size, FileTime lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+    }
+
+}
@@ -0,0 +1,290 @@
+package io.github.yangziwen.checkstyle.ast;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.puppycrawl.tools.checkstyle.DetailAstImpl;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.TextBlock;
+import com.puppycrawl.tools.checkstyle.utils.TokenUtil;
+
+/**
+ * The ast codec
+ * encode the parsed tree with the comment nodes and the comments reported to the file contents
+ * into a compact deflated binary form, the nodes are written in pre-order with their child counts,
+ * the numbers are written as var ints and the repeated texts are written as references,
+ * the tree without comment nodes is decoded by skipping the comment subtrees
+ *
+ * @author yangziwen
+ */
+final class AstCodec {
+
+    private static final int NULL_TEXT = 0;
+
+    private static final int NEW_TEXT = 1;
+
+    private static final int TEXT_REF_OFFSET = 2;
+
+    private AstCodec() {}
+
+    /**
+     * encode the tree and the comments of the file contents
+     *
+     * @param root          the first top level node of the tree with comment nodes, null for an empty file
+     * @param contents      the file contents which the comments have been reported to
+     * @return the encoded bytes
+     */
+    static byte[] encode(DetailAST root, FileContents contents) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            encodeTree(root, out);
+            encodeComments(contents, out);
+        } catch (IOException e) {
+            // never happens when writing to the memory
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * decode the tree and replay the comments to the file contents
+     *
+     * @param data          the encoded bytes
+     * @param contents      the file contents to receive the comments, skipped if null
+     * @param withComments  whether to keep the comment nodes in the tree
+     * @return the first top level node of the tree, null for an empty file
+     * @throws IOException  throw IOException when the data is malformed
+     */
+    static DetailAST decode(byte[] data, FileContents contents, boolean withComments) throws IOException {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+            DetailAST root = decodeTree(in, withComments);
+            if (contents != null) {
+                decodeComments(in, contents);
+            }
+            return root;
+        }
+    }
+
+    private static void encodeTree(DetailAST root, DataOutputStream out) throws IOException {
+        int topLevelCount = 0;
+        for (DetailAST node = root; node != null; node = node.getNextSibling()) {
+            topLevelCount++;
+        }
+        writeVarInt(out, topLevelCount);
+        Map<String, Integer> textRefs = new HashMap<>();
+        DetailAST current = root;
+        while (current != null) {
+            writeVarInt(out, current.getType());
+            writeText(out, current.getText(), textRefs);
+            writeVarInt(out, zigzag(current.getLineNo()));
+            writeVarInt(out, zigzag(current.getColumnNo()));
+            writeVarInt(out, current.getChildCount());
+            DetailAST next = current.getFirstChild();
+            while (current != null && next == null) {
+                next = current.getNextSibling();
+                if (next == null) {
+                    current = current.getParent();
+                }
+            }
+            current = next;
+        }
+    }
+
+    private static DetailAST decodeTree(DataInputStream in, boolean withComments) throws IOException {
+        List<String> texts = new ArrayList<>();
+        Deque<Frame> stack = new ArrayDeque<>();
+        // the top level nodes are siblings without parent
+        Frame topLevel = new Frame(null, readVarInt(in), false);
+        if (topLevel.remaining == 0) {
+            return null;
+        }
+        stack.push(topLevel);
+        while (!stack.isEmpty()) {
+            Frame parent = stack.peek();
+            int type = readVarInt(in);
+            String text = readText(in, texts);
+            int lineNo = unzigzag(readVarInt(in));
+            int columnNo = unzigzag(readVarInt(in));
+            int childCount = readVarInt(in);
+            boolean skipped = parent.skipped || !withComments && TokenUtil.isCommentType(type);
+            DetailAstImpl node = null;
+            if (!skipped) {
+                node = new DetailAstImpl();
+                node.setType(type);
+                node.setText(text);
+                node.setLineNo(lineNo);
+                node.setColumnNo(columnNo);
+                parent.append(node);
+            }
+            parent.remaining--;
+            if (childCount > 0) {
+                stack.push(new Frame(node, childCount, skipped));
+            }
+            while (!stack.isEmpty() && stack.peek().remaining == 0) {
+                stack.pop().finish();
+            }
+        }
+        return topLevel.firstChild;
+    }
+
+    private static void encodeComments(FileContents contents, DataOutputStream out) throws IOException {
+        List<TextBlock> singleLineComments = new ArrayList<>(contents.getSingleLineComments().values());
+        singleLineComments.sort(Comparator.comparingInt(TextBlock::getStartLineNo));
+        writeVarInt(out, singleLineComments.size());
+        for (TextBlock comment : singleLineComments) {
+            writeVarInt(out, comment.getStartLineNo());
+            writeVarInt(out, comment.getStartColNo());
+        }
+        List<TextBlock> blockComments = new ArrayList<>();
+        contents.getBlockComments().values().forEach(blockComments::addAll);
+        // the sort is stable, so the comments on the same line keep their order
+        blockComments.sort(Comparator.comparingInt(TextBlock::getStartLineNo));
+        writeVarInt(out, blockComments.size());
+        for (TextBlock comment : blockComments) {
+            writeVarInt(out, comment.getStartLineNo());
+            writeVarInt(out, comment.getStartColNo());
+            writeVarInt(out, comment.getEndLineNo());
+            writeVarInt(out, comment.getEndColNo());
+        }
+    }
+
+    private static void decodeComments(DataInputStream in, FileContents contents) throws IOException {
+        int singleLineCount = readVarInt(in);
+        for (int i = 0; i < singleLineCount; i++) {
+            contents.reportSingleLineComment(readVarInt(in), readVarInt(in));
+        }
+        int blockCount = readVarInt(in);
+        for (int i = 0; i < blockCount; i++) {
+            contents.reportBlockComment("/*", readVarInt(in), readVarInt(in), readVarInt(in), readVarInt(in));
+        }
+    }
+
+    private static void writeText(DataOutputStream out, String text, Map<String, Integer> textRefs)
+            throws IOException {
+        if (text == null) {
+            writeVarInt(out, NULL_TEXT);
+            return;
+        }
+        Integer ref = textRefs.get(text);
+        if (ref != null) {
+            writeVarInt(out, ref + TEXT_REF_OFFSET);
+            return;
+        }
+        textRefs.put(text, textRefs.size());
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, NEW_TEXT);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(DataInputStream in, List<String> texts) throws IOException {
+        int ref = readVarInt(in);
+        if (ref == NULL_TEXT) {
+            return null;
+        }
+        if (ref != NEW_TEXT) {
+            int index = ref - TEXT_REF_OFFSET;
+            if (index >= texts.size()) {
+                throw new IOException("invalid text reference " + ref);
+            }
+            return texts.get(index);
+        }
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        texts.add(text);
+        return text;
+    }
+
+    static void writeVarInt(OutputStream out, int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.write((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.write(remaining);
+    }
+
+    static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("unexpected end of the encoded ast");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed var int in the encoded ast");
+    }
+
+    /** the line and column numbers of the nodes without position may be negative */
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * The node whose children are being decoded
+     */
+    private static class Frame {
+
+        private final DetailAstImpl node;
+
+        private final boolean skipped;
+
+        private int remaining;
+
+        private DetailAstImpl firstChild;
+
+        private DetailAstImpl lastChild;
+
+        Frame(DetailAstImpl node, int remaining, boolean skipped) {
+            this.node = node;
+            this.remaining = remaining;
+            this.skipped = skipped;
+        }
+
+        void append(DetailAstImpl child) {
+            if (lastChild == null) {
+                firstChild = child;
+            } else {
+                lastChild.setNextSibling(child);
+            }
+            lastChild = child;
+        }
+
+        /**
+         * the parent is set to the whole sibling chain at once,
+         * which is much cheaper than appending the children one by one
+         */
+        void finish() {
+            if (node != null && firstChild != null) {
+                node.setFirstChild(firstChild);
+            }
+        }
+
+    }
+
+}
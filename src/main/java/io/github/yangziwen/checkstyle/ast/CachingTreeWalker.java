@@ -0,0 +1,390 @@
+package io.github.yangziwen.checkstyle.ast;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import com.puppycrawl.tools.checkstyle.DefaultContext;
+import com.puppycrawl.tools.checkstyle.FileStatefulCheck;
+import com.puppycrawl.tools.checkstyle.JavaParser;
+import com.puppycrawl.tools.checkstyle.ModuleFactory;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.TreeWalkerAuditEvent;
+import com.puppycrawl.tools.checkstyle.TreeWalkerFilter;
+import com.puppycrawl.tools.checkstyle.api.AbstractCheck;
+import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.AutomaticBean;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.Context;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.ExternalResourceHolder;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.utils.TokenUtil;
+
+import io.github.yangziwen.checkstyle.CheckstyleVersion;
+import io.github.yangziwen.checkstyle.buffer.BufferPool;
+import io.github.yangziwen.checkstyle.buffer.PooledBuffer;
+
+/**
+ * The caching tree walker
+ * a replacement of the {@link TreeWalker}, which is final and always parses the files,
+ * the checks are registered and notified exactly as the TreeWalker does,
+ * but the parsed trees and the comments are taken from the ast cache when the content of the file is unchanged,
+ * and the pre filter (e.g. the diff line filter) drops the messages as soon as the checks finish,
+ * so the rejected messages never reach the costlier filters (e.g. the SuppressionXpathFilter),
+ * it mirrors the TreeWalker of a single checkstyle version, and must not replace the TreeWalker of any other
+ *
+ * @author yangziwen
+ */
+@FileStatefulCheck
+public class CachingTreeWalker extends AbstractFileSetCheck implements ExternalResourceHolder {
+
+    /** the checkstyle version whose TreeWalker is mirrored, port the changes of the TreeWalker when bumping it */
+    public static final String MIRRORED_CHECKSTYLE_VERSION = "8.22";
+
+    private static final String DEFAULT_CHARSET = "default";
+
+    private final Map<String, Set<AbstractCheck>> tokenToOrdinaryChecks = new HashMap<>();
+
+    private final Map<String, Set<AbstractCheck>> tokenToCommentChecks = new HashMap<>();
+
+    private final Set<AbstractCheck> ordinaryChecks = new HashSet<>();
+
+    private final Set<AbstractCheck> commentChecks = new HashSet<>();
+
+    private final Set<TreeWalkerFilter> filters = new LinkedHashSet<>();
+
+    private final SortedSet<LocalizedMessage> messages = new TreeSet<>();
+
+    private final AstCache astCache;
+
+    private final TreeWalkerFilter preFilter;
+
+    private String fileName;
+
+    private ClassLoader classLoader;
+
+    private Context childContext;
+
+    private ModuleFactory moduleFactory;
+
+    /**
+     * @param astCache      the cache of the parsed trees, null if the files are always parsed
+     * @param preFilter     the filter applied to the messages as soon as the checks finish, null if absent
+     */
+    public CachingTreeWalker(AstCache astCache, TreeWalkerFilter preFilter) {
+        this.astCache = astCache;
+        this.preFilter = preFilter;
+        setFileExtensions("java");
+    }
+
+    /**
+     * @return whether the TreeWalker of the checkstyle on the classpath is the mirrored one
+     */
+    public static boolean isSupported() {
+        return MIRRORED_CHECKSTYLE_VERSION.equals(CheckstyleVersion.get());
+    }
+
+    public void setClassLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    public void setModuleFactory(ModuleFactory moduleFactory) {
+        this.moduleFactory = moduleFactory;
+    }
+
+    @Override
+    public void finishLocalSetup() {
+        DefaultContext checkContext = new DefaultContext();
+        checkContext.add("classLoader", classLoader);
+        checkContext.add("severity", getSeverity());
+        checkContext.add("tabWidth", String.valueOf(getTabWidth()));
+        childContext = checkContext;
+    }
+
+    @Override
+    public void setupChild(Configuration childConf) throws CheckstyleException {
+        String name = childConf.getName();
+        Object module;
+        try {
+            module = moduleFactory.createModule(name);
+            if (module instanceof AutomaticBean) {
+                AutomaticBean bean = (AutomaticBean) module;
+                bean.contextualize(childContext);
+                bean.configure(childConf);
+            }
+        } catch (CheckstyleException e) {
+            throw new CheckstyleException("cannot initialize module " + name + " - " + e.getMessage(), e);
+        }
+        if (module instanceof AbstractCheck) {
+            AbstractCheck check = (AbstractCheck) module;
+            check.init();
+            registerCheck(check);
+        } else if (module instanceof TreeWalkerFilter) {
+            filters.add((TreeWalkerFilter) module);
+        } else {
+            throw new CheckstyleException("TreeWalker is not allowed as a parent of " + name
+                    + " Please review 'Parent Module' section for this Check in web documentation if Check is standard.");
+        }
+    }
+
+    @Override
+    protected void processFiltered(File file, FileText fileText) throws CheckstyleException {
+        if (ordinaryChecks.isEmpty() && commentChecks.isEmpty()) {
+            return;
+        }
+        FileContents contents = getFileContents();
+        fileName = file.getAbsolutePath();
+        String key = astCache != null ? computeKey(file, fileText) : null;
+        byte[] data = key != null ? astCache.get(key) : null;
+        DetailAST rootAst = data != null ? walkCachedTrees(data, contents) : null;
+        if (rootAst == null) {
+            rootAst = walkParsedTree(key, contents);
+        }
+        if (filters.isEmpty()) {
+            addMessages(messages);
+        } else {
+            addMessages(getFilteredMessages(fileName, contents, rootAst));
+        }
+        messages.clear();
+    }
+
+    /**
+     * walk the trees decoded from the cache, the trees are decoded before any check is notified,
+     * so a broken entry falls back to the parsing without side effects on the checks
+     *
+     * @return the tree passed to the filters, or null if the entry is broken
+     */
+    private DetailAST walkCachedTrees(byte[] data, FileContents contents) {
+        DetailAST commentAst;
+        DetailAST ordinaryAst;
+        try {
+            // the comments are replayed to the contents only once
+            commentAst = commentChecks.isEmpty() ? null : AstCodec.decode(data, contents, true);
+            ordinaryAst = ordinaryChecks.isEmpty() ? null
+                    : AstCodec.decode(data, commentAst == null ? contents : null, false);
+        } catch (IOException e) {
+            return null;
+        }
+        if (ordinaryAst != null) {
+            walk(ordinaryAst, contents, AstState.ORDINARY);
+        }
+        if (commentAst != null) {
+            walk(commentAst, contents, AstState.WITH_COMMENTS);
+        }
+        return commentAst != null ? commentAst : ordinaryAst;
+    }
+
+    /**
+     * parse and walk the trees, then put the tree with the comment nodes into the cache
+     *
+     * @return the tree passed to the filters
+     */
+    private DetailAST walkParsedTree(String key, FileContents contents) throws CheckstyleException {
+        DetailAST rootAst = JavaParser.parse(contents);
+        if (!ordinaryChecks.isEmpty()) {
+            walk(rootAst, contents, AstState.ORDINARY);
+        }
+        if (!commentChecks.isEmpty() || key != null) {
+            rootAst = JavaParser.appendHiddenCommentNodes(rootAst);
+        }
+        if (!commentChecks.isEmpty()) {
+            walk(rootAst, contents, AstState.WITH_COMMENTS);
+        }
+        if (key != null) {
+            astCache.put(key, AstCodec.encode(rootAst, contents));
+        }
+        return rootAst;
+    }
+
+    /**
+     * @return the key of the file content, or null if the file could not be read again,
+     * the content is read into a pooled buffer which is released as soon as it is hashed
+     */
+    private static String computeKey(File file, FileText fileText) {
+        String charset = fileText.getCharset() != null ? fileText.getCharset().name() : DEFAULT_CHARSET;
+        try (PooledBuffer buffer = BufferPool.DEFAULT.read(file.toPath())) {
+            return AstCache.computeKey(buffer.getArray(), buffer.getLength(), charset);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private SortedSet<LocalizedMessage> getFilteredMessages(
+            String fileName, FileContents fileContents, DetailAST rootAst) {
+        SortedSet<LocalizedMessage> result = new TreeSet<>(messages);
+        for (LocalizedMessage element : messages) {
+            TreeWalkerAuditEvent event = new TreeWalkerAuditEvent(fileContents, fileName, element, rootAst);
+            for (TreeWalkerFilter filter : filters) {
+                if (!filter.accept(event)) {
+                    result.remove(element);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private void registerCheck(AbstractCheck check) throws CheckstyleException {
+        validateDefaultTokens(check);
+        int[] tokens;
+        Set<String> checkTokens = check.getTokenNames();
+        if (checkTokens.isEmpty()) {
+            tokens = check.getDefaultTokens();
+        } else {
+            tokens = check.getRequiredTokens();
+            int[] acceptableTokens = check.getAcceptableTokens();
+            Arrays.sort(acceptableTokens);
+            for (String token : checkTokens) {
+                int tokenId = TokenUtil.getTokenId(token);
+                if (Arrays.binarySearch(acceptableTokens, tokenId) >= 0) {
+                    registerCheck(token, check);
+                } else {
+                    throw new CheckstyleException(String.format(Locale.ROOT,
+                            "Token \"%s\" was not found in Acceptable tokens list in check %s",
+                            token, check.getClass().getName()));
+                }
+            }
+        }
+        for (int element : tokens) {
+            registerCheck(TokenUtil.getTokenName(element), check);
+        }
+        if (check.isCommentNodesRequired()) {
+            commentChecks.add(check);
+        } else {
+            ordinaryChecks.add(check);
+        }
+    }
+
+    private void registerCheck(String token, AbstractCheck check) throws CheckstyleException {
+        if (check.isCommentNodesRequired()) {
+            tokenToCommentChecks.computeIfAbsent(token, empty -> new HashSet<>()).add(check);
+        } else if (TokenUtil.isCommentType(token)) {
+            throw new CheckstyleException(String.format(Locale.ROOT,
+                    "Check '%s' waits for comment type token ('%s') and should override "
+                            + "'isCommentNodesRequired()' method to return 'true'",
+                    check.getClass().getName(), token));
+        } else {
+            tokenToOrdinaryChecks.computeIfAbsent(token, empty -> new HashSet<>()).add(check);
+        }
+    }
+
+    private static void validateDefaultTokens(AbstractCheck check) throws CheckstyleException {
+        if (check.getRequiredTokens().length == 0) {
+            return;
+        }
+        int[] defaultTokens = check.getDefaultTokens();
+        Arrays.sort(defaultTokens);
+        for (int token : check.getRequiredTokens()) {
+            if (Arrays.binarySearch(defaultTokens, token) < 0) {
+                throw new CheckstyleException(String.format(Locale.ROOT,
+                        "Token \"%s\" from required tokens was not found in default tokens list in check %s",
+                        token, check.getClass().getName()));
+            }
+        }
+    }
+
+    private void walk(DetailAST ast, FileContents contents, AstState astState) {
+        Set<AbstractCheck> checks = astState == AstState.WITH_COMMENTS ? commentChecks : ordinaryChecks;
+        for (AbstractCheck check : checks) {
+            check.setFileContents(contents);
+            check.clearMessages();
+            check.beginTree(ast);
+        }
+        processIter(ast, astState);
+        for (AbstractCheck check : checks) {
+            check.finishTree(ast);
+            if (preFilter == null) {
+                messages.addAll(check.getMessages());
+                continue;
+            }
+            for (LocalizedMessage message : check.getMessages()) {
+                if (preFilter.accept(new TreeWalkerAuditEvent(contents, fileName, message, ast))) {
+                    messages.add(message);
+                }
+            }
+        }
+    }
+
+    private void processIter(DetailAST root, AstState astState) {
+        DetailAST curNode = root;
+        while (curNode != null) {
+            notifyVisit(curNode, astState);
+            DetailAST toVisit = curNode.getFirstChild();
+            while (curNode != null && toVisit == null) {
+                notifyLeave(curNode, astState);
+                toVisit = curNode.getNextSibling();
+                if (toVisit == null) {
+                    curNode = curNode.getParent();
+                }
+            }
+            curNode = toVisit;
+        }
+    }
+
+    private void notifyVisit(DetailAST ast, AstState astState) {
+        Collection<AbstractCheck> visitors = getListOfChecks(ast, astState);
+        if (visitors != null) {
+            for (AbstractCheck check : visitors) {
+                check.visitToken(ast);
+            }
+        }
+    }
+
+    private void notifyLeave(DetailAST ast, AstState astState) {
+        Collection<AbstractCheck> visitors = getListOfChecks(ast, astState);
+        if (visitors != null) {
+            for (AbstractCheck check : visitors) {
+                check.leaveToken(ast);
+            }
+        }
+    }
+
+    private Collection<AbstractCheck> getListOfChecks(DetailAST ast, AstState astState) {
+        String tokenType = TokenUtil.getTokenName(ast.getType());
+        return astState == AstState.WITH_COMMENTS
+                ? tokenToCommentChecks.get(tokenType)
+                : tokenToOrdinaryChecks.get(tokenType);
+    }
+
+    @Override
+    public void destroy() {
+        ordinaryChecks.forEach(AbstractCheck::destroy);
+        commentChecks.forEach(AbstractCheck::destroy);
+        super.destroy();
+    }
+
+    @Override
+    public Set<String> getExternalResourceLocations() {
+        Set<String> resourceLocations = new HashSet<>();
+        addExternalResourceLocations(resourceLocations, ordinaryChecks);
+        addExternalResourceLocations(resourceLocations, commentChecks);
+        addExternalResourceLocations(resourceLocations, filters);
+        return resourceLocations;
+    }
+
+    private static void addExternalResourceLocations(Set<String> resourceLocations, Set<?> modules) {
+        for (Object module : modules) {
+            if (module instanceof ExternalResourceHolder) {
+                resourceLocations.addAll(((ExternalResourceHolder) module).getExternalResourceLocations());
+            }
+        }
+    }
+
+    private enum AstState {
+        ORDINARY, WITH_COMMENTS
+    }
+
+}
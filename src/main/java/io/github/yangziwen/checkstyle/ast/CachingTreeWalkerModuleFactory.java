@@ -0,0 +1,40 @@
+package io.github.yangziwen.checkstyle.ast;
+
+import com.puppycrawl.tools.checkstyle.ModuleFactory;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.TreeWalkerFilter;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+
+/**
+ * The caching tree walker module factory
+ * create the modules by the delegate factory, except that the tree walkers are replaced by the caching ones,
+ * both the short name and the fully qualified class name of the tree walker are recognized
+ *
+ * @author yangziwen
+ */
+public class CachingTreeWalkerModuleFactory implements ModuleFactory {
+
+    private final ModuleFactory delegate;
+
+    private final AstCache astCache;
+
+    private final TreeWalkerFilter preFilter;
+
+    /**
+     * @param delegate      the factory to create the other modules
+     * @param astCache      the cache of the parsed trees, null if the files are always parsed
+     * @param preFilter     the filter applied to the messages as soon as the checks finish, null if absent
+     */
+    public CachingTreeWalkerModuleFactory(ModuleFactory delegate, AstCache astCache, TreeWalkerFilter preFilter) {
+        this.delegate = delegate;
+        this.astCache = astCache;
+        this.preFilter = preFilter;
+    }
+
+    @Override
+    public Object createModule(String name) throws CheckstyleException {
+        Object module = delegate.createModule(name);
+        return module instanceof TreeWalker ? new CachingTreeWalker(astCache, preFilter) : module;
+    }
+
+}
@@ -0,0 +1,171 @@
+package io.github.yangziwen.checkstyle.buffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The buffer pool
+ * lend the byte arrays to hold the file and blob contents, the arrays are sized by power-of-two classes,
+ * so an array released by one file is reused by the later files of a similar size,
+ * the arrays larger than the biggest class are allocated on demand and never pooled,
+ * and the total size of the idle arrays is bounded, the extra ones are left to the garbage collector
+ *
+ * @author yangziwen
+ */
+public class BufferPool {
+
+    public static final int DEFAULT_MIN_CLASS_SIZE = 4 * 1024;
+
+    public static final int DEFAULT_MAX_CLASS_SIZE = 4 * 1024 * 1024;
+
+    public static final long DEFAULT_MAX_IDLE_BYTES = 64L * 1024 * 1024;
+
+    public static final BufferPool DEFAULT = new BufferPool(
+            DEFAULT_MIN_CLASS_SIZE, DEFAULT_MAX_CLASS_SIZE, DEFAULT_MAX_IDLE_BYTES);
+
+    private static final byte[] EMPTY = new byte[] {};
+
+    private final int minClassShift;
+
+    private final int maxClassSize;
+
+    private final long maxIdleBytes;
+
+    private final List<Queue<byte[]>> idleBuffers;
+
+    private final AtomicLong idleBytes = new AtomicLong();
+
+    /**
+     * @param minClassSize  the size of the smallest class, rounded up to a power of two
+     * @param maxClassSize  the size of the biggest class, rounded up to a power of two
+     * @param maxIdleBytes  the max total size of the idle arrays kept by the pool
+     */
+    public BufferPool(int minClassSize, int maxClassSize, long maxIdleBytes) {
+        this.minClassShift = Integer.numberOfTrailingZeros(roundUp(Math.max(minClassSize, 1)));
+        this.maxClassSize = Math.max(roundUp(maxClassSize), 1 << minClassShift);
+        this.maxIdleBytes = maxIdleBytes;
+        int classCount = Integer.numberOfTrailingZeros(this.maxClassSize) - minClassShift + 1;
+        this.idleBuffers = new ArrayList<>(classCount);
+        for (int i = 0; i < classCount; i++) {
+            idleBuffers.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    /**
+     * @param size  the min length of the array
+     * @return an array not shorter than the size, whose content is undefined
+     */
+    public byte[] acquire(int size) {
+        if (size == 0) {
+            return EMPTY;
+        }
+        if (size > maxClassSize) {
+            return new byte[size];
+        }
+        int classIndex = getClassIndex(size);
+        byte[] buffer = idleBuffers.get(classIndex).poll();
+        if (buffer == null) {
+            return new byte[1 << (classIndex + minClassShift)];
+        }
+        idleBytes.addAndGet(-buffer.length);
+        return buffer;
+    }
+
+    /**
+     * give the array back to the pool, the array must not be used by the caller any more
+     *
+     * @param buffer    the array acquired from the pool
+     */
+    public void release(byte[] buffer) {
+        int length = buffer.length;
+        if (length < (1 << minClassShift) || length > maxClassSize || Integer.bitCount(length) != 1) {
+            return;
+        }
+        if (idleBytes.addAndGet(length) > maxIdleBytes) {
+            idleBytes.addAndGet(-length);
+            return;
+        }
+        idleBuffers.get(getClassIndex(length)).offer(buffer);
+    }
+
+    /**
+     * read the whole file into a pooled buffer
+     *
+     * @param file  the file
+     * @return the buffer, which should be closed after use
+     * @throws IOException  throw IOException when failed to read the file
+     */
+    public PooledBuffer read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 1) {
+                throw new IOException("file is too large to read: " + file);
+            }
+            // one more byte to find out the growth of the file without another read
+            byte[] buffer = acquire((int) size + 1);
+            int length = 0;
+            int n;
+            while ((n = channel.read(ByteBuffer.wrap(buffer, length, buffer.length - length))) > 0) {
+                length += n;
+                if (length == buffer.length) {
+                    buffer = grow(buffer, length);
+                }
+            }
+            return new PooledBuffer(this, buffer, length);
+        }
+    }
+
+    /**
+     * read the stream till its end into a pooled buffer
+     *
+     * @param in            the stream, which is not closed by this method
+     * @param expectedSize  the expected size of the content
+     * @return the buffer, which should be closed after use
+     * @throws IOException  throw IOException when failed to read the stream
+     */
+    public PooledBuffer read(InputStream in, int expectedSize) throws IOException {
+        byte[] buffer = acquire(Math.max(expectedSize, 0) + 1);
+        int length = 0;
+        int n;
+        while ((n = in.read(buffer, length, buffer.length - length)) > 0) {
+            length += n;
+            if (length == buffer.length) {
+                buffer = grow(buffer, length);
+            }
+        }
+        return new PooledBuffer(this, buffer, length);
+    }
+
+    private byte[] grow(byte[] buffer, int length) {
+        byte[] grown = acquire(length > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE - 8 : length * 2);
+        System.arraycopy(buffer, 0, grown, 0, length);
+        release(buffer);
+        return grown;
+    }
+
+    /**
+     * @return the total size of the idle arrays kept by the pool
+     */
+    public long getIdleBytes() {
+        return idleBytes.get();
+    }
+
+    private int getClassIndex(int size) {
+        return Math.max(Integer.numberOfTrailingZeros(roundUp(size)) - minClassShift, 0);
+    }
+
+    private static int roundUp(int size) {
+        int highestOneBit = Integer.highestOneBit(size);
+        return highestOneBit == size ? size : highestOneBit << 1;
+    }
+
+}
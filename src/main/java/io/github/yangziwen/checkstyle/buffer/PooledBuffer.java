@@ -0,0 +1,35 @@
+package io.github.yangziwen.checkstyle.buffer;
+
+import lombok.Getter;
+
+/**
+ * The pooled buffer
+ * the content held by an array borrowed from the buffer pool, the array could be longer than the content,
+ * and it is given back to the pool when the buffer is closed
+ *
+ * @author yangziwen
+ */
+@Getter
+public class PooledBuffer implements AutoCloseable {
+
+    private final BufferPool pool;
+
+    private byte[] array;
+
+    private final int length;
+
+    PooledBuffer(BufferPool pool, byte[] array, int length) {
+        this.pool = pool;
+        this.array = array;
+        this.length = length;
+    }
+
+    @Override
+    public void close() {
+        if (array != null) {
+            pool.release(array);
+            array = null;
+        }
+    }
+
+}
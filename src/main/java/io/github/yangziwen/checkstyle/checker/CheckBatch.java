@@ -0,0 +1,46 @@
+package io.github.yangziwen.checkstyle.checker;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import lombok.Getter;
+
+/**
+ * The check batch
+ * a group of check tasks which will be processed by one worker in a row
+ *
+ * @author yangziwen
+ */
+@Getter
+public class CheckBatch {
+
+    private final List<CheckTask> tasks = new ArrayList<>();
+
+    private long cost;
+
+    /**
+     * create a batch with the tasks in the given order
+     *
+     * @param tasks     the tasks
+     * @return the batch
+     */
+    public static CheckBatch of(List<CheckTask> tasks) {
+        CheckBatch batch = new CheckBatch();
+        tasks.forEach(batch::add);
+        return batch;
+    }
+
+    void add(CheckTask task) {
+        tasks.add(task);
+        cost += task.getCost();
+    }
+
+    public List<File> getFiles() {
+        return tasks.stream()
+                .map(CheckTask::getFile)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,22 @@
+package io.github.yangziwen.checkstyle.checker;
+
+import java.io.File;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The check task
+ * a single file to be checked together with its estimated cost
+ *
+ * @author yangziwen
+ */
+@Getter
+@Builder
+public class CheckTask {
+
+    private File file;
+
+    private long cost;
+
+}
@@ -0,0 +1,58 @@
+package io.github.yangziwen.checkstyle.checker;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The check task scheduler
+ * order the tasks by the estimated cost and pack the small ones into batches,
+ * so that the most expensive files are started first and the tail of the run stays short
+ *
+ * @author yangziwen
+ */
+public class CheckTaskScheduler {
+
+    /**
+     * the number of batches expected to be assigned to each worker,
+     * more batches make the load more balanced but cost more scheduling overhead
+     */
+    private static final int BATCHES_PER_THREAD = 4;
+
+    private final int threadsNumber;
+
+    public CheckTaskScheduler(int threadsNumber) {
+        this.threadsNumber = Math.max(threadsNumber, 1);
+    }
+
+    /**
+     * schedule the tasks into batches with the largest ones first
+     *
+     * @param tasks     the tasks to schedule
+     * @return the batches in the order they should be submitted
+     */
+    public List<CheckBatch> schedule(List<CheckTask> tasks) {
+        List<CheckTask> sortedTasks = tasks.stream()
+                .sorted(Comparator.comparingLong(CheckTask::getCost).reversed())
+                .collect(Collectors.toList());
+        long totalCost = sortedTasks.stream().mapToLong(CheckTask::getCost).sum();
+        long batchCostLimit = Math.max(totalCost / (threadsNumber * BATCHES_PER_THREAD), 1L);
+        List<CheckBatch> batches = new ArrayList<>();
+        CheckBatch current = null;
+        for (CheckTask task : sortedTasks) {
+            if (current == null || current.getCost() + task.getCost() > batchCostLimit) {
+                if (current != null) {
+                    batches.add(current);
+                }
+                current = new CheckBatch();
+            }
+            current.add(task);
+        }
+        if (current != null) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+}
@@ -0,0 +1,82 @@
+package io.github.yangziwen.checkstyle.checker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The check timing cache
+ * keep the time spent on checking each file in the previous run,
+ * which is used to estimate the cost of the files in the next run
+ *
+ * @author yangziwen
+ */
+public class CheckTimingCache {
+
+    private final File cacheFile;
+
+    private final Map<String, Long> timingMap = new ConcurrentHashMap<>();
+
+    public CheckTimingCache(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * load the timings from the cache file if it exists
+     *
+     * @return the cache itself
+     * @throws IOException  throw IOException when failed to read the cache file
+     */
+    public CheckTimingCache load() throws IOException {
+        if (!cacheFile.isFile()) {
+            return this;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(cacheFile.toPath())) {
+            properties.load(in);
+        }
+        for (String fileName : properties.stringPropertyNames()) {
+            try {
+                timingMap.put(fileName, Long.parseLong(properties.getProperty(fileName)));
+            } catch (NumberFormatException e) {
+                // ignore the broken entry
+            }
+        }
+        return this;
+    }
+
+    /**
+     * persist the timings to the cache file
+     *
+     * @throws IOException  throw IOException when failed to write the cache file
+     */
+    public void persist() throws IOException {
+        Properties properties = new Properties();
+        timingMap.forEach((fileName, nanos) -> properties.setProperty(fileName, String.valueOf(nanos)));
+        File parent = cacheFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        try (OutputStream out = Files.newOutputStream(cacheFile.toPath())) {
+            properties.store(out, null);
+        }
+    }
+
+    public Long get(String fileName) {
+        return timingMap.get(fileName);
+    }
+
+    public void put(String fileName, long nanos) {
+        timingMap.put(fileName, nanos);
+    }
+
+    public boolean isEmpty() {
+        return timingMap.isEmpty();
+    }
+
+}
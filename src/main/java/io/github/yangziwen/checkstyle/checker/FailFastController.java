@@ -0,0 +1,86 @@
+package io.github.yangziwen.checkstyle.checker;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.BeforeExecutionFileFilter;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+/**
+ * The fail fast controller
+ * count the error events which have passed all the filters,
+ * and reject all the remaining files once the threshold is reached,
+ * a single instance could be shared by the checkers of all the workers
+ *
+ * @author yangziwen
+ */
+public class FailFastController implements AuditListener, BeforeExecutionFileFilter {
+
+    private final int threshold;
+
+    private final AtomicInteger errorCounter = new AtomicInteger();
+
+    private volatile boolean triggered;
+
+    public FailFastController(int threshold) {
+        this.threshold = Math.max(threshold, 1);
+    }
+
+    /**
+     * Determines whether the threshold has been reached
+     *
+     * @return True if the remaining files should be skipped
+     */
+    public boolean isTriggered() {
+        return triggered;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Only accept the files when the threshold has not been reached
+     *
+     * @return True if the file should be processed
+     */
+    @Override
+    public boolean accept(String uri) {
+        return !triggered;
+    }
+
+    @Override
+    public void addError(AuditEvent event) {
+        if (event.getSeverityLevel() == SeverityLevel.ERROR
+                && errorCounter.incrementAndGet() >= threshold) {
+            triggered = true;
+        }
+    }
+
+    @Override
+    public void auditStarted(AuditEvent event) {
+        // do nothing
+    }
+
+    @Override
+    public void auditFinished(AuditEvent event) {
+        // do nothing
+    }
+
+    @Override
+    public void fileStarted(AuditEvent event) {
+        // do nothing
+    }
+
+    @Override
+    public void fileFinished(AuditEvent event) {
+        // do nothing
+    }
+
+    @Override
+    public void addException(AuditEvent event, Throwable throwable) {
+        // do nothing
+    }
+
+}
@@ -0,0 +1,108 @@
+package io.github.yangziwen.checkstyle.checker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+
+/**
+ * The file buffering audit listener
+ * collect the events of the file under processing by one worker,
+ * and forward them to the shared listener as a whole when the file is finished,
+ * so that the events of different files never interleave in the output
+ * this listener itself is not thread-safe, each worker should own an instance
+ *
+ * @author yangziwen
+ */
+public class FileBufferingAuditListener implements AuditListener {
+
+    private final AuditListener delegate;
+
+    private final CheckTimingCache timingCache;
+
+    private final List<AuditEvent> errorEvents = new ArrayList<>();
+
+    private final List<AuditEvent> exceptionEvents = new ArrayList<>();
+
+    private final List<Throwable> exceptions = new ArrayList<>();
+
+    private AuditEvent fileStartedEvent;
+
+    private long fileStartedNanos;
+
+    private volatile boolean detached;
+
+    public FileBufferingAuditListener(AuditListener delegate, CheckTimingCache timingCache) {
+        this.delegate = delegate;
+        this.timingCache = timingCache;
+    }
+
+    /**
+     * the audit is started only once by the scheduler
+     */
+    @Override
+    public void auditStarted(AuditEvent event) {
+        // do nothing
+    }
+
+    /**
+     * the audit is finished only once by the scheduler
+     */
+    @Override
+    public void auditFinished(AuditEvent event) {
+        // do nothing
+    }
+
+    @Override
+    public void fileStarted(AuditEvent event) {
+        fileStartedEvent = event;
+        fileStartedNanos = System.nanoTime();
+    }
+
+    @Override
+    public void fileFinished(AuditEvent event) {
+        if (timingCache != null && event.getFileName() != null) {
+            timingCache.put(event.getFileName(), System.nanoTime() - fileStartedNanos);
+        }
+        synchronized (delegate) {
+            if (detached) {
+                return;
+            }
+            if (fileStartedEvent != null) {
+                delegate.fileStarted(fileStartedEvent);
+            }
+            errorEvents.forEach(delegate::addError);
+            for (int i = 0; i < exceptionEvents.size(); i++) {
+                delegate.addException(exceptionEvents.get(i), exceptions.get(i));
+            }
+            delegate.fileFinished(event);
+        }
+        fileStartedEvent = null;
+        errorEvents.clear();
+        exceptionEvents.clear();
+        exceptions.clear();
+    }
+
+    /**
+     * stop forwarding the events to the shared listener,
+     * the file under processing will never be flushed after this method returns
+     */
+    public void detach() {
+        synchronized (delegate) {
+            detached = true;
+        }
+    }
+
+    @Override
+    public void addError(AuditEvent event) {
+        errorEvents.add(event);
+    }
+
+    @Override
+    public void addException(AuditEvent event, Throwable throwable) {
+        exceptionEvents.add(event);
+        exceptions.add(throwable);
+    }
+
+}
@@ -0,0 +1,92 @@
+package io.github.yangziwen.checkstyle.checker;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import io.github.yangziwen.checkstyle.diff.DiffEntryWrapper;
+
+/**
+ * The file cost estimator
+ * estimate the time (in nanoseconds) needed to check a file,
+ * using the timing of the previous run if available, otherwise the file size and the edit count
+ *
+ * @author yangziwen
+ */
+public class FileCostEstimator {
+
+    /** the estimated checking speed when there is no timing history */
+    public static final long DEFAULT_NANOS_PER_BYTE = 1000L;
+
+    /** the extra bytes counted for each edit, since more edits produce more events to filter */
+    static final long BYTES_PER_EDIT = 64L;
+
+    private final CheckTimingCache timingCache;
+
+    private final Map<String, DiffEntryWrapper> diffEntryMap;
+
+    private final long nanosPerByte;
+
+    public FileCostEstimator(
+            CheckTimingCache timingCache,
+            Collection<DiffEntryWrapper> diffEntries,
+            Collection<File> files) {
+        this.timingCache = timingCache;
+        this.diffEntryMap = diffEntries == null
+                ? Collections.emptyMap()
+                : diffEntries.stream().collect(Collectors.toMap(
+                        DiffEntryWrapper::getAbsoluteNewPath, Function.identity(), (e1, e2) -> e2));
+        this.nanosPerByte = calculateNanosPerByte(files);
+    }
+
+    /**
+     * estimate the cost of checking the file
+     *
+     * @param file  the file to check
+     * @return the estimated cost in nanoseconds
+     */
+    public long estimate(File file) {
+        String fileName = file.getAbsolutePath();
+        if (timingCache != null) {
+            Long nanos = timingCache.get(fileName);
+            if (nanos != null) {
+                return nanos;
+            }
+        }
+        return estimateBytes(file) * nanosPerByte;
+    }
+
+    private long estimateBytes(File file) {
+        DiffEntryWrapper diffEntry = diffEntryMap.get(file.getAbsolutePath());
+        int editCount = diffEntry != null && diffEntry.getEditList() != null
+                ? diffEntry.getEditList().size()
+                : 0;
+        return file.length() + editCount * BYTES_PER_EDIT;
+    }
+
+    /**
+     * calibrate the checking speed from the files which have been timed in the previous run
+     */
+    private long calculateNanosPerByte(Collection<File> files) {
+        if (timingCache == null || timingCache.isEmpty() || files == null) {
+            return DEFAULT_NANOS_PER_BYTE;
+        }
+        long totalNanos = 0L;
+        long totalBytes = 0L;
+        for (File file : files) {
+            Long nanos = timingCache.get(file.getAbsolutePath());
+            if (nanos != null) {
+                totalNanos += nanos;
+                totalBytes += estimateBytes(file);
+            }
+        }
+        if (totalBytes == 0L || totalNanos == 0L) {
+            return DEFAULT_NANOS_PER_BYTE;
+        }
+        return Math.max(totalNanos / totalBytes, 1L);
+    }
+
+}
@@ -0,0 +1,155 @@
+package io.github.yangziwen.checkstyle.checker;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.puppycrawl.tools.checkstyle.Definitions;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.RootModule;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+/**
+ * The file timeout guard
+ * run the files of one worker one by one on a dedicated daemon thread under the time limit,
+ * the checks could not be stopped once they hang (e.g. a catastrophic regex),
+ * so the thread and the root module of a timed out file are abandoned with their events discarded,
+ * and a synthetic error is reported for the file instead, then the remaining files go on with fresh ones
+ * this guard itself is not thread-safe, each worker should own an instance
+ *
+ * @author yangziwen
+ */
+class FileTimeoutGuard {
+
+    static final String TIMEOUT_MESSAGE_KEY = "check.timeout";
+
+    static final String TIMEOUT_MESSAGE = "Check timed out after {0} ms, the file is skipped";
+
+    private final RootModuleFactory rootModuleFactory;
+
+    private final AuditListener listener;
+
+    private final CheckTimingCache timingCache;
+
+    private final FailFastController failFastController;
+
+    private final long timeoutMillis;
+
+    private ExecutorService executor;
+
+    private RootModule rootModule;
+
+    private FileBufferingAuditListener bufferingListener;
+
+    FileTimeoutGuard(
+            RootModuleFactory rootModuleFactory,
+            AuditListener listener,
+            CheckTimingCache timingCache,
+            FailFastController failFastController,
+            long timeoutMillis) {
+        this.rootModuleFactory = rootModuleFactory;
+        this.listener = listener;
+        this.timingCache = timingCache;
+        this.failFastController = failFastController;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * process the files one by one
+     *
+     * @param files     the files to process
+     * @return the number of errors found, including the timed out files
+     * @throws CheckstyleException  throw CheckstyleException when error happens in the root module
+     */
+    int process(List<File> files) throws CheckstyleException {
+        int errorCount = 0;
+        for (File file : files) {
+            if (failFastController != null && failFastController.isTriggered()) {
+                break;
+            }
+            errorCount += processFile(file);
+        }
+        return errorCount;
+    }
+
+    private int processFile(File file) throws CheckstyleException {
+        if (rootModule == null) {
+            start();
+        }
+        RootModule module = rootModule;
+        Future<Integer> future = executor.submit(() -> module.process(Collections.singletonList(file)));
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            abandon();
+            reportTimeout(file);
+            return 1;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CheckstyleException("interrupted while checking " + file, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CheckstyleException) {
+                throw (CheckstyleException) cause;
+            }
+            throw new CheckstyleException("error happened when checking " + file, cause);
+        }
+    }
+
+    private void start() throws CheckstyleException {
+        rootModule = rootModuleFactory.create();
+        bufferingListener = new FileBufferingAuditListener(listener, timingCache);
+        rootModule.addListener(bufferingListener);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "diff-checkstyle-file-checker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * the root module is not destroyed, since it may still be used by the hanging thread
+     */
+    private void abandon() {
+        bufferingListener.detach();
+        executor.shutdownNow();
+        executor = null;
+        rootModule = null;
+        bufferingListener = null;
+    }
+
+    private void reportTimeout(File file) {
+        String fileName = file.getAbsolutePath();
+        LocalizedMessage message = new LocalizedMessage(1, 0,
+                Definitions.CHECKSTYLE_BUNDLE, TIMEOUT_MESSAGE_KEY, new Object[] {String.valueOf(timeoutMillis)},
+                SeverityLevel.ERROR, null, FileTimeoutGuard.class, TIMEOUT_MESSAGE);
+        AuditEvent event = new AuditEvent(this, fileName, message);
+        synchronized (listener) {
+            listener.fileStarted(new AuditEvent(this, fileName));
+            listener.addError(event);
+            listener.fileFinished(new AuditEvent(this, fileName));
+        }
+        if (failFastController != null) {
+            failFastController.addError(event);
+        }
+    }
+
+    void close() {
+        if (rootModule != null) {
+            executor.shutdownNow();
+            rootModule.destroy();
+        }
+    }
+
+}
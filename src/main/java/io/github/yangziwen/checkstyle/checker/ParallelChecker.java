@@ -0,0 +1,133 @@
+package io.github.yangziwen.checkstyle.checker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.RootModule;
+
+import lombok.Builder;
+
+/**
+ * The parallel checker
+ * run the scheduled batches on a work-stealing pool,
+ * each worker thread owns its own root module (and therefore its own TreeWalker),
+ * and the events are forwarded to the shared listener file by file,
+ * the files are run under the time limit by a FileTimeoutGuard if it is specified
+ *
+ * @author yangziwen
+ */
+@Builder
+public class ParallelChecker {
+
+    private RootModuleFactory rootModuleFactory;
+
+    private AuditListener listener;
+
+    private int threadsNumber;
+
+    private CheckTimingCache timingCache;
+
+    /** the batches not started yet will be cancelled once the fail fast controller is triggered */
+    private FailFastController failFastController;
+
+    /** the time limit to check a single file in milliseconds, unlimited if not positive */
+    private long fileTimeoutMillis;
+
+    /**
+     * process the batches with the worker pool
+     *
+     * @param batches   the scheduled batches
+     * @return the number of errors found
+     * @throws CheckstyleException  throw CheckstyleException when error happens in any worker
+     */
+    public int process(List<CheckBatch> batches) throws CheckstyleException {
+        AtomicInteger errorCounter = new AtomicInteger();
+        Queue<RootModule> rootModules = new ConcurrentLinkedQueue<>();
+        ThreadLocal<RootModule> localRootModule = new ThreadLocal<>();
+        Queue<FileTimeoutGuard> guards = new ConcurrentLinkedQueue<>();
+        ThreadLocal<FileTimeoutGuard> localGuard = new ThreadLocal<>();
+        ExecutorService executor = Executors.newWorkStealingPool(threadsNumber);
+        listener.auditStarted(new AuditEvent(this));
+        try {
+            List<Future<?>> futures = new ArrayList<>(batches.size());
+            for (CheckBatch batch : batches) {
+                futures.add(executor.submit(() -> {
+                    if (isFailFastTriggered()) {
+                        return null;
+                    }
+                    if (fileTimeoutMillis > 0) {
+                        FileTimeoutGuard guard = localGuard.get();
+                        if (guard == null) {
+                            guard = new FileTimeoutGuard(rootModuleFactory, listener,
+                                    timingCache, failFastController, fileTimeoutMillis);
+                            guards.add(guard);
+                            localGuard.set(guard);
+                        }
+                        errorCounter.addAndGet(guard.process(batch.getFiles()));
+                        return null;
+                    }
+                    RootModule rootModule = localRootModule.get();
+                    if (rootModule == null) {
+                        rootModule = createWorkerRootModule();
+                        rootModules.add(rootModule);
+                        localRootModule.set(rootModule);
+                    }
+                    errorCounter.addAndGet(rootModule.process(batch.getFiles()));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                if (isFailFastTriggered()) {
+                    // the running batches will skip their remaining files
+                    futures.forEach(f -> f.cancel(false));
+                }
+                waitFor(future);
+            }
+        } finally {
+            executor.shutdownNow();
+            rootModules.forEach(RootModule::destroy);
+            guards.forEach(FileTimeoutGuard::close);
+        }
+        listener.auditFinished(new AuditEvent(this));
+        return errorCounter.get();
+    }
+
+    private boolean isFailFastTriggered() {
+        return failFastController != null && failFastController.isTriggered();
+    }
+
+    private RootModule createWorkerRootModule() throws CheckstyleException {
+        RootModule rootModule = rootModuleFactory.create();
+        rootModule.addListener(new FileBufferingAuditListener(listener, timingCache));
+        return rootModule;
+    }
+
+    private static void waitFor(Future<?> future) throws CheckstyleException {
+        try {
+            future.get();
+        } catch (CancellationException e) {
+            // cancelled by the fail fast controller
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CheckstyleException("interrupted while waiting for the check workers", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CheckstyleException) {
+                throw (CheckstyleException) cause;
+            }
+            throw new CheckstyleException("error happened in the check workers", cause);
+        }
+    }
+
+}
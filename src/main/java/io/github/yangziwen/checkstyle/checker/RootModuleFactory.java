@@ -0,0 +1,23 @@
+package io.github.yangziwen.checkstyle.checker;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.RootModule;
+
+/**
+ * The root module factory
+ * create a fully configured root module for each worker
+ *
+ * @author yangziwen
+ */
+@FunctionalInterface
+public interface RootModuleFactory {
+
+    /**
+     * create a new configured root module
+     *
+     * @return the root module
+     * @throws CheckstyleException  throw CheckstyleException when failed to configure the module
+     */
+    RootModule create() throws CheckstyleException;
+
+}
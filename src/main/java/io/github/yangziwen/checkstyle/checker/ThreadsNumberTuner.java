@@ -0,0 +1,109 @@
+package io.github.yangziwen.checkstyle.checker;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The threads number tuner
+ * pick the number of threads from the amount of the work and the cpus available to the process,
+ * the cpu quota of the cgroup (both v1 and v2) is respected, so a container is not oversubscribed,
+ * and a small amount of work stays single-threaded,
+ * since each extra checker thread costs the startup of its own executor and configured root module
+ *
+ * @author yangziwen
+ */
+public class ThreadsNumberTuner {
+
+    /** the min number of files worth an extra checker thread */
+    static final int MIN_FILES_PER_THREAD = 4;
+
+    /** the min total size of files worth an extra checker thread */
+    static final long MIN_BYTES_PER_THREAD = 256L * 1024;
+
+    private static final Path DEFAULT_CGROUP_ROOT = Paths.get("/sys/fs/cgroup");
+
+    private ThreadsNumberTuner() {
+    }
+
+    /**
+     * @return the number of cpus available to the process, limited by the cpu quota of the cgroup if any
+     */
+    public static int getAvailableCpus() {
+        return getAvailableCpus(Runtime.getRuntime().availableProcessors(), DEFAULT_CGROUP_ROOT);
+    }
+
+    static int getAvailableCpus(int availableProcessors, Path cgroupRoot) {
+        int cpuLimit = readCgroupCpuLimit(cgroupRoot);
+        return Math.max(cpuLimit > 0 ? Math.min(cpuLimit, availableProcessors) : availableProcessors, 1);
+    }
+
+    /**
+     * tune the number of the checker threads
+     *
+     * @param fileCount     the number of files to check
+     * @param totalBytes    the total size of the files to check
+     * @return the number of threads, which is 1 for a small amount of files
+     */
+    public static int tuneCheckerThreads(int fileCount, long totalBytes) {
+        return tuneCheckerThreads(fileCount, totalBytes, getAvailableCpus());
+    }
+
+    static int tuneCheckerThreads(int fileCount, long totalBytes, int availableCpus) {
+        long threads = Math.min(fileCount / MIN_FILES_PER_THREAD, totalBytes / MIN_BYTES_PER_THREAD);
+        return (int) Math.max(Math.min(threads, availableCpus), 1L);
+    }
+
+    /**
+     * read the cpu limit of the cgroup, the quota divided by the period and rounded up
+     *
+     * @param cgroupRoot    the mount point of the cgroup file system
+     * @return the cpu limit, or 0 if unlimited or unknown
+     */
+    static int readCgroupCpuLimit(Path cgroupRoot) {
+        // cgroup v2, e.g. "200000 100000" or "max 100000"
+        List<String> cpuMax = readLines(cgroupRoot.resolve("cpu.max"));
+        if (!cpuMax.isEmpty()) {
+            String[] values = cpuMax.get(0).trim().split("\\s+");
+            return values.length == 2 ? divideCeil(parseLong(values[0]), parseLong(values[1])) : 0;
+        }
+        // cgroup v1, the quota is -1 if unlimited
+        List<String> quota = readLines(cgroupRoot.resolve("cpu").resolve("cpu.cfs_quota_us"));
+        List<String> period = readLines(cgroupRoot.resolve("cpu").resolve("cpu.cfs_period_us"));
+        if (quota.isEmpty() || period.isEmpty()) {
+            return 0;
+        }
+        return divideCeil(parseLong(quota.get(0).trim()), parseLong(period.get(0).trim()));
+    }
+
+    private static int divideCeil(long quota, long period) {
+        if (quota <= 0 || period <= 0) {
+            return 0;
+        }
+        return (int) Math.min((quota + period - 1) / period, Integer.MAX_VALUE);
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            // "max" stands for unlimited
+            return -1L;
+        }
+    }
+
+    private static List<String> readLines(Path file) {
+        try {
+            return Files.isReadable(file)
+                    ? Files.readAllLines(file, StandardCharsets.UTF_8)
+                    : Collections.emptyList();
+        } catch (IOException | SecurityException e) {
+            return Collections.emptyList();
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package io.github.yangziwen.checkstyle.diff;
+
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.diff.SequenceComparator;
+
+/**
+ * The budgeted comparator
+ * delegate to the raw text comparator and abort the diff algorithm once the deadline is passed,
+ * the diff algorithms of jgit could not be interrupted, but they call the comparator all the time
+ *
+ * @author yangziwen
+ */
+class BudgetedComparator extends SequenceComparator<RawText> {
+
+    /** the clock is checked once every 4096 calls */
+    private static final int CHECK_INTERVAL_MASK = 0xFFF;
+
+    private final RawTextComparator delegate;
+
+    private final long deadline;
+
+    private int calls;
+
+    BudgetedComparator(RawTextComparator delegate, long budgetMillis) {
+        this.delegate = delegate;
+        this.deadline = System.nanoTime() + budgetMillis * 1000000L;
+    }
+
+    @Override
+    public boolean equals(RawText a, int ai, RawText b, int bi) {
+        tick();
+        return delegate.equals(a, ai, b, bi);
+    }
+
+    @Override
+    public int hash(RawText seq, int ptr) {
+        tick();
+        return delegate.hash(seq, ptr);
+    }
+
+    @Override
+    public Edit reduceCommonStartEnd(RawText a, RawText b, Edit e) {
+        return delegate.reduceCommonStartEnd(a, b, e);
+    }
+
+    private void tick() {
+        if ((++calls & CHECK_INTERVAL_MASK) == 0 && System.nanoTime() > deadline) {
+            throw new BudgetExceededException();
+        }
+    }
+
+    /**
+     * The exception thrown to unwind the diff algorithm when the budget is exceeded
+     */
+    static class BudgetExceededException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        BudgetExceededException() {
+            super(null, null, false, false);
+        }
+
+    }
+
+}
@@ -1,10 +1,10 @@
 package io.github.yangziwen.checkstyle.diff;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -18,22 +18,25 @@ import org.eclipse.jgit.diff.DiffAlgorithm;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.Edit;
 import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.MyersDiff;
 import org.eclipse.jgit.diff.RawText;
 import org.eclipse.jgit.diff.RawTextComparator;
 import org.eclipse.jgit.diff.RenameDetector;
 import org.eclipse.jgit.dircache.DirCache;
 import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
-import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.TreeWalk;
-import org.eclipse.jgit.treewalk.filter.OrTreeFilter;
-import org.eclipse.jgit.treewalk.filter.PathFilter;
-import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+
+import io.github.yangziwen.checkstyle.diff.FileClassifier.FileType;
 
 import lombok.Builder;
 import lombok.Getter;
@@ -48,6 +51,8 @@ import lombok.Getter;
 @Builder
 public class DiffCalculator {
 
+    public static final long DEFAULT_DIFF_BUDGET_MILLIS = 2000L;
+
     private DiffAlgorithm diffAlgorithm;
 
     @Builder.Default
@@ -56,6 +61,28 @@ public class DiffCalculator {
     @Builder.Default
     private int bigFileThreshold = DiffHelper.DEFAULT_BIG_FILE_THRESHOLD;
 
+    /**
+     * prefetch the blobs of the commit diff in the order of pack offsets, disabled if null
+     */
+    private ObjectPrefetcher objectPrefetcher;
+
+    /**
+     * the time budget to diff a single file in milliseconds, unlimited if not positive
+     */
+    @Builder.Default
+    private long diffBudgetMillis = DEFAULT_DIFF_BUDGET_MILLIS;
+
+    /**
+     * drop the binary and generated files before loading their contents, disabled if null
+     */
+    @Builder.Default
+    private FileClassifier fileClassifier = FileClassifier.builder().build();
+
+    /**
+     * diff against the merge base of the old revision and the new revision, disabled if null
+     */
+    private MergeBaseResolver mergeBaseResolver;
+
     /**
      * calculate the diff between the old revision and the new revision
      *
@@ -72,13 +99,22 @@ public class DiffCalculator {
             String newRev,
             boolean includeStagedCodes) throws Exception {
 
-        try (Git git = Git.open(repoDir);
+        try (Repository repository = DiffHelper.openRepository(repoDir);
+                Git git = new Git(repository);
                 ObjectReader reader = git.getRepository().newObjectReader();
                 RevWalk rw = new RevWalk(git.getRepository())) {
 
             RevCommit oldCommit = rw.parseCommit(git.getRepository().resolve(oldRev));
             RevCommit newCommit = rw.parseCommit(git.getRepository().resolve(newRev));
 
+            if (mergeBaseResolver != null) {
+                RevCommit mergeBase = mergeBaseResolver.resolve(git.getRepository(), rw, oldCommit, newCommit);
+                if (mergeBase == null) {
+                    throw new IllegalStateException("there is no merge base between " + oldRev + " and " + newRev);
+                }
+                oldCommit = mergeBase;
+            }
+
             List<DiffEntryWrapper> wrappers = new ArrayList<>();
 
             if (includeStagedCodes) {
@@ -121,21 +157,50 @@ public class DiffCalculator {
                 .call();
         detector.reset();
         detector.addAll(entries);
-        entries = detector.compute();
+        entries = detector.compute().stream()
+                .filter(entry -> !excludedPathSet.contains(entry.getNewPath()))
+                .collect(Collectors.toList());
+
+        if (fileClassifier != null) {
+            entries = filterSourceEntries(entries, fileClassifier.open(git.getRepository(), reader, newCommit.getTree()));
+        }
+
+        Map<ObjectId, byte[]> prefetchedContentMap = objectPrefetcher != null
+                ? objectPrefetcher.prefetch(git.getRepository(), reader, entries, bigFileThreshold)
+                : Collections.emptyMap();
+
+        SharedTextCache textCache = new SharedTextCache(entries);
 
         return entries.stream()
-                .filter(entry -> !excludedPathSet.contains(entry.getNewPath()))
                 .map(entry -> {
-                    RawText oldText = newRawText(entry, DiffEntry.Side.OLD, reader);
-                    RawText newText = newRawText(entry, DiffEntry.Side.NEW, reader);
-                    return DiffEntryWrapper.builder()
+                    RawText oldText = newRawText(entry, DiffEntry.Side.OLD, reader, prefetchedContentMap, textCache);
+                    RawText newText = newRawText(entry, DiffEntry.Side.NEW, reader, prefetchedContentMap, textCache);
+                    return calculateEdits(DiffEntryWrapper.builder()
                             .gitDir(repoDir)
-                            .diffEntry(entry)
-                            .editList(calculateEditList(oldText, newText))
+                            .newCommitId(newCommit.name())
+                            .diffEntry(entry), oldText, newText)
                             .build();
                 }).collect(Collectors.toList());
     }
 
+    private List<DiffEntry> filterSourceEntries(List<DiffEntry> entries, FileClassifier.Session session)
+            throws IOException {
+        List<DiffEntry> sourceEntries = new ArrayList<>(entries.size());
+        for (DiffEntry entry : entries) {
+            if (entry.getChangeType() == DiffEntry.ChangeType.DELETE
+                    || !isBlob(entry.getNewMode())
+                    || session.classify(entry.getNewPath(), entry.getNewId().toObjectId()) == FileType.SOURCE) {
+                sourceEntries.add(entry);
+            }
+        }
+        return sourceEntries;
+    }
+
+    /**
+     * calculate the diff between the old commit and the staging area,
+     * the commit tree and the dir cache are walked together in a single pass filtered by the staged paths,
+     * and the blobs are loaded lazily one path at a time
+     */
     private List<DiffEntryWrapper> doCalculateIndexedDiff(
             RevCommit oldCommit,
             ObjectReader reader,
@@ -145,81 +210,101 @@ public class DiffCalculator {
         Status status = git.status().call();
         indexedPathSet.addAll(status.getAdded());
         indexedPathSet.addAll(status.getChanged());
-        Map<String, BlobWrapper> indexedFileContentMap = getIndexedFileContentMap(git, indexedPathSet);
-        Map<String, BlobWrapper> oldRevFileContentMap = getRevFileContentMap(git, oldCommit, indexedPathSet, reader);
-        return indexedPathSet.stream()
-                .map(filePath -> {
-                    BlobWrapper oldBlob = oldRevFileContentMap.get(filePath);
-                    RawText oldText = oldBlob != null ? new RawText(oldBlob.getContent()) : RawText.EMPTY_TEXT;
-                    RawText newText = new RawText(indexedFileContentMap.get(filePath).getContent());
-                    DiffEntry entry = oldBlob == null
-                            ? DiffHelper.createAddDiffEntry(filePath, oldCommit)
-                            : DiffHelper.createModifyDiffEntry(filePath);
-                    return DiffEntryWrapper.builder()
-                            .gitDir(repoDir)
-                            .diffEntry(entry)
-                            .editList(calculateEditList(oldText, newText))
-                            .build();
-                })
-                .collect(Collectors.toList());
-    }
-
-    private Map<String, BlobWrapper> getRevFileContentMap(
-            Git git, RevCommit commit, Set<String> filePathSet, ObjectReader reader) throws Exception {
-        if (CollectionUtils.isEmpty(filePathSet)) {
-            return Collections.emptyMap();
-        }
-        TreeFilter filter = filePathSet.size() > 1
-                ? OrTreeFilter.create(filePathSet.stream()
-                        .map(PathFilter::create)
-                        .collect(Collectors.toList()))
-                : PathFilter.create(filePathSet.iterator().next());
-         return getContentMapByTreeAndFilter(git, new CanonicalTreeParser(null, reader, commit.getTree()), filter);
-    }
-
-    private Map<String, BlobWrapper> getIndexedFileContentMap(Git git, Set<String> filePathSet) throws Exception {
-        if (CollectionUtils.isEmpty(filePathSet)) {
-            return Collections.emptyMap();
+        if (CollectionUtils.isEmpty(indexedPathSet)) {
+            return Collections.emptyList();
         }
+        List<DiffEntryWrapper> wrappers = new ArrayList<>();
         DirCache index = git.getRepository().readDirCache();
-        TreeFilter filter = filePathSet.size() > 1
-                ? OrTreeFilter.create(filePathSet.stream()
-                        .map(PathFilter::create)
-                        .collect(Collectors.toList()))
-                : PathFilter.create(filePathSet.iterator().next());
-        return getContentMapByTreeAndFilter(git, new DirCacheIterator(index), filter);
-    }
-
-    private Map<String, BlobWrapper> getContentMapByTreeAndFilter(
-            Git git, AbstractTreeIterator tree, TreeFilter filter) throws Exception {
-        Map<String, BlobWrapper> contentMap = new LinkedHashMap<>();
-        try (TreeWalk treeWalk = new TreeWalk(git.getRepository())) {
-            treeWalk.addTree(tree);
+        FileClassifier.Session session = fileClassifier != null
+                ? fileClassifier.open(git.getRepository(), reader, index)
+                : null;
+        try (TreeWalk treeWalk = new TreeWalk(git.getRepository(), reader)) {
+            int oldTreeIndex = treeWalk.addTree(new CanonicalTreeParser(null, reader, oldCommit.getTree()));
+            int indexTreeIndex = treeWalk.addTree(new DirCacheIterator(index));
             treeWalk.setRecursive(true);
-            treeWalk.setFilter(filter);
+            treeWalk.setFilter(PathFilterGroup.createFromStrings(indexedPathSet));
             while (treeWalk.next()) {
-                ObjectId objectId = treeWalk.getObjectId(0);
-                ObjectLoader loader = git.getRepository().open(objectId);
-                BlobWrapper blobWrapper = BlobWrapper.builder()
-                        .blobId(objectId)
-                        .content(loader.getBytes())
-                        .build();
-                contentMap.put(treeWalk.getPathString(), blobWrapper);
+                String filePath = treeWalk.getPathString();
+                if (!indexedPathSet.contains(filePath) || !isBlob(treeWalk.getFileMode(indexTreeIndex))) {
+                    continue;
+                }
+                ObjectId newId = treeWalk.getObjectId(indexTreeIndex);
+                if (session != null && session.classify(filePath, newId) != FileType.SOURCE) {
+                    continue;
+                }
+                boolean added = !isBlob(treeWalk.getFileMode(oldTreeIndex));
+                RawText oldText = added
+                        ? RawText.EMPTY_TEXT
+                        : new RawText(DiffHelper.open(reader, treeWalk.getObjectId(oldTreeIndex), bigFileThreshold));
+                RawText newText = new RawText(DiffHelper.open(reader, newId, bigFileThreshold));
+                DiffEntry entry = added
+                        ? DiffHelper.createAddDiffEntry(filePath, newId)
+                        : DiffHelper.createModifyDiffEntry(filePath);
+                wrappers.add(calculateEdits(DiffEntryWrapper.builder()
+                        .gitDir(repoDir)
+                        .diffEntry(entry), oldText, newText)
+                        .build());
             }
         }
-        return contentMap;
+        return wrappers;
+    }
+
+    private static boolean isBlob(FileMode mode) {
+        return mode.getObjectType() == Constants.OBJ_BLOB;
     }
 
-    private RawText newRawText(DiffEntry entry, DiffEntry.Side side, ObjectReader reader) {
+    private RawText newRawText(
+            DiffEntry entry,
+            DiffEntry.Side side,
+            ObjectReader reader,
+            Map<ObjectId, byte[]> prefetchedContentMap,
+            SharedTextCache textCache) {
+        return textCache.get(entry, side, id -> {
+            // drop the content once used, so it is collected soon after the edits are calculated
+            byte[] content = id != null ? prefetchedContentMap.remove(id) : null;
+            if (content != null) {
+                return new RawText(content);
+            }
+            try {
+                return new RawText(DiffHelper.open(entry, side, reader, bigFileThreshold));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * calculate the edits with the diff algorithm within the budget,
+     * fall back to the myers diff algorithm and then the whole file replace edit when the budget is exceeded
+     */
+    private DiffEntryWrapper.DiffEntryWrapperBuilder calculateEdits(
+            DiffEntryWrapper.DiffEntryWrapperBuilder builder,
+            RawText oldText,
+            RawText newText) {
+        if (diffBudgetMillis <= 0) {
+            return builder.editList(toEditList(diffAlgorithm.diff(comparator, oldText, newText)));
+        }
+        try {
+            return builder.editList(toEditList(diffAlgorithm.diff(
+                    new BudgetedComparator(comparator, diffBudgetMillis), oldText, newText)));
+        } catch (BudgetedComparator.BudgetExceededException e) {
+            // fall through to the cheaper algorithms
+        }
         try {
-            return new RawText(DiffHelper.open(entry, side, reader, bigFileThreshold));
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+            return builder
+                    .editList(toEditList(MyersDiff.INSTANCE.diff(
+                            new BudgetedComparator(comparator, diffBudgetMillis), oldText, newText)))
+                    .diffFallback(DiffFallback.MYERS);
+        } catch (BudgetedComparator.BudgetExceededException e) {
+            List<Edit> editList = new ArrayList<>();
+            editList.add(new Edit(0, oldText.size(), 0, newText.size()));
+            return builder
+                    .editList(editList)
+                    .diffFallback(DiffFallback.WHOLE_FILE);
         }
     }
 
-    private List<Edit> calculateEditList(RawText oldText, RawText newText) {
-        EditList edits = diffAlgorithm.diff(comparator, oldText, newText);
+    private List<Edit> toEditList(EditList edits) {
         List<Edit> editList = new ArrayList<Edit>();
         for (Edit edit : edits) {
             editList.add(edit);
@@ -17,15 +17,32 @@ import lombok.Getter;
  * @author yangziwen
  */
 @Getter
-@Builder
+@Builder(toBuilder = true)
 public class DiffEntryWrapper {
 
     private File gitDir;
 
+    /**
+     * the path of the submodule holding the file relative to the checked repository, ending with '/',
+     * empty if the file belongs to the checked repository itself
+     */
+    @Builder.Default
+    private String pathPrefix = "";
+
+    /**
+     * the commit id of the new side, null if the new side is the staging area
+     */
+    private String newCommitId;
+
     private DiffEntry diffEntry;
 
     private List<Edit> editList;
 
+    /**
+     * the fallback used since the diff of the file exceeds the budget, null if not downgraded
+     */
+    private DiffFallback diffFallback;
+
     /**
      * Determines whether the file is deleted
      *
@@ -45,7 +62,7 @@ public class DiffEntryWrapper {
     }
 
     public String getNewPath() {
-        return diffEntry.getNewPath();
+        return pathPrefix + diffEntry.getNewPath();
     }
 
     public String getAbsoluteNewPath() {
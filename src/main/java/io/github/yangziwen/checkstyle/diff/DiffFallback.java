@@ -0,0 +1,17 @@
+package io.github.yangziwen.checkstyle.diff;
+
+/**
+ * The diff fallback
+ * the way the edits of a file are calculated after the primary diff algorithm exceeds the budget
+ *
+ * @author yangziwen
+ */
+public enum DiffFallback {
+
+    /** the edits are calculated by the myers diff algorithm */
+    MYERS,
+
+    /** the whole file is treated as a single replace edit */
+    WHOLE_FILE
+
+}
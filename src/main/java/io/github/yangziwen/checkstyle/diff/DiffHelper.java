@@ -1,5 +1,7 @@
 package io.github.yangziwen.checkstyle.diff;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.Collection;
@@ -16,6 +18,10 @@ import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache.FileKey;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FS;
 
 /**
  * The diff helper
@@ -42,7 +48,8 @@ public class DiffHelper {
     private DiffHelper() {}
 
     /**
-     * read content from the diff entry
+     * read content from the diff entry,
+     * the content might be shared with the object loader of jgit instead of a copy, so it must not be modified
      *
      * @param entry
      * @param side
@@ -91,7 +98,7 @@ public class DiffHelper {
         ContentSource cs = ContentSource.create(reader);
         try {
             ObjectLoader ldr = new ContentSource.Pair(cs, cs).open(side, entry);
-            return ldr.getBytes(bigFileThreshold);
+            return ldr.getCachedBytes(bigFileThreshold);
 
         } catch (LargeObjectException.ExceedsLimit overLimit) {
             return BINARY;
@@ -108,6 +115,34 @@ public class DiffHelper {
         }
     }
 
+    /**
+     * read content of the blob, the blob larger than the threshold is treated as binary,
+     * the content might be shared with the object loader of jgit instead of a copy, so it must not be modified
+     *
+     * @param reader
+     * @param id
+     * @param bigFileThreshold
+     * @return
+     * @throws Exception
+     */
+    public static byte[] open(
+            ObjectReader reader,
+            AnyObjectId id,
+            int bigFileThreshold) throws Exception {
+        try {
+            return reader.open(id, Constants.OBJ_BLOB).getCachedBytes(bigFileThreshold);
+
+        } catch (LargeObjectException.ExceedsLimit overLimit) {
+            return BINARY;
+
+        } catch (LargeObjectException.ExceedsByteArrayLimit overLimit) {
+            return BINARY;
+
+        } catch (LargeObjectException.OutOfMemory tooBig) {
+            return BINARY;
+        }
+    }
+
     private static byte[] writeGitLinkText(AbbreviatedObjectId id) {
         if (ObjectId.zeroId().equals(id.toObjectId())) {
             return EMPTY;
@@ -125,6 +160,23 @@ public class DiffHelper {
         }
     }
 
+    /**
+     * open the repository of the directory,
+     * a work tree whose '.git' is a file pointing to the git directory, as the submodules have,
+     * is opened through that file, which is not followed by {@link org.eclipse.jgit.api.Git#open(File)}
+     *
+     * @param repoDir   the work tree or the git directory
+     * @return the repository, which should be closed by the caller
+     * @throws IOException  throw IOException when the repository is not found
+     */
+    public static Repository openRepository(File repoDir) throws IOException {
+        FileRepositoryBuilder builder = new FileRepositoryBuilder().setMustExist(true);
+        if (new File(repoDir, Constants.DOT_GIT).isFile()) {
+            return builder.setWorkTree(repoDir).build();
+        }
+        return builder.setGitDir(FileKey.lenient(repoDir, FS.DETECTED).getFile()).build();
+    }
+
     public static DiffEntry createAddDiffEntry(String path, AnyObjectId id) {
         try {
             return (DiffEntry) DIFF_ENTRY_ADD_METHOD.invoke(null, path, id);
@@ -141,6 +193,16 @@ public class DiffHelper {
         }
     }
 
+    public static DiffEntry createModifyDiffEntry(String path, AnyObjectId newId) {
+        DiffEntry entry = createModifyDiffEntry(path);
+        try {
+            DIFF_ENTRY_NEW_ID_FIELD.set(entry, AbbreviatedObjectId.fromObjectId(newId));
+            return entry;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private static Method getDiffEntryAddMethod() {
         Method method;
         try {
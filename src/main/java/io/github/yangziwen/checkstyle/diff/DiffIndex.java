@@ -0,0 +1,256 @@
+package io.github.yangziwen.checkstyle.diff;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffEntry.ChangeType;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * The diff index
+ * a compact binary file of the changed paths, the new blob ids and the edits of a diff,
+ * so the diff is calculated once and mapped into memory by any number of consumers,
+ * the layout (big endian) is
+ * <pre>
+ * header   magic, version, entry count, edit count, offset of the edits, offset of the strings (6 ints)
+ * entries  a record of 48 bytes for each diff entry in the order of the diff:
+ *          work tree, path prefix, path and commit id (string offsets, -1 for null),
+ *          new blob id (20 bytes), change type, diff fallback (-1 for none), 2 bytes of padding,
+ *          index of the first edit and number of the edits
+ * edits    begin A, end A, begin B, end B of each edit (4 ints)
+ * strings  length prefixed utf-8 strings, each distinct string is stored once
+ * </pre>
+ * the records and the edits are read in place from the mapped buffer when accessed, nothing is parsed up front
+ *
+ * @author yangziwen
+ */
+public class DiffIndex {
+
+    public static final int VERSION = 1;
+
+    /** "DCDI" */
+    static final int MAGIC = 0x44434449;
+
+    static final int HEADER_SIZE = 6 * Integer.BYTES;
+
+    static final int ENTRY_SIZE = 48;
+
+    static final int EDIT_SIZE = 4 * Integer.BYTES;
+
+    private static final int NULL_REF = -1;
+
+    private DiffIndex() {
+    }
+
+    /**
+     * write the diff entries to the index file,
+     * the file is written aside and moved into place, so a consumer never maps a partial index
+     *
+     * @param diffEntries   the diff entries
+     * @param indexFile     the index file
+     * @throws IOException  throw IOException when failed to write the file
+     */
+    public static void write(List<DiffEntryWrapper> diffEntries, Path indexFile) throws IOException {
+        Map<String, Integer> stringRefs = new HashMap<>();
+        ByteBuffer strings = ByteBuffer.allocate(1024);
+        int editCount = diffEntries.stream().mapToInt(diffEntry -> diffEntry.getEditList().size()).sum();
+        int editsOffset = HEADER_SIZE + diffEntries.size() * ENTRY_SIZE;
+        ByteBuffer index = ByteBuffer.allocate(editsOffset + editCount * EDIT_SIZE);
+        index.putInt(MAGIC).putInt(VERSION).putInt(diffEntries.size()).putInt(editCount).putInt(editsOffset);
+        index.position(HEADER_SIZE);
+        int editIndex = 0;
+        for (DiffEntryWrapper diffEntry : diffEntries) {
+            strings = putString(index, diffEntry.getGitDir().getAbsolutePath(), strings, stringRefs);
+            strings = putString(index, diffEntry.getPathPrefix(), strings, stringRefs);
+            strings = putString(index, diffEntry.getDiffEntry().getNewPath(), strings, stringRefs);
+            strings = putString(index, diffEntry.getNewCommitId(), strings, stringRefs);
+            AbbreviatedObjectId newId = diffEntry.getDiffEntry().getNewId();
+            (newId != null && newId.isComplete() ? newId.toObjectId() : ObjectId.zeroId()).copyRawTo(index);
+            index.put((byte) diffEntry.getDiffEntry().getChangeType().ordinal());
+            index.put(diffEntry.getDiffFallback() != null ? (byte) diffEntry.getDiffFallback().ordinal() : -1);
+            index.putShort((short) 0);
+            index.putInt(editIndex).putInt(diffEntry.getEditList().size());
+            editIndex += diffEntry.getEditList().size();
+        }
+        for (DiffEntryWrapper diffEntry : diffEntries) {
+            for (Edit edit : diffEntry.getEditList()) {
+                index.putInt(edit.getBeginA()).putInt(edit.getEndA()).putInt(edit.getBeginB()).putInt(edit.getEndB());
+            }
+        }
+        index.putInt(5 * Integer.BYTES, index.capacity());
+        index.flip();
+        strings.flip();
+
+        Path parent = indexFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        // not created by Files.createTempFile, which is only readable by the owner
+        Path tempFile = parent.resolve(indexFile.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            while (index.hasRemaining()) {
+                channel.write(index);
+            }
+            while (strings.hasRemaining()) {
+                channel.write(strings);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static ByteBuffer putString(
+            ByteBuffer index,
+            String value,
+            ByteBuffer strings,
+            Map<String, Integer> stringRefs) {
+        if (value == null) {
+            index.putInt(NULL_REF);
+            return strings;
+        }
+        Integer ref = stringRefs.get(value);
+        if (ref == null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (strings.remaining() < Integer.BYTES + bytes.length) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(strings.capacity() * 2,
+                        strings.position() + Integer.BYTES + bytes.length));
+                strings.flip();
+                strings = grown.put(strings);
+            }
+            ref = strings.position();
+            strings.putInt(bytes.length).put(bytes);
+            stringRefs.put(value, ref);
+        }
+        index.putInt(ref);
+        return strings;
+    }
+
+    /**
+     * map the index file into memory and read the diff entries,
+     * the edit lists are views on the mapped buffer
+     *
+     * @param indexFile     the index file
+     * @return the diff entries in the order they are written
+     * @throws IOException  throw IOException when failed to map the file or the file is not a valid index
+     */
+    public static List<DiffEntryWrapper> read(Path indexFile) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException(indexFile + " is not a diff index");
+        }
+        if (buffer.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException("the version " + buffer.getInt(Integer.BYTES) + " of the diff index "
+                    + indexFile + " is not supported, expected " + VERSION);
+        }
+        int entryCount = buffer.getInt(2 * Integer.BYTES);
+        int editCount = buffer.getInt(3 * Integer.BYTES);
+        int editsOffset = buffer.getInt(4 * Integer.BYTES);
+        int stringsOffset = buffer.getInt(5 * Integer.BYTES);
+        if (editsOffset != HEADER_SIZE + entryCount * ENTRY_SIZE
+                || stringsOffset != editsOffset + editCount * EDIT_SIZE
+                || stringsOffset > buffer.capacity()) {
+            throw new IOException("the diff index " + indexFile + " is truncated or corrupted");
+        }
+        List<DiffEntryWrapper> diffEntries = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            diffEntries.add(readEntry(buffer, HEADER_SIZE + i * ENTRY_SIZE, editsOffset, stringsOffset));
+        }
+        return diffEntries;
+    }
+
+    private static DiffEntryWrapper readEntry(ByteBuffer buffer, int offset, int editsOffset, int stringsOffset) {
+        String path = getString(buffer, stringsOffset, buffer.getInt(offset + 8));
+        byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+        ByteBuffer idBuffer = buffer.duplicate();
+        idBuffer.position(offset + 16);
+        idBuffer.get(rawId);
+        ObjectId newId = ObjectId.fromRaw(rawId);
+        ChangeType changeType = ChangeType.values()[buffer.get(offset + 36)];
+        DiffEntry diffEntry = changeType == ChangeType.ADD
+                ? DiffHelper.createAddDiffEntry(path, newId)
+                : DiffHelper.createModifyDiffEntry(path, newId);
+        byte fallback = buffer.get(offset + 37);
+        return DiffEntryWrapper.builder()
+                .gitDir(new File(getString(buffer, stringsOffset, buffer.getInt(offset))))
+                .pathPrefix(getString(buffer, stringsOffset, buffer.getInt(offset + 4)))
+                .newCommitId(getString(buffer, stringsOffset, buffer.getInt(offset + 12)))
+                .diffEntry(diffEntry)
+                .diffFallback(fallback >= 0 ? DiffFallback.values()[fallback] : null)
+                .editList(new MappedEditList(buffer,
+                        editsOffset + buffer.getInt(offset + 40) * EDIT_SIZE, buffer.getInt(offset + 44)))
+                .build();
+    }
+
+    private static String getString(ByteBuffer buffer, int stringsOffset, int ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        int length = buffer.getInt(stringsOffset + ref);
+        byte[] bytes = new byte[length];
+        ByteBuffer stringBuffer = buffer.duplicate();
+        stringBuffer.position(stringsOffset + ref + Integer.BYTES);
+        stringBuffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * the edits of an entry read from the mapped buffer on access
+     */
+    private static class MappedEditList extends AbstractList<Edit> {
+
+        private final ByteBuffer buffer;
+
+        private final int offset;
+
+        private final int size;
+
+        MappedEditList(ByteBuffer buffer, int offset, int size) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        public Edit get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("index " + index + " of " + size + " edits");
+            }
+            int position = offset + index * EDIT_SIZE;
+            return new Edit(
+                    buffer.getInt(position),
+                    buffer.getInt(position + Integer.BYTES),
+                    buffer.getInt(position + 2 * Integer.BYTES),
+                    buffer.getInt(position + 3 * Integer.BYTES));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+    }
+
+}
@@ -0,0 +1,348 @@
+package io.github.yangziwen.checkstyle.diff;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.attributes.Attribute;
+import org.eclipse.jgit.attributes.Attributes;
+import org.eclipse.jgit.attributes.AttributesNode;
+import org.eclipse.jgit.attributes.AttributesRule;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The file classifier
+ * classify the changed files before their contents are fully loaded and diffed,
+ * the binary files (by the .gitattributes or the NUL bytes in the prefix of the blob)
+ * and the generated files (by the .gitattributes or the markers in the header of the blob)
+ * are neither diffed nor checked,
+ * the header consists of the leading comments and the annotations and modifiers of the first declaration,
+ * so a marker mentioned in the body (e.g. an annotation on a field) or in the imports does not count
+ *
+ * @author yangziwen
+ */
+@Getter
+@Builder
+public class FileClassifier {
+
+    /** the same size as git uses to detect the binary files */
+    public static final int DEFAULT_PREFIX_SIZE = 8000;
+
+    public static final List<String> DEFAULT_GENERATED_MARKERS = Arrays.asList("@Generated");
+
+    static final String GITATTRIBUTES_FILE_NAME = Constants.DOT_GIT_ATTRIBUTES;
+
+    private static final String BINARY_ATTRIBUTE = "binary";
+
+    private static final String DIFF_ATTRIBUTE = "diff";
+
+    private static final String GENERATED_ATTRIBUTE = "linguist-generated";
+
+    @Builder.Default
+    private int prefixSize = DEFAULT_PREFIX_SIZE;
+
+    /**
+     * the file is generated if any of the markers appears as a whole token in the header of the blob,
+     * a marker starting with '@' also matches the annotation with a qualified name, e.g. '@javax.annotation.Generated'
+     */
+    @Builder.Default
+    private List<String> generatedMarkers = DEFAULT_GENERATED_MARKERS;
+
+    /**
+     * create a session to classify the files of the tree
+     *
+     * @param repository    the repository
+     * @param reader        the object reader
+     * @param tree          the tree which the files and the .gitattributes files belong to
+     * @return the session
+     */
+    public Session open(Repository repository, ObjectReader reader, RevTree tree) {
+        return new Session(repository, reader, path -> {
+            try (TreeWalk walk = TreeWalk.forPath(reader, path, tree)) {
+                return walk != null ? walk.getObjectId(0) : null;
+            }
+        });
+    }
+
+    /**
+     * create a session to classify the files of the staging area
+     *
+     * @param repository    the repository
+     * @param reader        the object reader
+     * @param index         the dir cache which the files and the .gitattributes files belong to
+     * @return the session
+     */
+    public Session open(Repository repository, ObjectReader reader, DirCache index) {
+        return new Session(repository, reader, path -> {
+            DirCacheEntry entry = index.getEntry(path);
+            return entry != null ? entry.getObjectId() : null;
+        });
+    }
+
+    /**
+     * The type of the changed file
+     */
+    public enum FileType {
+        SOURCE, BINARY, GENERATED
+    }
+
+    /**
+     * extract the header of the source, which is the leading comments followed by the code before the body
+     * of the first declaration, with the package and import statements and the other comments removed
+     *
+     * @param source    the prefix of the source
+     * @return the header
+     */
+    static String extractHeader(String source) {
+        StringBuilder header = new StringBuilder();
+        int i = skipWhitespaces(source, 0);
+        while (source.startsWith("//", i) || source.startsWith("/*", i)) {
+            int end = endOfComment(source, i);
+            header.append(source, i, end).append('\n');
+            i = skipWhitespaces(source, end);
+        }
+        StringBuilder statement = new StringBuilder();
+        int depth = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (source.startsWith("//", i) || source.startsWith("/*", i)) {
+                i = endOfComment(source, i);
+                statement.append(' ');
+                continue;
+            }
+            if (c == '"' || c == '\'') {
+                i = endOfLiteral(source, i);
+                statement.append(' ');
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth = Math.max(depth - 1, 0);
+            } else if (c == '{' && depth == 0) {
+                break;
+            } else if (c == ';' && depth == 0) {
+                String trimmed = statement.toString().trim();
+                if (!trimmed.startsWith("package") && !trimmed.startsWith("import")) {
+                    header.append(statement).append(c);
+                }
+                statement.setLength(0);
+                i++;
+                continue;
+            }
+            statement.append(c);
+            i++;
+        }
+        return header.append(statement).toString();
+    }
+
+    /**
+     * compile the marker to match it as a whole token
+     */
+    static Pattern compileMarker(String marker) {
+        StringBuilder regex = new StringBuilder();
+        String text = marker;
+        if (marker.startsWith("@") && marker.length() > 1) {
+            regex.append("@(?:[\\w$]+\\s*\\.\\s*)*");
+            text = marker.substring(1);
+        } else if (Character.isJavaIdentifierPart(marker.charAt(0))) {
+            regex.append("(?<![\\w$])");
+        }
+        regex.append(Pattern.quote(text));
+        if (Character.isJavaIdentifierPart(marker.charAt(marker.length() - 1))) {
+            regex.append("(?![\\w$])");
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static int skipWhitespaces(String source, int from) {
+        int i = from;
+        while (i < source.length() && Character.isWhitespace(source.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int endOfComment(String source, int from) {
+        int end = source.startsWith("//", from)
+                ? source.indexOf('\n', from)
+                : source.indexOf("*/", from + 2);
+        if (end < 0) {
+            return source.length();
+        }
+        return source.charAt(end) == '\n' ? end + 1 : end + 2;
+    }
+
+    private static int endOfLiteral(String source, int from) {
+        char quote = source.charAt(from);
+        int i = from + 1;
+        while (i < source.length() && source.charAt(i) != quote && source.charAt(i) != '\n') {
+            i += source.charAt(i) == '\\' ? 2 : 1;
+        }
+        return Math.min(i + 1, source.length());
+    }
+
+    @FunctionalInterface
+    interface BlobLocator {
+        ObjectId locate(String path) throws IOException;
+    }
+
+    /**
+     * The classification session
+     * the parsed .gitattributes files are cached in the session,
+     * and the prefixes of the blobs are read into a buffer reused within the session
+     */
+    public class Session {
+
+        private final byte[] prefixBuffer;
+
+        private final List<Pattern> markerPatterns;
+
+        private final Repository repository;
+
+        private final ObjectReader reader;
+
+        private final BlobLocator locator;
+
+        private final Map<String, AttributesNode> attributesNodeCache = new HashMap<>();
+
+        private AttributesNode infoAttributesNode;
+
+        Session(Repository repository, ObjectReader reader, BlobLocator locator) {
+            this.prefixBuffer = new byte[prefixSize];
+            this.markerPatterns = generatedMarkers.stream()
+                    .filter(marker -> !marker.isEmpty())
+                    .map(FileClassifier::compileMarker)
+                    .collect(Collectors.toList());
+            this.repository = repository;
+            this.reader = reader;
+            this.locator = locator;
+        }
+
+        /**
+         * classify the file, only the prefix of the blob is read
+         *
+         * @param path      the path of the file
+         * @param blobId    the blob id of the file
+         * @return the type of the file
+         * @throws IOException  throw IOException when failed to read the objects
+         */
+        public FileType classify(String path, AnyObjectId blobId) throws IOException {
+            Attributes attributes = getAttributes(path);
+            if (attributes.isSet(BINARY_ATTRIBUTE) || attributes.isUnset(DIFF_ATTRIBUTE)) {
+                return FileType.BINARY;
+            }
+            if (attributes.isSet(GENERATED_ATTRIBUTE) || "true".equals(attributes.getValue(GENERATED_ATTRIBUTE))) {
+                return FileType.GENERATED;
+            }
+            int length = readPrefix(blobId);
+            if (RawText.isBinary(prefixBuffer, length)) {
+                return FileType.BINARY;
+            }
+            if (!markerPatterns.isEmpty()) {
+                String header = extractHeader(new String(prefixBuffer, 0, length, StandardCharsets.UTF_8));
+                if (markerPatterns.stream().anyMatch(pattern -> pattern.matcher(header).find())) {
+                    return FileType.GENERATED;
+                }
+            }
+            return FileType.SOURCE;
+        }
+
+        /**
+         * read the prefix of the blob into the buffer of the session
+         *
+         * @return the length of the prefix
+         */
+        private int readPrefix(AnyObjectId blobId) throws IOException {
+            byte[] buffer = prefixBuffer;
+            int length = 0;
+            try (InputStream in = reader.open(blobId, Constants.OBJ_BLOB).openStream()) {
+                int n;
+                while (length < buffer.length && (n = in.read(buffer, length, buffer.length - length)) > 0) {
+                    length += n;
+                }
+            }
+            return length;
+        }
+
+        /**
+         * collect the attributes of the path, the rules in the deeper directories override the upper ones,
+         * and the rules in $GIT_DIR/info/attributes override all of them
+         */
+        Attributes getAttributes(String path) throws IOException {
+            Attributes attributes = new Attributes();
+            int slash = -1;
+            do {
+                String dir = path.substring(0, slash + 1);
+                applyRules(attributes, getAttributesNode(dir), path.substring(slash + 1));
+                slash = path.indexOf('/', slash + 1);
+            } while (slash >= 0);
+            applyRules(attributes, getInfoAttributesNode(), path);
+            return attributes;
+        }
+
+        private void applyRules(Attributes attributes, AttributesNode node, String relativePath) {
+            if (node == null) {
+                return;
+            }
+            for (AttributesRule rule : node.getRules()) {
+                if (rule.isMatch(relativePath, false)) {
+                    for (Attribute attribute : rule.getAttributes()) {
+                        attributes.put(attribute);
+                    }
+                }
+            }
+        }
+
+        private AttributesNode getAttributesNode(String dir) throws IOException {
+            if (attributesNodeCache.containsKey(dir)) {
+                return attributesNodeCache.get(dir);
+            }
+            ObjectId blobId = locator.locate(dir + GITATTRIBUTES_FILE_NAME);
+            AttributesNode node = null;
+            if (blobId != null) {
+                node = new AttributesNode();
+                try (InputStream in = reader.open(blobId, Constants.OBJ_BLOB).openStream()) {
+                    node.parse(in);
+                }
+            }
+            attributesNodeCache.put(dir, node);
+            return node;
+        }
+
+        private AttributesNode getInfoAttributesNode() throws IOException {
+            if (infoAttributesNode == null) {
+                infoAttributesNode = new AttributesNode();
+                File file = new File(repository.getDirectory(), Constants.INFO_ATTRIBUTES);
+                if (file.isFile()) {
+                    try (InputStream in = Files.newInputStream(file.toPath())) {
+                        infoAttributesNode.parse(in);
+                    }
+                }
+            }
+            return infoAttributesNode;
+        }
+
+    }
+
+}
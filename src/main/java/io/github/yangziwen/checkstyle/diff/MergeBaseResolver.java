@@ -0,0 +1,147 @@
+package io.github.yangziwen.checkstyle.diff;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+/**
+ * The merge base resolver
+ * resolve the merge base of the base revision and the head revision by the merge base walk of jgit,
+ * which only walks the commits between the 2 revisions and their merge base (the ancestor cases included),
+ * the results are cached in the git directory, the cache file is appended with each new result
+ * and only compacted to the latest results when it grows too large, so nothing proportional to the history
+ * is walked, loaded or written
+ *
+ * @author yangziwen
+ */
+public class MergeBaseResolver {
+
+    static final String CACHE_DIR_NAME = "diff-checkstyle";
+
+    static final String MERGE_BASE_CACHE_FILE_NAME = "merge-base-cache";
+
+    static final int MAX_MERGE_BASE_CACHE_SIZE = 256;
+
+    private final boolean persistent;
+
+    public MergeBaseResolver() {
+        this(true);
+    }
+
+    /**
+     * @param persistent    whether to keep the cache in the git directory
+     */
+    public MergeBaseResolver(boolean persistent) {
+        this.persistent = persistent;
+    }
+
+    /**
+     * resolve the merge base of the 2 commits
+     *
+     * @param repository    the repository
+     * @param walk          the rev walk to parse the commits
+     * @param base          the base commit
+     * @param head          the head commit
+     * @return the merge base, or null if the 2 commits have no common ancestor
+     * @throws IOException  throw IOException when failed to read the objects
+     */
+    public RevCommit resolve(Repository repository, RevWalk walk, RevCommit base, RevCommit head)
+            throws IOException {
+        if (base.equals(head)) {
+            return base;
+        }
+        File cacheDir = new File(repository.getDirectory(), CACHE_DIR_NAME);
+        Map<String, String> mergeBaseCache = loadMergeBaseCache(cacheDir);
+        String cacheKey = base.name() + ":" + head.name();
+        String cachedMergeBase = mergeBaseCache.get(cacheKey);
+        if (cachedMergeBase != null) {
+            return walk.parseCommit(ObjectId.fromString(cachedMergeBase));
+        }
+        RevCommit mergeBase = findMergeBase(repository, base, head);
+        if (mergeBase == null) {
+            return null;
+        }
+        mergeBase = walk.parseCommit(mergeBase);
+        if (persistent) {
+            appendMergeBaseCache(cacheDir, cacheKey, mergeBase.name());
+        }
+        return mergeBase;
+    }
+
+    private static RevCommit findMergeBase(Repository repository, RevCommit base, RevCommit head)
+            throws IOException {
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRevFilter(RevFilter.MERGE_BASE);
+            walk.markStart(walk.parseCommit(base));
+            walk.markStart(walk.parseCommit(head));
+            return walk.next();
+        }
+    }
+
+    /**
+     * load the cache, the latter lines override the former ones with the same key,
+     * and the file is compacted to the latest results if it holds too many lines
+     */
+    private Map<String, String> loadMergeBaseCache(File cacheDir) throws IOException {
+        Map<String, String> cache = new LinkedHashMap<>();
+        File cacheFile = new File(cacheDir, MERGE_BASE_CACHE_FILE_NAME);
+        if (!persistent || !cacheFile.isFile()) {
+            return cache;
+        }
+        int lineCount = 0;
+        for (String line : Files.readAllLines(cacheFile.toPath(), StandardCharsets.UTF_8)) {
+            lineCount++;
+            int separator = line.indexOf('=');
+            if (separator < 0) {
+                continue;
+            }
+            String key = line.substring(0, separator);
+            String value = line.substring(separator + 1).trim();
+            if (ObjectId.isId(value)) {
+                cache.remove(key);
+                cache.put(key, value);
+            }
+        }
+        if (lineCount > 2 * MAX_MERGE_BASE_CACHE_SIZE) {
+            compactMergeBaseCache(cacheDir, cache);
+        }
+        return cache;
+    }
+
+    private void appendMergeBaseCache(File cacheDir, String key, String mergeBase) throws IOException {
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            throw new IOException("failed to create the cache directory " + cacheDir);
+        }
+        // a single small append, so the concurrent runs do not interleave their lines
+        Files.write(new File(cacheDir, MERGE_BASE_CACHE_FILE_NAME).toPath(),
+                (key + "=" + mergeBase + "\n").getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void compactMergeBaseCache(File cacheDir, Map<String, String> cache) throws IOException {
+        Iterator<String> iterator = cache.keySet().iterator();
+        while (cache.size() > MAX_MERGE_BASE_CACHE_SIZE && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        StringBuilder content = new StringBuilder();
+        cache.forEach((key, value) -> content.append(key).append('=').append(value).append('\n'));
+        File tempFile = File.createTempFile(MERGE_BASE_CACHE_FILE_NAME, ".tmp", cacheDir);
+        Files.write(tempFile.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(tempFile.toPath(), new File(cacheDir, MERGE_BASE_CACHE_FILE_NAME).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+}
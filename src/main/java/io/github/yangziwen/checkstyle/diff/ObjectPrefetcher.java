@@ -0,0 +1,173 @@
+package io.github.yangziwen.checkstyle.diff;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.errors.LargeObjectException;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.file.PackFile;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.AsyncObjectLoaderQueue;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The object prefetcher
+ * resolve the blobs of all the diff entries up front in the order of their pack offsets,
+ * so the pack files are read sequentially and the delta bases are shared through the cache,
+ * instead of seeking randomly in the packs when the entries are diffed one by one
+ *
+ * @author yangziwen
+ */
+@Getter
+@Builder
+public class ObjectPrefetcher {
+
+    public static final long DEFAULT_PACKED_GIT_LIMIT = 256L * WindowCacheConfig.MB;
+
+    public static final int DEFAULT_PACKED_GIT_WINDOW_SIZE = 64 * WindowCacheConfig.KB;
+
+    public static final int DEFAULT_DELTA_BASE_CACHE_LIMIT = 64 * WindowCacheConfig.MB;
+
+    public static final long DEFAULT_MAX_PREFETCH_BYTES = 256L * WindowCacheConfig.MB;
+
+    private static final Object CACHE_CONFIG_LOCK = new Object();
+
+    private static volatile boolean cacheConfigInstalled;
+
+    @Builder.Default
+    private long packedGitLimit = DEFAULT_PACKED_GIT_LIMIT;
+
+    @Builder.Default
+    private int packedGitWindowSize = DEFAULT_PACKED_GIT_WINDOW_SIZE;
+
+    @Builder.Default
+    private int deltaBaseCacheLimit = DEFAULT_DELTA_BASE_CACHE_LIMIT;
+
+    /** the prefetched contents kept in memory will not exceed this limit */
+    @Builder.Default
+    private long maxPrefetchBytes = DEFAULT_MAX_PREFETCH_BYTES;
+
+    /**
+     * prefetch the blobs of both sides of the diff entries
+     *
+     * @param repository        the repository
+     * @param reader            the object reader
+     * @param entries           the diff entries
+     * @param bigFileThreshold  the blobs larger than this threshold will not be prefetched
+     * @return the contents of the prefetched blobs
+     * @throws IOException      throw IOException when failed to read the objects
+     */
+    public Map<ObjectId, byte[]> prefetch(
+            Repository repository,
+            ObjectReader reader,
+            Collection<DiffEntry> entries,
+            int bigFileThreshold) throws IOException {
+        installCacheConfig(repository);
+        List<ObjectId> ids = sortByPackOffset(repository, collectBlobIds(entries));
+        Map<ObjectId, byte[]> contentMap = new HashMap<>();
+        long prefetchedBytes = 0L;
+        AsyncObjectLoaderQueue<ObjectId> queue = reader.open(ids, false);
+        try {
+            while (queue.next() && prefetchedBytes < maxPrefetchBytes) {
+                ObjectLoader loader = queue.open();
+                if (loader == null || loader.getSize() > bigFileThreshold) {
+                    continue;
+                }
+                try {
+                    byte[] content = loader.getCachedBytes(bigFileThreshold);
+                    contentMap.put(queue.getObjectId().copy(), content);
+                    prefetchedBytes += content.length;
+                } catch (LargeObjectException e) {
+                    // leave it to the diff stage, which treats it as a binary file
+                }
+            }
+        } finally {
+            queue.release();
+        }
+        return contentMap;
+    }
+
+    private static Set<ObjectId> collectBlobIds(Collection<DiffEntry> entries) {
+        Set<ObjectId> ids = new LinkedHashSet<>();
+        for (DiffEntry entry : entries) {
+            for (DiffEntry.Side side : DiffEntry.Side.values()) {
+                AbbreviatedObjectId id = entry.getId(side);
+                if (id == null || !id.isComplete()
+                        || entry.getMode(side).getObjectType() != Constants.OBJ_BLOB) {
+                    continue;
+                }
+                ObjectId objectId = id.toObjectId();
+                if (!ObjectId.zeroId().equals(objectId)) {
+                    ids.add(objectId);
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * sort the ids by the pack they belong to and their offsets in the pack,
+     * the loose objects and the ones in the other kinds of repositories are kept at last
+     */
+    private static List<ObjectId> sortByPackOffset(Repository repository, Set<ObjectId> ids) throws IOException {
+        if (!(repository instanceof FileRepository)) {
+            return new ArrayList<>(ids);
+        }
+        List<PackFile> packs = new ArrayList<>(((FileRepository) repository).getObjectDatabase().getPacks());
+        Map<ObjectId, long[]> positionMap = new HashMap<>();
+        for (ObjectId id : ids) {
+            long[] position = {packs.size(), 0L};
+            for (int i = 0; i < packs.size(); i++) {
+                long offset = packs.get(i).getIndex().findOffset(id);
+                if (offset >= 0) {
+                    position[0] = i;
+                    position[1] = offset;
+                    break;
+                }
+            }
+            positionMap.put(id, position);
+        }
+        return ids.stream()
+                .sorted(Comparator.<ObjectId>comparingLong(id -> positionMap.get(id)[0])
+                        .thenComparingLong(id -> positionMap.get(id)[1]))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * the window cache of jgit is global, so the config is only installed once in the process
+     */
+    private void installCacheConfig(Repository repository) {
+        if (cacheConfigInstalled) {
+            return;
+        }
+        synchronized (CACHE_CONFIG_LOCK) {
+            if (cacheConfigInstalled) {
+                return;
+            }
+            WindowCacheConfig config = new WindowCacheConfig().fromConfig(repository.getConfig());
+            config.setPackedGitLimit(Math.max(config.getPackedGitLimit(), packedGitLimit));
+            config.setPackedGitWindowSize(Math.max(config.getPackedGitWindowSize(), packedGitWindowSize));
+            config.setDeltaBaseCacheLimit(Math.max(config.getDeltaBaseCacheLimit(), deltaBaseCacheLimit));
+            config.install();
+            cacheConfigInstalled = true;
+        }
+    }
+
+}
@@ -0,0 +1,30 @@
+package io.github.yangziwen.checkstyle.diff;
+
+import java.util.List;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The revision blob
+ * a blob of the scanned revision with all the paths sharing it,
+ * the paths of a blob always share the same file name, since some checks depend on it
+ *
+ * @author yangziwen
+ */
+@Getter
+@Builder
+public class RevisionBlob {
+
+    private ObjectId blobId;
+
+    private long size;
+
+    /**
+     * the paths relative to the repository in order, the first one is checked on behalf of the others
+     */
+    private List<String> paths;
+
+}
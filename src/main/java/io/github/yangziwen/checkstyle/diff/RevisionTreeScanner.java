@@ -0,0 +1,208 @@
+package io.github.yangziwen.checkstyle.diff;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Pattern;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+
+import io.github.yangziwen.checkstyle.diff.FileClassifier.FileType;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The revision tree scanner
+ * list the source files of a revision straight from the object database without a checkout,
+ * each tree is parsed by a fork join task and its subtrees are forked to the other workers,
+ * so the deep and wide trees are walked in parallel,
+ * the files with the same blob id and file name are merged into a single revision blob
+ *
+ * @author yangziwen
+ */
+@Getter
+@Builder
+public class RevisionTreeScanner {
+
+    @Builder.Default
+    private int threadsNumber = 1;
+
+    /** the patterns to exclude the files by their paths relative to the repository */
+    @Builder.Default
+    private List<Pattern> excludePatterns = Collections.emptyList();
+
+    /** the binary and generated files are skipped if provided */
+    private FileClassifier fileClassifier;
+
+    /**
+     * scan the source files of the revision
+     *
+     * @param repoDir   the repository directory
+     * @param rev       the revision to scan
+     * @return the blobs sorted by their first paths
+     * @throws IOException  throw IOException when failed to read the objects
+     */
+    public List<RevisionBlob> scan(File repoDir, String rev) throws IOException {
+        try (Git git = Git.open(repoDir);
+                RevWalk rw = new RevWalk(git.getRepository())) {
+            Repository repository = git.getRepository();
+            ObjectId commitId = repository.resolve(rev);
+            if (commitId == null) {
+                throw new IOException("cannot resolve the revision " + rev);
+            }
+            RevTree tree = rw.parseCommit(commitId).getTree();
+            Queue<ScannedFile> files = new ConcurrentLinkedQueue<>();
+            Queue<Worker> workers = new ConcurrentLinkedQueue<>();
+            ThreadLocal<Worker> localWorker = ThreadLocal.withInitial(() -> {
+                Worker worker = new Worker(repository, tree);
+                workers.add(worker);
+                return worker;
+            });
+            ForkJoinPool pool = new ForkJoinPool(Math.max(threadsNumber, 1));
+            try {
+                pool.invoke(new TreeTask(tree, "", files, localWorker));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdownNow();
+                workers.forEach(worker -> worker.reader.close());
+            }
+            return mergeFiles(files);
+        }
+    }
+
+    /**
+     * merge the files with the same blob id and file name, the vendored copies of a file are checked only once
+     */
+    private static List<RevisionBlob> mergeFiles(Queue<ScannedFile> files) {
+        Map<String, List<ScannedFile>> fileGroups = new TreeMap<>();
+        for (ScannedFile file : files) {
+            String key = file.blobId.name() + "/" + file.path.substring(file.path.lastIndexOf('/') + 1);
+            fileGroups.computeIfAbsent(key, k -> new ArrayList<>()).add(file);
+        }
+        List<RevisionBlob> blobs = new ArrayList<>(fileGroups.size());
+        for (List<ScannedFile> group : fileGroups.values()) {
+            group.sort(Comparator.comparing(file -> file.path));
+            List<String> paths = new ArrayList<>(group.size());
+            group.forEach(file -> paths.add(file.path));
+            blobs.add(RevisionBlob.builder()
+                    .blobId(group.get(0).blobId)
+                    .size(group.get(0).size)
+                    .paths(paths)
+                    .build());
+        }
+        blobs.sort(Comparator.comparing(blob -> blob.getPaths().get(0)));
+        return blobs;
+    }
+
+    private boolean isExcluded(String path) {
+        return excludePatterns.stream().anyMatch(p -> p.matcher(path).matches());
+    }
+
+    /**
+     * The worker
+     * the object reader and the classification session owned by a single thread
+     */
+    private class Worker {
+
+        private final ObjectReader reader;
+
+        private final FileClassifier.Session session;
+
+        Worker(Repository repository, RevTree tree) {
+            this.reader = repository.newObjectReader();
+            this.session = fileClassifier != null ? fileClassifier.open(repository, reader, tree) : null;
+        }
+
+    }
+
+    private static class ScannedFile {
+
+        private final String path;
+
+        private final ObjectId blobId;
+
+        private final long size;
+
+        ScannedFile(String path, ObjectId blobId, long size) {
+            this.path = path;
+            this.blobId = blobId;
+            this.size = size;
+        }
+
+    }
+
+    /**
+     * The tree task
+     * parse a single tree, collect its files and fork its subtrees
+     */
+    private class TreeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ObjectId treeId;
+
+        private final String prefix;
+
+        private final Queue<ScannedFile> files;
+
+        private final ThreadLocal<Worker> localWorker;
+
+        TreeTask(ObjectId treeId, String prefix, Queue<ScannedFile> files, ThreadLocal<Worker> localWorker) {
+            this.treeId = treeId;
+            this.prefix = prefix;
+            this.files = files;
+            this.localWorker = localWorker;
+        }
+
+        @Override
+        protected void compute() {
+            Worker worker = localWorker.get();
+            List<TreeTask> subtasks = new ArrayList<>();
+            try {
+                CanonicalTreeParser parser = new CanonicalTreeParser(null, worker.reader, treeId);
+                for (; !parser.eof(); parser.next()) {
+                    FileMode mode = parser.getEntryFileMode();
+                    String path = prefix + parser.getEntryPathString();
+                    if (mode == FileMode.TREE) {
+                        subtasks.add(new TreeTask(parser.getEntryObjectId(), path + "/", files, localWorker));
+                    } else if ((mode == FileMode.REGULAR_FILE || mode == FileMode.EXECUTABLE_FILE)
+                            && !isExcluded(path)) {
+                        // the symbolic links and the submodules are never checked
+                        scanFile(worker, path, parser.getEntryObjectId());
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            invokeAll(subtasks);
+        }
+
+        private void scanFile(Worker worker, String path, ObjectId blobId) throws IOException {
+            if (worker.session != null && worker.session.classify(path, blobId) != FileType.SOURCE) {
+                return;
+            }
+            files.add(new ScannedFile(path, blobId, worker.reader.getObjectSize(blobId, Constants.OBJ_BLOB)));
+        }
+
+    }
+
+}
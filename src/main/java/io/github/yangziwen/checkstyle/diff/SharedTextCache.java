@@ -0,0 +1,80 @@
+package io.github.yangziwen.checkstyle.diff;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * The shared text cache
+ * keep the raw texts (the contents with their line tables) of the blobs used by more than one side of the diff entries,
+ * e.g. the copied files or the old side of a copy, so such a blob is loaded and its newlines are scanned only once,
+ * each text is dropped at its last use, and the blobs used only once are never kept
+ *
+ * @author yangziwen
+ */
+class SharedTextCache {
+
+    private final Map<ObjectId, Integer> remainingUseCounts = new HashMap<>();
+
+    private final Map<ObjectId, RawText> texts = new HashMap<>();
+
+    SharedTextCache(Collection<DiffEntry> entries) {
+        for (DiffEntry entry : entries) {
+            for (DiffEntry.Side side : DiffEntry.Side.values()) {
+                ObjectId id = getBlobId(entry, side);
+                if (id != null) {
+                    remainingUseCounts.merge(id, 1, Integer::sum);
+                }
+            }
+        }
+        remainingUseCounts.values().removeIf(count -> count < 2);
+    }
+
+    /**
+     * get the text of the side of the entry
+     *
+     * @param entry     the diff entry
+     * @param side      the side
+     * @param loader    load the text of the blob if it is not shared or not loaded yet
+     * @return the text
+     */
+    RawText get(DiffEntry entry, DiffEntry.Side side, Function<ObjectId, RawText> loader) {
+        ObjectId id = getBlobId(entry, side);
+        Integer count = id != null ? remainingUseCounts.get(id) : null;
+        if (count == null) {
+            return loader.apply(id);
+        }
+        RawText text = texts.get(id);
+        if (text == null) {
+            text = loader.apply(id);
+        }
+        if (count > 1) {
+            remainingUseCounts.put(id, count - 1);
+            texts.put(id, text);
+        } else {
+            remainingUseCounts.remove(id);
+            texts.remove(id);
+        }
+        return text;
+    }
+
+    /**
+     * @return the complete id of the blob on the side, or null if the side is not a blob
+     */
+    private static ObjectId getBlobId(DiffEntry entry, DiffEntry.Side side) {
+        AbbreviatedObjectId id = entry.getId(side);
+        if (id == null || !id.isComplete() || entry.getMode(side).getObjectType() != Constants.OBJ_BLOB) {
+            return null;
+        }
+        ObjectId objectId = id.toObjectId();
+        return ObjectId.zeroId().equals(objectId) ? null : objectId;
+    }
+
+}
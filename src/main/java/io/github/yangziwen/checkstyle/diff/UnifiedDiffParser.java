@@ -0,0 +1,234 @@
+package io.github.yangziwen.checkstyle.diff;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.util.QuotedString;
+
+/**
+ * The unified diff parser
+ * build the diff entries from an existing unified diff (e.g. the output of git diff -U0),
+ * the edits are taken from the hunks directly, so no blob is read and no diff is calculated,
+ * the hunk bodies are only scanned for the marker characters to split the hunks with context lines
+ *
+ * @author yangziwen
+ */
+public class UnifiedDiffParser {
+
+    public static final String DEV_NULL = "/dev/null";
+
+    private static final String DIFF_GIT_PREFIX = "diff --git ";
+
+    private static final String OLD_PATH_PREFIX = "--- ";
+
+    private static final String NEW_PATH_PREFIX = "+++ ";
+
+    private static final String HUNK_PREFIX = "@@ -";
+
+    private final File baseDir;
+
+    /**
+     * @param baseDir   the directory which the paths in the diff are relative to
+     */
+    public UnifiedDiffParser(File baseDir) {
+        this.baseDir = baseDir;
+    }
+
+    /**
+     * parse the unified diff, the deleted files and the files without the "---" and "+++" headers
+     * (e.g. binary files or pure renames) are skipped
+     *
+     * @param reader    the reader of the unified diff
+     * @return the diff entries
+     * @throws IOException  throw IOException when failed to read the diff or the diff is malformed
+     */
+    public List<DiffEntryWrapper> parse(Reader reader) throws IOException {
+        BufferedReader in = reader instanceof BufferedReader
+                ? (BufferedReader) reader
+                : new BufferedReader(reader, 64 * 1024);
+        List<DiffEntryWrapper> entries = new ArrayList<>();
+        FileSection section = null;
+        String line;
+        int lineNo = 0;
+        while ((line = in.readLine()) != null) {
+            lineNo++;
+            if (line.startsWith(DIFF_GIT_PREFIX)) {
+                addEntry(entries, section);
+                section = new FileSection();
+            } else if (line.startsWith(OLD_PATH_PREFIX)) {
+                // the hunk bodies are consumed by readHunk, so this is always a file header
+                if (section == null || section.oldPath != null) {
+                    addEntry(entries, section);
+                    section = new FileSection();
+                }
+                section.oldPath = parsePath(line.substring(OLD_PATH_PREFIX.length()), "a/");
+            } else if (line.startsWith(NEW_PATH_PREFIX) && section != null && section.newPath == null) {
+                section.newPath = parsePath(line.substring(NEW_PATH_PREFIX.length()), "b/");
+            } else if (line.startsWith(HUNK_PREFIX)) {
+                if (section == null || !section.hasPaths()) {
+                    throw new IOException("hunk without file header at line " + lineNo + ": " + line);
+                }
+                lineNo = readHunk(in, line, lineNo, section.edits);
+            }
+        }
+        addEntry(entries, section);
+        return entries;
+    }
+
+    /**
+     * read the hunk started by the header line, the edits are appended to the list
+     *
+     * @return the line number of the last line of the hunk
+     */
+    private int readHunk(BufferedReader in, String header, int lineNo, List<Edit> edits) throws IOException {
+        int[] range = parseHunkHeader(header, lineNo);
+        int oldRemaining = range[1];
+        int newRemaining = range[3];
+        // the edits are 0-based, and an empty side starts after the line number in the header
+        int curA = oldRemaining == 0 ? range[0] : range[0] - 1;
+        int curB = newRemaining == 0 ? range[2] : range[2] - 1;
+        Edit edit = null;
+        while (oldRemaining > 0 || newRemaining > 0) {
+            String line = in.readLine();
+            if (line == null) {
+                throw new IOException("unexpected end of the diff in the hunk at line " + lineNo);
+            }
+            lineNo++;
+            char marker = line.isEmpty() ? ' ' : line.charAt(0);
+            if (marker == '-') {
+                if (edit == null) {
+                    edit = new Edit(curA, curB);
+                }
+                edit.extendA();
+                curA++;
+                oldRemaining--;
+            } else if (marker == '+') {
+                if (edit == null) {
+                    edit = new Edit(curA, curB);
+                }
+                edit.extendB();
+                curB++;
+                newRemaining--;
+            } else if (marker == ' ') {
+                if (edit != null) {
+                    edits.add(edit);
+                    edit = null;
+                }
+                curA++;
+                curB++;
+                oldRemaining--;
+                newRemaining--;
+            } else if (marker != '\\') {
+                throw new IOException("malformed hunk line at line " + lineNo + ": " + line);
+            }
+        }
+        if (edit != null) {
+            edits.add(edit);
+        }
+        return lineNo;
+    }
+
+    /**
+     * parse the hunk header in the form of "@@ -oldStart[,oldCount] +newStart[,newCount] @@"
+     *
+     * @return the array of oldStart, oldCount, newStart and newCount
+     */
+    static int[] parseHunkHeader(String header, int lineNo) throws IOException {
+        int[] range = new int[4];
+        int pos = HUNK_PREFIX.length();
+        pos = parseRange(header, pos, range, 0, lineNo);
+        if (pos >= header.length() - 1 || header.charAt(pos) != ' ' || header.charAt(pos + 1) != '+') {
+            throw new IOException("malformed hunk header at line " + lineNo + ": " + header);
+        }
+        parseRange(header, pos + 2, range, 2, lineNo);
+        return range;
+    }
+
+    private static int parseRange(String header, int pos, int[] range, int offset, int lineNo) throws IOException {
+        int end = skipDigits(header, pos);
+        if (end == pos) {
+            throw new IOException("malformed hunk header at line " + lineNo + ": " + header);
+        }
+        range[offset] = Integer.parseInt(header.substring(pos, end));
+        range[offset + 1] = 1;
+        if (end < header.length() && header.charAt(end) == ',') {
+            int countEnd = skipDigits(header, end + 1);
+            if (countEnd == end + 1) {
+                throw new IOException("malformed hunk header at line " + lineNo + ": " + header);
+            }
+            range[offset + 1] = Integer.parseInt(header.substring(end + 1, countEnd));
+            end = countEnd;
+        }
+        return end;
+    }
+
+    private static int skipDigits(String str, int pos) {
+        while (pos < str.length() && Character.isDigit(str.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * parse the path in the "---" or "+++" line,
+     * the trailing timestamp is removed, and the git prefix is stripped if present
+     */
+    static String parsePath(String value, String gitPrefix) {
+        String path = value;
+        if (path.startsWith("\"")) {
+            int end = path.lastIndexOf('"');
+            path = QuotedString.GIT_PATH.dequote(path.substring(0, end + 1));
+        } else {
+            int tab = path.indexOf('\t');
+            if (tab >= 0) {
+                path = path.substring(0, tab);
+            }
+        }
+        if (DEV_NULL.equals(path)) {
+            return DEV_NULL;
+        }
+        return path.startsWith(gitPrefix) ? path.substring(gitPrefix.length()) : path;
+    }
+
+    private void addEntry(List<DiffEntryWrapper> entries, FileSection section) {
+        if (section == null || !section.hasPaths()) {
+            return;
+        }
+        if (DEV_NULL.equals(section.newPath)) {
+            return;
+        }
+        DiffEntry diffEntry;
+        if (DEV_NULL.equals(section.oldPath)) {
+            diffEntry = DiffHelper.createAddDiffEntry(section.newPath, ObjectId.zeroId());
+        } else {
+            diffEntry = DiffHelper.createModifyDiffEntry(section.newPath);
+        }
+        entries.add(DiffEntryWrapper.builder()
+                .gitDir(baseDir)
+                .diffEntry(diffEntry)
+                .editList(section.edits)
+                .build());
+    }
+
+    private static class FileSection {
+
+        private String oldPath;
+
+        private String newPath;
+
+        private final List<Edit> edits = new ArrayList<>();
+
+        private boolean hasPaths() {
+            return oldPath != null && newPath != null;
+        }
+
+    }
+
+}
@@ -0,0 +1,179 @@
+package io.github.yangziwen.checkstyle.discovery;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import io.github.yangziwen.checkstyle.checker.ThreadsNumberTuner;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The file discoverer
+ * list the files under the roots in parallel, each directory is listed by a fork join task
+ * and its subdirectories are forked to the other workers,
+ * the excluded directories are pruned before they are listed,
+ * and the paths to exclude are matched through a trie walked down along with the directories,
+ * so a directory costs a single child lookup however many paths are excluded
+ *
+ * @author yangziwen
+ */
+@Getter
+@Builder
+public class FileDiscoverer {
+
+    @Builder.Default
+    private int threadsNumber = ThreadsNumberTuner.getAvailableCpus();
+
+    /** the directories to exclude by their paths */
+    @Builder.Default
+    private List<Path> excludedPaths = Collections.emptyList();
+
+    /** the directories to exclude by the patterns found in their absolute paths */
+    @Builder.Default
+    private List<Pattern> excludePatterns = Collections.emptyList();
+
+    /**
+     * discover the files under the roots, the files of each root are sorted by their paths
+     *
+     * @param roots     the files or directories to discover
+     * @return the readable files in the order of the roots
+     */
+    public List<File> discover(List<File> roots) {
+        List<Queue<File>> queues = new ArrayList<>(roots.size());
+        List<DirectoryTask> tasks = new ArrayList<>(roots.size());
+        PathTrie trie = new PathTrie(excludedPaths);
+        for (File root : roots) {
+            Queue<File> queue = new ConcurrentLinkedQueue<>();
+            queues.add(queue);
+            tasks.add(createRootTask(root, trie, queue::add));
+        }
+        run(tasks);
+        List<File> files = new ArrayList<>();
+        for (Queue<File> queue : queues) {
+            files.addAll(queue.stream()
+                    .sorted(Comparator.comparing(File::getPath))
+                    .collect(Collectors.toList()));
+        }
+        return files;
+    }
+
+    private DirectoryTask createRootTask(File root, PathTrie trie, Consumer<File> sink) {
+        Path path = root.toPath();
+        return new DirectoryTask(path, trie.isEmpty() ? null : trie.locate(path), sink, true);
+    }
+
+    private void run(List<DirectoryTask> tasks) {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(threadsNumber, 1));
+        try {
+            pool.invoke(new RecursiveAction() {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+
+            });
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private boolean isExcluded(Path dir, PathTrie.Node node) {
+        if (node != null && node.isTerminal()) {
+            return true;
+        }
+        if (excludePatterns.isEmpty()) {
+            return false;
+        }
+        String absolutePath = dir.toAbsolutePath().toString();
+        return excludePatterns.stream().anyMatch(pattern -> pattern.matcher(absolutePath).find());
+    }
+
+    /**
+     * The directory task
+     * list a single directory, report its files and fork its subdirectories,
+     * the unreadable files and directories are skipped
+     */
+    private class DirectoryTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path path;
+
+        /** the trie node of the path, null if neither the path nor its descendants are excluded by path */
+        private final transient PathTrie.Node node;
+
+        private final transient Consumer<File> sink;
+
+        /** whether the path is given as a root, which could be either a file or a directory */
+        private final boolean root;
+
+        DirectoryTask(Path path, PathTrie.Node node, Consumer<File> sink, boolean root) {
+            this.path = path;
+            this.node = node;
+            this.sink = sink;
+            this.root = root;
+        }
+
+        @Override
+        protected void compute() {
+            if (root) {
+                visit(path, node, null);
+                return;
+            }
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+                for (Path child : stream) {
+                    visit(child, node != null ? node.getChild(child.getFileName().toString()) : null, subtasks);
+                }
+            } catch (IOException | SecurityException e) {
+                // the unreadable directory is skipped
+            }
+            invokeAll(subtasks);
+        }
+
+        private void visit(Path child, PathTrie.Node childNode, List<DirectoryTask> subtasks) {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(child, BasicFileAttributes.class);
+            } catch (IOException | SecurityException e) {
+                return;
+            }
+            if (!Files.isReadable(child)) {
+                return;
+            }
+            if (attributes.isDirectory()) {
+                if (isExcluded(child, childNode)) {
+                    return;
+                }
+                DirectoryTask subtask = new DirectoryTask(child, childNode, sink, false);
+                if (subtasks != null) {
+                    subtasks.add(subtask);
+                } else {
+                    subtask.compute();
+                }
+            } else if (attributes.isRegularFile()) {
+                sink.accept(child.toFile());
+            }
+        }
+
+    }
+
+}
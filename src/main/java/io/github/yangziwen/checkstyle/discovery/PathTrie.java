@@ -0,0 +1,92 @@
+package io.github.yangziwen.checkstyle.discovery;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The path trie
+ * keep the absolute paths by their name elements, so a path is located by walking down the trie
+ * along with the directories instead of comparing the whole path with each of the paths,
+ * the trie is read-only after it is built and could be shared by many threads
+ *
+ * @author yangziwen
+ */
+public class PathTrie {
+
+    private final Node root = new Node();
+
+    /**
+     * build the trie of the paths, the paths are made absolute and normalized
+     *
+     * @param paths the paths
+     */
+    public PathTrie(Collection<Path> paths) {
+        for (Path path : paths) {
+            Node node = root;
+            for (String name : split(path)) {
+                node = node.children.computeIfAbsent(name, k -> new Node());
+            }
+            node.terminal = true;
+        }
+    }
+
+    public boolean isEmpty() {
+        return root.children.isEmpty();
+    }
+
+    /**
+     * locate the node of the path
+     *
+     * @param path  the path
+     * @return the node, or null if neither the path nor its descendants are in the trie
+     */
+    public Node locate(Path path) {
+        Node node = root;
+        for (String name : split(path)) {
+            node = node.getChild(name);
+            if (node == null) {
+                break;
+            }
+        }
+        return node;
+    }
+
+    private static String[] split(Path path) {
+        Path normalized = path.toAbsolutePath().normalize();
+        String[] names = new String[normalized.getNameCount() + 1];
+        names[0] = String.valueOf(normalized.getRoot());
+        for (int i = 1; i < names.length; i++) {
+            names[i] = normalized.getName(i - 1).toString();
+        }
+        return names;
+    }
+
+    /**
+     * The node of the trie
+     */
+    public static class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+
+        private boolean terminal;
+
+        /**
+         * @param name  the name of the child path
+         * @return the node of the child path, or null if neither it nor its descendants are in the trie
+         */
+        public Node getChild(String name) {
+            return children.get(name);
+        }
+
+        /**
+         * @return True if the path of the node itself is in the trie
+         */
+        public boolean isTerminal() {
+            return terminal;
+        }
+
+    }
+
+}
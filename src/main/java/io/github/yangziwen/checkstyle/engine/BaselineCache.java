@@ -0,0 +1,172 @@
+package io.github.yangziwen.checkstyle.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+import io.github.yangziwen.checkstyle.CheckstyleVersion;
+
+/**
+ * The baseline cache
+ * keep the violations of the old blobs checked by the ratchet mode,
+ * keyed by the hash of the configuration tree, the old path and the blob id,
+ * the path is part of the key since the checks and filters may depend on it, e.g. the package and the suppressions,
+ * and since a blob never changes, the base side of a diff is almost never checked twice,
+ * the cache is not used when the checkstyle version can not be resolved
+ *
+ * @author yangziwen
+ */
+public class BaselineCache {
+
+    public static final File DEFAULT_CACHE_DIR = new File(System.getProperty("user.home"),
+            ".diff-checkstyle" + File.separator + "baseline-cache");
+
+    /** increase it when the layout of the cached violations changes */
+    private static final int FORMAT_VERSION = 1;
+
+    private final File cacheDir;
+
+    public BaselineCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * compute the key of the configuration, the children are hashed in order and the attributes in name order
+     *
+     * @param configuration     the configuration
+     * @return the key, or null if the checkstyle version can not be resolved
+     */
+    public static String computeConfigKey(Configuration configuration) {
+        return computeConfigKey(configuration, CheckstyleVersion.get());
+    }
+
+    static String computeConfigKey(Configuration configuration, String checkstyleVersion) {
+        if (checkstyleVersion == null) {
+            return null;
+        }
+        MessageDigest digest = Constants.newMessageDigest();
+        digest.update(toBytes("format=" + FORMAT_VERSION + "\ncheckstyle=" + checkstyleVersion));
+        updateDigest(digest, configuration);
+        return ObjectId.fromRaw(digest.digest()).name();
+    }
+
+    private static void updateDigest(MessageDigest digest, Configuration configuration) {
+        digest.update(toBytes("\n<" + configuration.getName()));
+        String[] attributeNames = configuration.getAttributeNames().clone();
+        Arrays.sort(attributeNames);
+        for (String name : attributeNames) {
+            try {
+                digest.update(toBytes("\n" + name + "=" + configuration.getAttribute(name)));
+            } catch (CheckstyleException e) {
+                // never happens for the listed attribute names
+                throw new IllegalStateException(e);
+            }
+        }
+        configuration.getMessages().entrySet().stream()
+                .sorted((e1, e2) -> e1.getKey().compareTo(e2.getKey()))
+                .forEach(entry -> digest.update(toBytes("\nmessage." + entry.getKey() + "=" + entry.getValue())));
+        for (Configuration child : configuration.getChildren()) {
+            updateDigest(digest, child);
+        }
+        digest.update(toBytes("\n>"));
+    }
+
+    /**
+     * @param configKey     the key of the configuration
+     * @param path          the old path of the blob
+     * @param blobId        the id of the old blob
+     * @return the cached violations, or null if absent or unreadable
+     */
+    public List<Violation> get(String configKey, String path, AnyObjectId blobId) {
+        File file = getCacheFile(configKey, path, blobId);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            int size = in.readInt();
+            List<Violation> violations = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                violations.add(Violation.builder()
+                        .line(in.readInt())
+                        .column(in.readInt())
+                        .severityLevel(SeverityLevel.getInstance(in.readUTF()))
+                        .message(in.readUTF())
+                        .sourceName(in.readUTF())
+                        .moduleId(in.readBoolean() ? in.readUTF() : null)
+                        .build());
+            }
+            return violations;
+        } catch (IOException | IllegalArgumentException e) {
+            // the broken cache will be overwritten
+            return null;
+        }
+    }
+
+    /**
+     * put the violations, the failure to write the cache is ignored since the cache is only an optimization
+     *
+     * @param configKey     the key of the configuration
+     * @param path          the old path of the blob
+     * @param blobId        the id of the old blob
+     * @param violations    the violations of the old blob
+     */
+    public void put(String configKey, String path, AnyObjectId blobId, List<Violation> violations) {
+        File file = getCacheFile(configKey, path, blobId);
+        File tempFile = null;
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile.toPath())))) {
+                out.writeInt(violations.size());
+                for (Violation violation : violations) {
+                    out.writeInt(violation.getLine());
+                    out.writeInt(violation.getColumn());
+                    out.writeUTF(violation.getSeverityLevel().getName());
+                    out.writeUTF(violation.getMessage());
+                    out.writeUTF(violation.getSourceName());
+                    out.writeBoolean(violation.getModuleId() != null);
+                    if (violation.getModuleId() != null) {
+                        out.writeUTF(violation.getModuleId());
+                    }
+                }
+            }
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private File getCacheFile(String configKey, String path, AnyObjectId blobId) {
+        MessageDigest digest = Constants.newMessageDigest();
+        digest.update(toBytes(path + "\0" + blobId.name()));
+        return new File(cacheDir, configKey + File.separator + ObjectId.fromRaw(digest.digest()).name());
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,225 @@
+package io.github.yangziwen.checkstyle.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+
+import io.github.yangziwen.checkstyle.checker.FileBufferingAuditListener;
+import io.github.yangziwen.checkstyle.diff.DiffEntryWrapper;
+import io.github.yangziwen.checkstyle.diff.DiffHelper;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The batch checker
+ * check the changed lines of many repositories in a single process,
+ * the repositories share the engine (thus the loaded configuration), the caches of the request
+ * and the window cache of jgit, at most threadsNumber repositories are diffed or checked at the same time,
+ * each with a single checker thread, so the threads are bounded globally,
+ * the events of all the repositories go to the same listener file by file,
+ * and a failed repository is recorded in its result without stopping the others,
+ * the files of a head revision other than the checked out one are spooled from the git objects,
+ * and their events are reported with the paths in the repository
+ *
+ * @author yangziwen
+ */
+@Getter
+@Builder
+public class BatchChecker {
+
+    private DiffCheckstyleEngine engine;
+
+    /**
+     * the options shared by the repositories, the repository and the revisions are taken from the entries
+     */
+    @Builder.Default
+    private CheckRequest request = CheckRequest.builder().build();
+
+    @Builder.Default
+    private int threadsNumber = 1;
+
+    /**
+     * calculate the diff entries of the repositories
+     *
+     * @param entries   the repositories and their revisions
+     * @return the results with the diff entries or the failures, in the order of the entries
+     */
+    public List<BatchResult> calculateDiffs(List<BatchEntry> entries) {
+        return invokeAll(entries.stream()
+                .map(entry -> (Callable<BatchResult>) () -> calculateDiff(entry))
+                .collect(Collectors.toList()));
+    }
+
+    private BatchResult calculateDiff(BatchEntry entry) {
+        long startMillis = System.currentTimeMillis();
+        BatchResult.BatchResultBuilder builder = BatchResult.builder().entry(entry);
+        try {
+            builder.diffEntries(DiffCheckstyleEngine.calculateDiffEntries(createRequest(entry)));
+        } catch (CheckstyleException | RuntimeException e) {
+            builder.failure(e);
+        }
+        return builder.elapsedMillis(System.currentTimeMillis() - startMillis).build();
+    }
+
+    /**
+     * check the changed files of the repositories, the audit is started and finished only once on the listener
+     *
+     * @param diffs     the results of {@link #calculateDiffs(List)}
+     * @param listener  the listener to receive the events of all the repositories
+     * @return the results with the error counts or the failures, in the order of the diffs
+     */
+    public List<BatchResult> check(List<BatchResult> diffs, AuditListener listener) {
+        listener.auditStarted(new AuditEvent(this));
+        try {
+            return invokeAll(diffs.stream()
+                    .map(diff -> (Callable<BatchResult>) () -> check(diff, listener))
+                    .collect(Collectors.toList()));
+        } finally {
+            listener.auditFinished(new AuditEvent(this));
+        }
+    }
+
+    private BatchResult check(BatchResult diff, AuditListener listener) {
+        if (diff.getFailure() != null || diff.getDiffEntries().isEmpty()) {
+            return diff;
+        }
+        long startMillis = System.currentTimeMillis();
+        BatchResult.BatchResultBuilder builder = diff.toBuilder();
+        Path spoolDir = null;
+        try {
+            // the buffering listener keeps the audit events away and flushes the files as a whole
+            AuditListener auditListener = new FileBufferingAuditListener(listener, null);
+            CheckRequest request = createRequest(diff.getEntry());
+            Map<String, List<String>> pathMap = new HashMap<>();
+            spoolDir = Files.createTempDirectory("diff-checkstyle-batch");
+            List<DiffEntryWrapper> diffEntries = spoolHeadBlobs(diff.getDiffEntries(), spoolDir, pathMap);
+            if (!pathMap.isEmpty()) {
+                auditListener = new FanOutAuditListener(auditListener, pathMap, null);
+                // the spool files are named differently in each run
+                request = request.toBuilder().timingCache(null).build();
+            }
+            List<File> files = diffEntries.stream()
+                    .map(DiffEntryWrapper::getNewFile)
+                    .collect(Collectors.toList());
+            builder.errorCount(engine.process(files, diffEntries, auditListener, request).getErrorCount());
+        } catch (CheckstyleException | IOException | RuntimeException e) {
+            builder.failure(e);
+        } finally {
+            if (spoolDir != null) {
+                DiffCheckstyleEngine.deleteRecursively(spoolDir);
+            }
+        }
+        return builder.elapsedMillis(diff.getElapsedMillis() + System.currentTimeMillis() - startMillis).build();
+    }
+
+    /**
+     * write the new blobs of the entries to the spool directory unless their commits are checked out,
+     * since the files in the work tree belong to another commit,
+     * each blob is read from the repository of its own entry, e.g. the submodule holding the file
+     *
+     * @param diffEntries   the diff entries of a repository
+     * @param spoolDir      the directory to write the blobs to, with the paths in the repository kept
+     * @param pathMap       the map to fill with the paths in the repository keyed by the spooled paths
+     * @return the diff entries with the spooled ones pointing to the spool directory, in the same order
+     */
+    private static List<DiffEntryWrapper> spoolHeadBlobs(
+            List<DiffEntryWrapper> diffEntries,
+            Path spoolDir,
+            Map<String, List<String>> pathMap) throws IOException {
+        List<DiffEntryWrapper> spooledEntries = new ArrayList<>(diffEntries.size());
+        Map<File, Repository> repositories = new HashMap<>();
+        try {
+            for (DiffEntryWrapper diffEntry : diffEntries) {
+                if (diffEntry.getNewCommitId() == null) {
+                    // the new side is the staging area, which is checked from the work tree
+                    spooledEntries.add(diffEntry);
+                    continue;
+                }
+                Repository repository = repositories.get(diffEntry.getGitDir());
+                if (repository == null) {
+                    repository = DiffHelper.openRepository(diffEntry.getGitDir());
+                    repositories.put(diffEntry.getGitDir(), repository);
+                }
+                if (isCheckedOut(repository, diffEntry.getNewCommitId())) {
+                    spooledEntries.add(diffEntry);
+                    continue;
+                }
+                DiffEntryWrapper spooledEntry = diffEntry.toBuilder()
+                        .gitDir(new File(spoolDir.toFile(), diffEntry.getPathPrefix()))
+                        .build();
+                File file = spooledEntry.getNewFile();
+                Files.createDirectories(file.getParentFile().toPath());
+                try (OutputStream out = Files.newOutputStream(file.toPath())) {
+                    repository.open(diffEntry.getDiffEntry().getNewId().toObjectId(), Constants.OBJ_BLOB)
+                            .copyTo(out);
+                }
+                pathMap.put(file.getAbsolutePath(), Collections.singletonList(diffEntry.getAbsoluteNewPath()));
+                spooledEntries.add(spooledEntry);
+            }
+        } finally {
+            repositories.values().forEach(Repository::close);
+        }
+        return spooledEntries;
+    }
+
+    private static boolean isCheckedOut(Repository repository, String commitId) throws IOException {
+        ObjectId headId = repository.isBare() ? null : repository.resolve(Constants.HEAD);
+        return headId != null && headId.name().equals(commitId);
+    }
+
+    private CheckRequest createRequest(BatchEntry entry) {
+        return request.toBuilder()
+                .repoDir(entry.getRepoDir())
+                .baseRev(entry.getBaseRev())
+                .headRev(entry.getHeadRev())
+                .threadsNumber(1)
+                .failFastThreshold(null)
+                .build();
+    }
+
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(Math.min(threadsNumber, tasks.size()), 1),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "diff-checkstyle-batch");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            // the failures of the repositories are kept in their results, so this only happens on errors
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
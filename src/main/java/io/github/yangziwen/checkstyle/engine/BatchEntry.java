@@ -0,0 +1,69 @@
+package io.github.yangziwen.checkstyle.engine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The batch entry
+ * a repository and the revisions to diff in the batch mode
+ *
+ * @author yangziwen
+ */
+@Getter
+@Builder
+public class BatchEntry {
+
+    private File repoDir;
+
+    private String baseRev;
+
+    @Builder.Default
+    private String headRev = CheckRequest.HEAD;
+
+    /**
+     * parse the manifest, each line holds the repository path, the base revision and the optional head revision
+     * separated by whitespaces, the blank lines and the lines starting with '#' are ignored
+     *
+     * @param reader    the reader of the manifest
+     * @param baseDir   the directory to resolve the relative repository paths
+     * @return the entries in the order of the manifest
+     * @throws IOException  throw IOException when failed to read the manifest
+     * @throws IllegalArgumentException throw IllegalArgumentException when a line is malformed
+     */
+    public static List<BatchEntry> parseManifest(Reader reader, File baseDir) throws IOException {
+        BufferedReader in = reader instanceof BufferedReader
+                ? (BufferedReader) reader
+                : new BufferedReader(reader);
+        List<BatchEntry> entries = new ArrayList<>();
+        int lineNo = 0;
+        for (String line = in.readLine(); line != null; line = in.readLine()) {
+            lineNo++;
+            String content = line.trim();
+            if (content.isEmpty() || content.startsWith("#")) {
+                continue;
+            }
+            String[] fields = content.split("\\s+");
+            if (fields.length < 2 || fields.length > 3) {
+                throw new IllegalArgumentException(String.format(
+                        "line %d of the manifest should be '<repo path> <base rev> [<head rev>]'", lineNo));
+            }
+            File repoDir = new File(fields[0]);
+            BatchEntryBuilder builder = BatchEntry.builder()
+                    .repoDir(repoDir.isAbsolute() || baseDir == null ? repoDir : new File(baseDir, fields[0]))
+                    .baseRev(fields[1]);
+            if (fields.length == 3) {
+                builder.headRev(fields[2]);
+            }
+            entries.add(builder.build());
+        }
+        return entries;
+    }
+
+}
@@ -0,0 +1,40 @@
+package io.github.yangziwen.checkstyle.engine;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.github.yangziwen.checkstyle.diff.DiffEntryWrapper;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The batch result
+ * the diff and the check result of a single repository in the batch mode
+ *
+ * @author yangziwen
+ */
+@Getter
+@Builder(toBuilder = true)
+public class BatchResult {
+
+    private BatchEntry entry;
+
+    @Builder.Default
+    private List<DiffEntryWrapper> diffEntries = Collections.emptyList();
+
+    /**
+     * the number of violations of ERROR level
+     */
+    private int errorCount;
+
+    /**
+     * the time spent on the diff and the check in milliseconds
+     */
+    private long elapsedMillis;
+
+    /**
+     * the failure of the diff or the check, null if succeeded
+     */
+    private Throwable failure;
+
+}
@@ -0,0 +1,86 @@
+package io.github.yangziwen.checkstyle.engine;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import io.github.yangziwen.checkstyle.ast.AstCache;
+import io.github.yangziwen.checkstyle.checker.CheckTimingCache;
+import io.github.yangziwen.checkstyle.diff.DiffCalculator;
+import io.github.yangziwen.checkstyle.diff.FileClassifier;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The check request
+ * the repository, the revision range and the options of a single check
+ *
+ * @author yangziwen
+ */
+@Getter
+@Builder(toBuilder = true)
+public class CheckRequest {
+
+    public static final String HEAD = "HEAD";
+
+    private File repoDir;
+
+    /**
+     * the base revision, defaults to HEAD if the staged codes are included, otherwise HEAD~
+     */
+    private String baseRev;
+
+    @Builder.Default
+    private String headRev = HEAD;
+
+    private boolean includeStagedCodes;
+
+    private boolean mergeBase;
+
+    private boolean prefetchObjects;
+
+    /**
+     * check the changed files inside the changed submodules instead of their gitlink entries
+     */
+    private boolean recurseSubmodules;
+
+    /**
+     * the time budget to diff a single file in milliseconds, unlimited if not positive
+     */
+    @Builder.Default
+    private long diffBudgetMillis = DiffCalculator.DEFAULT_DIFF_BUDGET_MILLIS;
+
+    /**
+     * the changed files containing any of the markers in their headers are treated as generated and skipped
+     */
+    @Builder.Default
+    private List<String> generatedMarkers = FileClassifier.DEFAULT_GENERATED_MARKERS;
+
+    /**
+     * the patterns to exclude the changed files by their paths relative to the repository
+     */
+    @Builder.Default
+    private List<Pattern> excludePatterns = Collections.emptyList();
+
+    @Builder.Default
+    private int threadsNumber = 1;
+
+    /**
+     * the number of errors to stop the check, null if fail fast is disabled
+     */
+    private Integer failFastThreshold;
+
+    private CheckTimingCache timingCache;
+
+    /**
+     * the time limit to check a single file in milliseconds, unlimited if not positive
+     */
+    private long fileTimeoutMillis;
+
+    /**
+     * the cache of the parsed trees, null if the files are always parsed
+     */
+    private AstCache astCache;
+
+}
@@ -0,0 +1,35 @@
+package io.github.yangziwen.checkstyle.engine;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.github.yangziwen.checkstyle.diff.DiffEntryWrapper;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The check result
+ *
+ * @author yangziwen
+ */
+@Getter
+@Builder(toBuilder = true)
+public class CheckResult {
+
+    /**
+     * the number of violations of ERROR level
+     */
+    private int errorCount;
+
+    /**
+     * whether the remaining files are skipped by the fail fast mode
+     */
+    private boolean failFastTriggered;
+
+    @Builder.Default
+    private List<Violation> violations = Collections.emptyList();
+
+    @Builder.Default
+    private List<DiffEntryWrapper> diffEntries = Collections.emptyList();
+
+}
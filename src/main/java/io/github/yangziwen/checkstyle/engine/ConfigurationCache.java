@@ -0,0 +1,206 @@
+package io.github.yangziwen.checkstyle.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.ModuleFactory;
+import com.puppycrawl.tools.checkstyle.PackageObjectFactory;
+import com.puppycrawl.tools.checkstyle.ThreadModeSettings;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
+
+import io.github.yangziwen.checkstyle.CheckstyleVersion;
+
+/**
+ * The configuration cache
+ * keep the loaded configurations serialized on disk,
+ * keyed by the hash of the configuration content, the values of the referenced properties and the checkstyle version,
+ * the module names are resolved to the fully qualified class names before stored,
+ * so a cached configuration skips both the xml parsing and the package name resolution,
+ * the cache is bypassed when the checkstyle version can not be resolved
+ *
+ * @author yangziwen
+ */
+public class ConfigurationCache {
+
+    public static final File DEFAULT_CACHE_DIR = new File(System.getProperty("user.home"),
+            ".diff-checkstyle" + File.separator + "config-cache");
+
+    /** increase it when the layout of the cached configuration changes */
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String CACHE_FILE_SUFFIX = ".ser";
+
+    private static final Pattern PROPERTY_REFERENCE_PATTERN = Pattern.compile("\\$\\{([^}]+)\\}");
+
+    private final File cacheDir;
+
+    private final ClassLoader moduleClassLoader;
+
+    private final String checkstyleVersion;
+
+    public ConfigurationCache(File cacheDir) {
+        this(cacheDir, Checker.class.getClassLoader());
+    }
+
+    public ConfigurationCache(File cacheDir, ClassLoader moduleClassLoader) {
+        this(cacheDir, moduleClassLoader, CheckstyleVersion.get());
+    }
+
+    ConfigurationCache(File cacheDir, ClassLoader moduleClassLoader, String checkstyleVersion) {
+        this.cacheDir = cacheDir;
+        this.moduleClassLoader = moduleClassLoader;
+        this.checkstyleVersion = checkstyleVersion;
+    }
+
+    /**
+     * load the configuration from the cache, or from the location and then put it into the cache
+     *
+     * @param configLocation            the location of the configuration file
+     * @param properties                the properties to expand the configuration
+     * @param executeIgnoredModules     whether to execute the modules with ignore severity
+     * @return the configuration
+     * @throws CheckstyleException      throw CheckstyleException when failed to load the configuration
+     */
+    public Configuration load(
+            String configLocation,
+            Properties properties,
+            boolean executeIgnoredModules) throws CheckstyleException {
+        if (checkstyleVersion == null) {
+            // a cached configuration may refer to the modules of another checkstyle version
+            return DiffCheckstyleEngine.loadConfiguration(configLocation, properties, executeIgnoredModules);
+        }
+        byte[] content = readContent(configLocation);
+        File cacheFile = new File(cacheDir,
+                computeKey(content, properties, executeIgnoredModules, checkstyleVersion) + CACHE_FILE_SUFFIX);
+        Configuration configuration = readCacheFile(cacheFile);
+        if (configuration != null) {
+            return configuration;
+        }
+        ModuleFactory factory = new PackageObjectFactory(Checker.class.getPackage().getName(), moduleClassLoader);
+        configuration = resolveModuleNames(
+                DiffCheckstyleEngine.loadConfiguration(configLocation, properties, executeIgnoredModules),
+                factory);
+        writeCacheFile(cacheFile, configuration);
+        return configuration;
+    }
+
+    /**
+     * compute the cache key, only the properties referenced by the configuration take part in it
+     */
+    static String computeKey(
+            byte[] content,
+            Properties properties,
+            boolean executeIgnoredModules,
+            String checkstyleVersion) {
+        MessageDigest digest = Constants.newMessageDigest();
+        digest.update(content);
+        TreeSet<String> propertyNames = new TreeSet<>();
+        Matcher matcher = PROPERTY_REFERENCE_PATTERN.matcher(new String(content, StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            propertyNames.add(matcher.group(1));
+        }
+        for (String name : propertyNames) {
+            digest.update(toBytes("\n" + name + "=" + properties.getProperty(name)));
+        }
+        digest.update(toBytes("\nexecuteIgnoredModules=" + executeIgnoredModules));
+        digest.update(toBytes("\ncheckstyle=" + checkstyleVersion));
+        digest.update(toBytes("\nformat=" + FORMAT_VERSION));
+        return ObjectId.fromRaw(digest.digest()).name();
+    }
+
+    /**
+     * copy the configuration tree with the module names replaced by the class names of the modules
+     */
+    static Configuration resolveModuleNames(Configuration configuration, ModuleFactory factory)
+            throws CheckstyleException {
+        Object module = factory.createModule(configuration.getName());
+        DefaultConfiguration resolved = new DefaultConfiguration(
+                module.getClass().getName(), ThreadModeSettings.SINGLE_THREAD_MODE_INSTANCE);
+        for (String attributeName : configuration.getAttributeNames()) {
+            resolved.addAttribute(attributeName, configuration.getAttribute(attributeName));
+        }
+        configuration.getMessages().forEach(resolved::addMessage);
+        for (Configuration child : configuration.getChildren()) {
+            resolved.addChild(resolveModuleNames(child, factory));
+        }
+        return resolved;
+    }
+
+    private static byte[] readContent(String configLocation) throws CheckstyleException {
+        try (InputStream in = CommonUtil.getUriByFilename(configLocation).toURL().openStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new CheckstyleException("unable to read " + configLocation, e);
+        }
+    }
+
+    /**
+     * @return the cached configuration, or null if absent or unreadable
+     */
+    private static Configuration readCacheFile(File cacheFile) {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(Files.newInputStream(cacheFile.toPath())))) {
+            return (Configuration) in.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            // the broken cache will be overwritten
+            return null;
+        }
+    }
+
+    /**
+     * the cache is only an optimization, so the failure to write it is ignored
+     */
+    private static void writeCacheFile(File cacheFile, Configuration configuration) {
+        File tempFile = null;
+        try {
+            Files.createDirectories(cacheFile.getParentFile().toPath());
+            tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheFile.getParentFile());
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile.toPath()));
+                    ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+                objectOut.writeObject(configuration);
+            }
+            Files.move(tempFile.toPath(), cacheFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
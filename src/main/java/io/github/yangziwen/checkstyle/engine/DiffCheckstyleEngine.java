@@ -0,0 +1,714 @@
+package io.github.yangziwen.checkstyle.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToLongFunction;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.DiffEntry.ChangeType;
+import org.eclipse.jgit.diff.HistogramDiff;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.util.StringUtils;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
+import com.puppycrawl.tools.checkstyle.ModuleFactory;
+import com.puppycrawl.tools.checkstyle.PackageObjectFactory;
+import com.puppycrawl.tools.checkstyle.PropertiesExpander;
+import com.puppycrawl.tools.checkstyle.ThreadModeSettings;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.RootModule;
+
+import io.github.yangziwen.checkstyle.ast.AstCache;
+import io.github.yangziwen.checkstyle.ast.CachingTreeWalker;
+import io.github.yangziwen.checkstyle.ast.CachingTreeWalkerModuleFactory;
+import io.github.yangziwen.checkstyle.checker.CheckBatch;
+import io.github.yangziwen.checkstyle.checker.CheckTask;
+import io.github.yangziwen.checkstyle.checker.CheckTaskScheduler;
+import io.github.yangziwen.checkstyle.checker.FailFastController;
+import io.github.yangziwen.checkstyle.checker.FileCostEstimator;
+import io.github.yangziwen.checkstyle.checker.ParallelChecker;
+import io.github.yangziwen.checkstyle.diff.DiffCalculator;
+import io.github.yangziwen.checkstyle.diff.DiffEntryWrapper;
+import io.github.yangziwen.checkstyle.diff.DiffHelper;
+import io.github.yangziwen.checkstyle.diff.DiffIndex;
+import io.github.yangziwen.checkstyle.diff.FileClassifier;
+import io.github.yangziwen.checkstyle.diff.MergeBaseResolver;
+import io.github.yangziwen.checkstyle.diff.ObjectPrefetcher;
+import io.github.yangziwen.checkstyle.diff.RevisionBlob;
+import io.github.yangziwen.checkstyle.diff.RevisionTreeScanner;
+import io.github.yangziwen.checkstyle.diff.UnifiedDiffParser;
+import io.github.yangziwen.checkstyle.filter.DiffLineFilter;
+
+/**
+ * The diff checkstyle engine
+ * the reentrant entrance to check the changed lines of a repository,
+ * an engine holds the parsed configuration only, and each check creates its own checkers,
+ * so a single engine could be shared by many threads
+ *
+ * @author yangziwen
+ */
+public class DiffCheckstyleEngine {
+
+    private final Configuration configuration;
+
+    private final ClassLoader moduleClassLoader;
+
+    public DiffCheckstyleEngine(Configuration configuration) {
+        this(configuration, Checker.class.getClassLoader());
+    }
+
+    public DiffCheckstyleEngine(Configuration configuration, ClassLoader moduleClassLoader) {
+        this.configuration = configuration;
+        this.moduleClassLoader = moduleClassLoader;
+    }
+
+    /**
+     * create an engine with the configuration loaded from the location
+     *
+     * @param configLocation            the location of the configuration file
+     * @param properties                the properties to expand the configuration
+     * @param executeIgnoredModules     whether to execute the modules with ignore severity
+     * @return the engine
+     * @throws CheckstyleException      throw CheckstyleException when failed to load the configuration
+     */
+    public static DiffCheckstyleEngine load(
+            String configLocation,
+            Properties properties,
+            boolean executeIgnoredModules) throws CheckstyleException {
+        return new DiffCheckstyleEngine(loadConfiguration(configLocation, properties, executeIgnoredModules));
+    }
+
+    /**
+     * load the configuration in single thread mode,
+     * since the multi-thread modules of checkstyle are not implemented,
+     * and the checker threads are provided by the ParallelChecker instead
+     *
+     * @param configLocation            the location of the configuration file
+     * @param properties                the properties to expand the configuration
+     * @param executeIgnoredModules     whether to execute the modules with ignore severity
+     * @return the configuration
+     * @throws CheckstyleException      throw CheckstyleException when failed to load the configuration
+     */
+    public static Configuration loadConfiguration(
+            String configLocation,
+            Properties properties,
+            boolean executeIgnoredModules) throws CheckstyleException {
+        ConfigurationLoader.IgnoredModulesOptions ignoredModulesOptions = executeIgnoredModules
+                ? ConfigurationLoader.IgnoredModulesOptions.EXECUTE
+                : ConfigurationLoader.IgnoredModulesOptions.OMIT;
+        return ConfigurationLoader.loadConfiguration(
+                configLocation, new PropertiesExpander(properties),
+                ignoredModulesOptions, ThreadModeSettings.SINGLE_THREAD_MODE_INSTANCE);
+    }
+
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * check the changed lines between the revisions of the request
+     *
+     * @param request   the check request
+     * @return the result with the accepted violations
+     * @throws CheckstyleException  throw CheckstyleException when failed to calculate the diff or check the files
+     */
+    public CheckResult check(CheckRequest request) throws CheckstyleException {
+        List<DiffEntryWrapper> diffEntries = calculateDiffEntries(request);
+        List<File> files = diffEntries.stream()
+                .map(DiffEntryWrapper::getNewFile)
+                .collect(Collectors.toList());
+        if (files.isEmpty()) {
+            return CheckResult.builder().build();
+        }
+        ViolationCollector collector = new ViolationCollector();
+        return process(files, diffEntries, collector, request).toBuilder()
+                .violations(collector.getViolations())
+                .build();
+    }
+
+    /**
+     * check the files and report the events accepted by the diff line filter to the listener,
+     * the files sharing the same blob and file name are checked only once,
+     * with the events replayed for each of them and filtered by its own edits
+     *
+     * @param files         the files to check
+     * @param diffEntries   the diff entries of the files, all the lines are checked if empty
+     * @param listener      the listener to receive the events
+     * @param request       the request to provide the execution options
+     * @return the result without violations, which have been reported to the listener
+     * @throws CheckstyleException  throw CheckstyleException when error happens in the checkers
+     */
+    public CheckResult process(
+            List<File> files,
+            List<DiffEntryWrapper> diffEntries,
+            AuditListener listener,
+            CheckRequest request) throws CheckstyleException {
+        Map<String, List<DiffEntryWrapper>> sharedEntries = CollectionUtils.isNotEmpty(diffEntries)
+                ? SharedBlobGrouper.group(diffEntries)
+                : Collections.emptyMap();
+        List<File> checkedFiles = files;
+        List<DiffEntryWrapper> checkedEntries = diffEntries;
+        FanOutAuditListener fanOutListener = null;
+        if (!sharedEntries.isEmpty()) {
+            Set<String> skippedPaths = new HashSet<>();
+            Map<String, List<String>> pathMap = new HashMap<>();
+            sharedEntries.forEach((path, group) -> {
+                List<String> paths = group.stream()
+                        .map(DiffEntryWrapper::getAbsoluteNewPath)
+                        .collect(Collectors.toList());
+                pathMap.put(path, paths);
+                skippedPaths.addAll(paths.subList(1, paths.size()));
+            });
+            checkedFiles = files.stream()
+                    .filter(file -> !skippedPaths.contains(file.getAbsolutePath()))
+                    .collect(Collectors.toList());
+            checkedEntries = diffEntries.stream()
+                    .filter(diffEntry -> !skippedPaths.contains(diffEntry.getAbsoluteNewPath()))
+                    .map(diffEntry -> sharedEntries.containsKey(diffEntry.getAbsoluteNewPath())
+                            ? mergeSharedEntries(sharedEntries.get(diffEntry.getAbsoluteNewPath()))
+                            : diffEntry)
+                    .collect(Collectors.toList());
+            fanOutListener = new FanOutAuditListener(listener, pathMap, new DiffLineFilter(diffEntries));
+        }
+        DiffLineFilter diffLineFilter = CollectionUtils.isNotEmpty(checkedEntries)
+                ? new DiffLineFilter(checkedEntries)
+                : null;
+        ToLongFunction<File> costFunction = isScheduled(request)
+                ? new FileCostEstimator(request.getTimingCache(), checkedEntries, checkedFiles)::estimate
+                : null;
+        CheckResult result = process(checkedFiles, costFunction, diffLineFilter, null,
+                fanOutListener != null ? fanOutListener : listener, request);
+        return result.toBuilder()
+                .errorCount(fanOutListener != null ? fanOutListener.getErrorCount() : result.getErrorCount())
+                .diffEntries(diffEntries != null ? diffEntries : Collections.emptyList())
+                .build();
+    }
+
+    /**
+     * merge the entries sharing the same content into the first one with the edits of all of them,
+     * so the checked file keeps the violations wanted by any of the paths
+     */
+    private static DiffEntryWrapper mergeSharedEntries(List<DiffEntryWrapper> group) {
+        DiffEntryWrapper first = group.get(0);
+        return DiffEntryWrapper.builder()
+                .gitDir(first.getGitDir())
+                .newCommitId(first.getNewCommitId())
+                .diffEntry(first.getDiffEntry())
+                .editList(group.stream()
+                        .flatMap(diffEntry -> diffEntry.getEditList().stream())
+                        .collect(Collectors.toList()))
+                .diffFallback(first.getDiffFallback())
+                .build();
+    }
+
+    /**
+     * a single worker without the time limit checks the files in order without scheduling
+     */
+    private static boolean isScheduled(CheckRequest request) {
+        return request.getThreadsNumber() > 1 || request.getFileTimeoutMillis() > 0;
+    }
+
+    private CheckResult process(
+            List<File> files,
+            ToLongFunction<File> costFunction,
+            DiffLineFilter diffLineFilter,
+            RevisionBlobSpooler spooler,
+            AuditListener listener,
+            CheckRequest request) throws CheckstyleException {
+        FailFastController failFastController = request.getFailFastThreshold() != null
+                ? new FailFastController(request.getFailFastThreshold())
+                : null;
+        int errorCount;
+        if (isScheduled(request)) {
+            List<CheckTask> tasks = files.stream()
+                    .map(file -> CheckTask.builder()
+                            .file(file)
+                            .cost(costFunction.applyAsLong(file))
+                            .build())
+                    .collect(Collectors.toList());
+            // a single worker gains nothing from the scheduling, so the files are kept in order
+            List<CheckBatch> batches = request.getThreadsNumber() > 1
+                    ? new CheckTaskScheduler(request.getThreadsNumber()).schedule(tasks)
+                    : Collections.singletonList(CheckBatch.of(tasks));
+            errorCount = ParallelChecker.builder()
+                    .rootModuleFactory(() -> createRootModule(
+                            diffLineFilter, failFastController, request.getAstCache(), spooler))
+                    .listener(listener)
+                    .threadsNumber(request.getThreadsNumber())
+                    .timingCache(request.getTimingCache())
+                    .failFastController(failFastController)
+                    .fileTimeoutMillis(request.getFileTimeoutMillis())
+                    .build()
+                    .process(batches);
+        } else {
+            RootModule rootModule = createRootModule(
+                    diffLineFilter, failFastController, request.getAstCache(), spooler);
+            try {
+                rootModule.addListener(listener);
+                errorCount = rootModule.process(files);
+            } finally {
+                rootModule.destroy();
+            }
+        }
+        return CheckResult.builder()
+                .errorCount(errorCount)
+                .failFastTriggered(failFastController != null && failFastController.isTriggered())
+                .build();
+    }
+
+    /**
+     * check the whole new files and report only the violations which are not found in the old blobs,
+     * the old blobs are checked in the background while the new files are checked,
+     * and their violations are cached by the blob ids if the baseline cache is provided,
+     * the fail fast is not applied since the errors are not known until they are compared with the old ones
+     *
+     * @param diffEntries       the diff entries of the files to check
+     * @param listener          the listener to receive the new violations
+     * @param request           the request to provide the repository and the execution options
+     * @param baselineCache     the cache of the old violations, null if the old blobs are always checked
+     * @return the result with the number of the new errors
+     * @throws CheckstyleException  throw CheckstyleException when error happens in checking either side
+     */
+    public CheckResult ratchet(
+            List<DiffEntryWrapper> diffEntries,
+            AuditListener listener,
+            CheckRequest request,
+            BaselineCache baselineCache) throws CheckstyleException {
+        CheckRequest ratchetRequest = request.toBuilder().failFastThreshold(null).build();
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "diff-checkstyle-baseline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Future<Map<String, List<Violation>>> baselineFuture = executor.submit(
+                    () -> checkBaseline(diffEntries, ratchetRequest, baselineCache));
+            RatchetAuditListener ratchetListener = new RatchetAuditListener(listener, diffEntries, baselineFuture);
+            List<File> files = diffEntries.stream()
+                    .map(DiffEntryWrapper::getNewFile)
+                    .collect(Collectors.toList());
+            CheckResult result = process(files, Collections.emptyList(), ratchetListener, ratchetRequest);
+            // surface the failure of the old side, which is hidden from the listener
+            baselineFuture.get();
+            return result.toBuilder()
+                    .errorCount(ratchetListener.getErrorCount())
+                    .diffEntries(diffEntries)
+                    .build();
+        } catch (ExecutionException e) {
+            throw new CheckstyleException("error happened when check the old blobs", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CheckstyleException("interrupted when check the old blobs", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * check the blobs of a revision straight from the object database without a checkout,
+     * each blob is written to a spool file right before it is checked and deleted right after,
+     * and its events are replayed for all the paths sharing the blob,
+     * the timing cache is not used since the spool files are named differently in each run
+     *
+     * @param blobs     the blobs of the revision
+     * @param listener  the listener to receive the events with the paths in the repository
+     * @param request   the request to provide the repository and the execution options
+     * @return the result with the number of errors of all the paths
+     * @throws CheckstyleException  throw CheckstyleException when failed to read the blobs or check them
+     */
+    public CheckResult checkRevision(
+            List<RevisionBlob> blobs,
+            AuditListener listener,
+            CheckRequest request) throws CheckstyleException {
+        Path spoolDir = null;
+        try (Git git = Git.open(request.getRepoDir())) {
+            spoolDir = Files.createTempDirectory("diff-checkstyle-revision");
+            List<File> files = new ArrayList<>(blobs.size());
+            Map<String, ObjectId> blobIdMap = new HashMap<>();
+            Map<String, Long> sizeMap = new HashMap<>();
+            Map<String, List<String>> pathMap = new HashMap<>();
+            for (RevisionBlob blob : blobs) {
+                // the first paths of the blobs never collide
+                File file = spoolDir.resolve(blob.getPaths().get(0)).toFile();
+                String fileName = file.getAbsolutePath();
+                files.add(file);
+                blobIdMap.put(fileName, blob.getBlobId());
+                sizeMap.put(fileName, blob.getSize());
+                pathMap.put(fileName, blob.getPaths().stream()
+                        .map(path -> new File(request.getRepoDir(), path).getAbsolutePath())
+                        .collect(Collectors.toList()));
+            }
+            FanOutAuditListener fanOutListener = new FanOutAuditListener(listener, pathMap, null);
+            // the spool files are absent until they are checked, so the costs come from the blob sizes
+            CheckResult result = process(
+                    files,
+                    file -> sizeMap.get(file.getAbsolutePath()) * FileCostEstimator.DEFAULT_NANOS_PER_BYTE,
+                    null,
+                    new RevisionBlobSpooler(git.getRepository(), blobIdMap),
+                    fanOutListener,
+                    request.toBuilder().timingCache(null).build());
+            return result.toBuilder()
+                    .errorCount(fanOutListener.getErrorCount())
+                    .build();
+        } catch (IOException e) {
+            throw new CheckstyleException("error happened when open the repository " + request.getRepoDir(), e);
+        } finally {
+            if (spoolDir != null) {
+                deleteRecursively(spoolDir);
+            }
+        }
+    }
+
+    /**
+     * check the old blobs of the modified, renamed and copied files,
+     * the uncached blobs are written to a temporary directory with their old paths kept,
+     * since some checks depend on the file names,
+     * each blob is read from the repository of its own entry, e.g. the submodule holding the file
+     *
+     * @return the old violations keyed by the absolute paths of the new files
+     */
+    private Map<String, List<Violation>> checkBaseline(
+            List<DiffEntryWrapper> diffEntries,
+            CheckRequest request,
+            BaselineCache baselineCache) throws CheckstyleException, IOException {
+        // the cache is bypassed when the key can not tell the checkstyle versions apart
+        String configKey = baselineCache != null ? BaselineCache.computeConfigKey(configuration) : null;
+        Map<String, List<Violation>> baselines = new HashMap<>();
+        Map<String, DiffEntryWrapper> uncachedEntries = new LinkedHashMap<>();
+        Path tempDir = Files.createTempDirectory("diff-checkstyle-baseline");
+        Map<File, Repository> repositories = new HashMap<>();
+        Map<File, ObjectReader> readers = new HashMap<>();
+        try {
+            for (DiffEntryWrapper diffEntry : diffEntries) {
+                if (!hasOldBlob(diffEntry)) {
+                    continue;
+                }
+                ObjectId oldId = diffEntry.getDiffEntry().getOldId().toObjectId();
+                String oldPath = diffEntry.getDiffEntry().getOldPath();
+                List<Violation> cached = configKey != null ? baselineCache.get(configKey, oldPath, oldId) : null;
+                if (cached != null) {
+                    baselines.put(diffEntry.getAbsoluteNewPath(), cached);
+                    continue;
+                }
+                // the index keeps the files of the same old path apart, e.g. the copied ones
+                File oldFile = tempDir.resolve(uncachedEntries.size() + File.separator + oldPath).toFile();
+                Files.createDirectories(oldFile.getParentFile().toPath());
+                ObjectReader reader = readers.get(diffEntry.getGitDir());
+                if (reader == null) {
+                    Repository repository = DiffHelper.openRepository(diffEntry.getGitDir());
+                    repositories.put(diffEntry.getGitDir(), repository);
+                    reader = repository.newObjectReader();
+                    readers.put(diffEntry.getGitDir(), reader);
+                }
+                try (OutputStream out = Files.newOutputStream(oldFile.toPath())) {
+                    reader.open(oldId, Constants.OBJ_BLOB).copyTo(out);
+                }
+                uncachedEntries.put(oldFile.getAbsolutePath(), diffEntry);
+            }
+            if (uncachedEntries.isEmpty()) {
+                return baselines;
+            }
+            List<File> oldFiles = uncachedEntries.keySet().stream()
+                    .map(File::new)
+                    .collect(Collectors.toList());
+            ViolationCollector collector = new ViolationCollector();
+            process(oldFiles, Collections.emptyList(), collector, request.toBuilder().timingCache(null).build());
+            Map<String, List<Violation>> violationsByFile = collector.getViolations().stream()
+                    .collect(Collectors.groupingBy(Violation::getFileName));
+            for (Map.Entry<String, DiffEntryWrapper> entry : uncachedEntries.entrySet()) {
+                DiffEntryWrapper diffEntry = entry.getValue();
+                List<Violation> violations = violationsByFile.getOrDefault(entry.getKey(), Collections.emptyList());
+                baselines.put(diffEntry.getAbsoluteNewPath(), violations);
+                if (configKey != null) {
+                    baselineCache.put(configKey, diffEntry.getDiffEntry().getOldPath(),
+                            diffEntry.getDiffEntry().getOldId().toObjectId(), violations);
+                }
+            }
+            return baselines;
+        } finally {
+            readers.values().forEach(ObjectReader::close);
+            repositories.values().forEach(Repository::close);
+            deleteRecursively(tempDir);
+        }
+    }
+
+    private static boolean hasOldBlob(DiffEntryWrapper diffEntry) {
+        ChangeType changeType = diffEntry.getDiffEntry().getChangeType();
+        return (changeType == ChangeType.MODIFY || changeType == ChangeType.RENAME || changeType == ChangeType.COPY)
+                && diffEntry.getDiffEntry().getOldId().isComplete();
+    }
+
+    static void deleteRecursively(Path dir) {
+        try (Stream<Path> stream = Files.walk(dir)) {
+            stream.sorted(Comparator.reverseOrder())
+                    .map(Path::toFile)
+                    .forEach(File::delete);
+        } catch (IOException e) {
+            // left to the temporary directory cleanup of the system
+        }
+    }
+
+    /**
+     * calculate the diff entries of the request, the deleted and excluded files are filtered out
+     *
+     * @param request   the check request
+     * @return the diff entries
+     * @throws CheckstyleException  throw CheckstyleException when failed to calculate the diff
+     */
+    public static List<DiffEntryWrapper> calculateDiffEntries(CheckRequest request) throws CheckstyleException {
+        String oldRev = request.getBaseRev();
+        if (StringUtils.isEmptyOrNull(oldRev)) {
+            oldRev = request.isIncludeStagedCodes() ? CheckRequest.HEAD : CheckRequest.HEAD + "~";
+        }
+        DiffCalculator calculator = DiffCalculator.builder()
+                .diffAlgorithm(new HistogramDiff())
+                .objectPrefetcher(request.isPrefetchObjects() ? ObjectPrefetcher.builder().build() : null)
+                .mergeBaseResolver(request.isMergeBase() ? new MergeBaseResolver() : null)
+                .diffBudgetMillis(request.getDiffBudgetMillis())
+                .fileClassifier(FileClassifier.builder()
+                        .generatedMarkers(request.getGeneratedMarkers())
+                        .build())
+                .build();
+        List<DiffEntryWrapper> diffEntries;
+        try {
+            diffEntries = calculator.calculateDiff(request.getRepoDir(), oldRev, request.getHeadRev(),
+                    request.isIncludeStagedCodes());
+        } catch (Exception e) {
+            throw new CheckstyleException("error happened when calculate git diff of " + request.getRepoDir(), e);
+        }
+        if (request.isRecurseSubmodules()) {
+            diffEntries = expandSubmodules(diffEntries, request);
+        }
+        return filterDiffEntries(diffEntries, request.getExcludePatterns());
+    }
+
+    /**
+     * replace the gitlink entries of the changed submodules with the diff entries between their old and new commits,
+     * the submodules are diffed concurrently with at most threadsNumber threads,
+     * and the nested submodules are expanded recursively,
+     * the added and the uninitialized submodules have no old commit or work tree to diff, so they are dropped
+     */
+    private static List<DiffEntryWrapper> expandSubmodules(
+            List<DiffEntryWrapper> diffEntries,
+            CheckRequest request) throws CheckstyleException {
+        List<DiffEntryWrapper> submoduleEntries = diffEntries.stream()
+                .filter(diffEntry -> diffEntry.getDiffEntry().getNewMode() == FileMode.GITLINK)
+                .collect(Collectors.toList());
+        if (submoduleEntries.isEmpty()) {
+            return diffEntries;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(Math.min(request.getThreadsNumber(), submoduleEntries.size()), 1),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "diff-checkstyle-submodule");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            Map<DiffEntryWrapper, Future<List<DiffEntryWrapper>>> futures = new HashMap<>();
+            for (DiffEntryWrapper submoduleEntry : submoduleEntries) {
+                File submoduleDir = submoduleEntry.getNewFile();
+                if (submoduleEntry.getDiffEntry().getChangeType() == ChangeType.MODIFY
+                        && submoduleEntry.getDiffEntry().getOldMode() == FileMode.GITLINK
+                        && new File(submoduleDir, Constants.DOT_GIT).exists()) {
+                    futures.put(submoduleEntry, executor.submit(() -> calculateDiffEntries(request.toBuilder()
+                            .repoDir(submoduleDir)
+                            .baseRev(submoduleEntry.getDiffEntry().getOldId().name())
+                            .headRev(submoduleEntry.getDiffEntry().getNewId().name())
+                            .includeStagedCodes(false)
+                            .mergeBase(false)
+                            // the patterns are matched against the paths relative to the checked repository
+                            .excludePatterns(Collections.emptyList())
+                            .build())));
+                }
+            }
+            List<DiffEntryWrapper> expandedEntries = new ArrayList<>();
+            for (DiffEntryWrapper diffEntry : diffEntries) {
+                if (diffEntry.getDiffEntry().getNewMode() != FileMode.GITLINK) {
+                    expandedEntries.add(diffEntry);
+                    continue;
+                }
+                Future<List<DiffEntryWrapper>> future = futures.get(diffEntry);
+                if (future == null) {
+                    continue;
+                }
+                for (DiffEntryWrapper nestedEntry : future.get()) {
+                    expandedEntries.add(nestedEntry.toBuilder()
+                            .pathPrefix(diffEntry.getNewPath() + "/" + nestedEntry.getPathPrefix())
+                            .build());
+                }
+            }
+            return expandedEntries;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CheckstyleException) {
+                throw (CheckstyleException) e.getCause();
+            }
+            throw new CheckstyleException("error happened when calculate git diff of the submodules", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CheckstyleException("interrupted when calculate git diff of the submodules", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * scan the source files of the head revision of the request,
+     * the excluded, binary and generated files are skipped
+     *
+     * @param request   the check request
+     * @return the blobs of the revision
+     * @throws CheckstyleException  throw CheckstyleException when failed to read the trees
+     */
+    public static List<RevisionBlob> scanRevision(CheckRequest request) throws CheckstyleException {
+        RevisionTreeScanner scanner = RevisionTreeScanner.builder()
+                .threadsNumber(request.getThreadsNumber())
+                .excludePatterns(request.getExcludePatterns())
+                .fileClassifier(FileClassifier.builder()
+                        .generatedMarkers(request.getGeneratedMarkers())
+                        .build())
+                .build();
+        try {
+            return scanner.scan(request.getRepoDir(), request.getHeadRev());
+        } catch (IOException e) {
+            throw new CheckstyleException("error happened when scan the revision "
+                    + request.getHeadRev() + " of " + request.getRepoDir(), e);
+        }
+    }
+
+    /**
+     * parse the diff entries from an existing unified diff instead of calculating the git diff,
+     * the deleted and excluded files are filtered out
+     *
+     * @param reader            the reader of the unified diff
+     * @param baseDir           the directory which the paths in the diff are relative to
+     * @param excludePatterns   the patterns to exclude the changed files
+     * @return the diff entries
+     * @throws CheckstyleException  throw CheckstyleException when failed to read or parse the diff
+     */
+    public static List<DiffEntryWrapper> parseDiffEntries(
+            Reader reader,
+            File baseDir,
+            List<Pattern> excludePatterns) throws CheckstyleException {
+        try {
+            return filterDiffEntries(new UnifiedDiffParser(baseDir).parse(reader), excludePatterns);
+        } catch (IOException e) {
+            throw new CheckstyleException("error happened when parse the unified diff", e);
+        }
+    }
+
+    /**
+     * write the diff entries of the request to the diff index file,
+     * so the other processes map the index instead of calculating the diff again
+     *
+     * @param request   the check request
+     * @param indexFile the index file
+     * @return the diff entries written to the index
+     * @throws CheckstyleException  throw CheckstyleException when failed to calculate the diff or write the index
+     */
+    public static List<DiffEntryWrapper> writeDiffIndex(CheckRequest request, Path indexFile)
+            throws CheckstyleException {
+        List<DiffEntryWrapper> diffEntries = calculateDiffEntries(request);
+        try {
+            DiffIndex.write(diffEntries, indexFile);
+        } catch (IOException e) {
+            throw new CheckstyleException("error happened when write the diff index " + indexFile, e);
+        }
+        return diffEntries;
+    }
+
+    /**
+     * read the diff entries from the diff index file mapped into memory instead of calculating the git diff,
+     * the excluded files are filtered out
+     *
+     * @param indexFile         the index file written by {@link #writeDiffIndex(CheckRequest, Path)}
+     * @param excludePatterns   the patterns to exclude the changed files
+     * @return the diff entries
+     * @throws CheckstyleException  throw CheckstyleException when failed to map the index or it is invalid
+     */
+    public static List<DiffEntryWrapper> readDiffIndex(
+            Path indexFile,
+            List<Pattern> excludePatterns) throws CheckstyleException {
+        try {
+            return filterDiffEntries(DiffIndex.read(indexFile), excludePatterns);
+        } catch (IOException e) {
+            throw new CheckstyleException("error happened when read the diff index " + indexFile, e);
+        }
+    }
+
+    private static List<DiffEntryWrapper> filterDiffEntries(
+            List<DiffEntryWrapper> diffEntries,
+            List<Pattern> excludePatterns) {
+        return diffEntries.stream()
+                .filter(diffEntry -> !diffEntry.isDeleted())
+                .filter(diffEntry -> excludePatterns.stream()
+                        .noneMatch(p -> p.matcher(diffEntry.getNewPath()).matches()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * create a configured root module, the diff line filter and the fail fast controller will be attached if provided,
+     * the tree walkers are replaced by the caching ones if either the ast cache or the diff line filter is provided
+     * and the checkstyle version is the one mirrored by the caching tree walker,
+     * which drop the violations on the unchanged lines before the tree walker filters,
+     * the diff line filter also works on the checker for the other modules,
+     * the blob spooler is attached as the last file filter if provided
+     */
+    private RootModule createRootModule(
+            DiffLineFilter diffLineFilter,
+            FailFastController failFastController,
+            AstCache astCache,
+            RevisionBlobSpooler spooler) throws CheckstyleException {
+        ModuleFactory factory = new PackageObjectFactory(Checker.class.getPackage().getName(), moduleClassLoader);
+        RootModule rootModule = (RootModule) factory.createModule(configuration.getName());
+        rootModule.setModuleClassLoader(moduleClassLoader);
+        if ((astCache != null || diffLineFilter != null)
+                && CachingTreeWalker.isSupported() && rootModule instanceof Checker) {
+            ((Checker) rootModule).setModuleFactory(
+                    new CachingTreeWalkerModuleFactory(factory, astCache, diffLineFilter));
+        }
+        rootModule.configure(configuration);
+        if (diffLineFilter != null && rootModule instanceof Checker) {
+            ((Checker) rootModule).addFilter(diffLineFilter);
+        }
+        if (failFastController != null && rootModule instanceof Checker) {
+            ((Checker) rootModule).addBeforeExecutionFileFilter(failFastController);
+            rootModule.addListener(failFastController);
+        }
+        if (spooler != null && rootModule instanceof Checker) {
+            ((Checker) rootModule).addBeforeExecutionFileFilter(spooler);
+            rootModule.addListener(spooler);
+        }
+        return rootModule;
+    }
+
+}
@@ -0,0 +1,125 @@
+package io.github.yangziwen.checkstyle.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.Filter;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+/**
+ * The fan out audit listener
+ * collect the events of a checked file and replay them for every path sharing its content,
+ * with the file names replaced by the paths, and filtered by the filter of each path if provided,
+ * the events of the other files are forwarded as they are
+ *
+ * @author yangziwen
+ */
+class FanOutAuditListener implements AuditListener {
+
+    private final AuditListener delegate;
+
+    /** the absolute paths sharing the content keyed by the absolute path of the checked file */
+    private final Map<String, List<String>> pathMap;
+
+    /** the filter to apply to the replayed events, null to replay all of them */
+    private final Filter filter;
+
+    private final Map<String, List<Consumer<String>>> pendingEvents = new ConcurrentHashMap<>();
+
+    private final AtomicInteger errorCount = new AtomicInteger();
+
+    FanOutAuditListener(AuditListener delegate, Map<String, List<String>> pathMap, Filter filter) {
+        this.delegate = delegate;
+        this.pathMap = pathMap;
+        this.filter = filter;
+    }
+
+    /**
+     * @return the number of the forwarded and the replayed violations of error level
+     */
+    int getErrorCount() {
+        return errorCount.get();
+    }
+
+    @Override
+    public void auditStarted(AuditEvent event) {
+        delegate.auditStarted(event);
+    }
+
+    @Override
+    public void auditFinished(AuditEvent event) {
+        delegate.auditFinished(event);
+    }
+
+    @Override
+    public void fileStarted(AuditEvent event) {
+        if (pathMap.containsKey(event.getFileName())) {
+            pendingEvents.put(event.getFileName(), new ArrayList<>());
+        } else {
+            delegate.fileStarted(event);
+        }
+    }
+
+    @Override
+    public void addError(AuditEvent event) {
+        if (!pathMap.containsKey(event.getFileName())) {
+            forwardError(event);
+            return;
+        }
+        collect(event, path -> {
+            AuditEvent renamed = rename(event, path);
+            if (filter == null || filter.accept(renamed)) {
+                forwardError(renamed);
+            }
+        });
+    }
+
+    private void forwardError(AuditEvent event) {
+        if (event.getSeverityLevel() == SeverityLevel.ERROR) {
+            errorCount.incrementAndGet();
+        }
+        delegate.addError(event);
+    }
+
+    @Override
+    public void addException(AuditEvent event, Throwable throwable) {
+        if (!pathMap.containsKey(event.getFileName())) {
+            delegate.addException(event, throwable);
+            return;
+        }
+        collect(event, path -> delegate.addException(rename(event, path), throwable));
+    }
+
+    @Override
+    public void fileFinished(AuditEvent event) {
+        List<Consumer<String>> replays = pendingEvents.remove(event.getFileName());
+        List<String> paths = pathMap.get(event.getFileName());
+        if (replays == null || paths == null) {
+            delegate.fileFinished(event);
+            return;
+        }
+        for (String path : paths) {
+            delegate.fileStarted(rename(event, path));
+            replays.forEach(replay -> replay.accept(path));
+            delegate.fileFinished(rename(event, path));
+        }
+    }
+
+    /**
+     * keep the event until the file is finished, the replay is invoked once for each path
+     */
+    private void collect(AuditEvent event, Consumer<String> replay) {
+        pendingEvents.computeIfAbsent(event.getFileName(), k -> new ArrayList<>()).add(replay);
+    }
+
+    private static AuditEvent rename(AuditEvent event, String fileName) {
+        return new AuditEvent(event.getSource(), fileName, event.getLocalizedMessage());
+    }
+
+}
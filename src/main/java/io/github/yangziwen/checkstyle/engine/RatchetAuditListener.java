@@ -0,0 +1,217 @@
+package io.github.yangziwen.checkstyle.engine;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.eclipse.jgit.diff.Edit;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+import io.github.yangziwen.checkstyle.diff.DiffEntryWrapper;
+
+/**
+ * The ratchet audit listener
+ * forward only the violations of the new files which are not found in their old blobs,
+ * the old violations are mapped onto the new lines through the edits,
+ * a violation on an unchanged line matches the old one on the mapped line,
+ * and a violation inside an edit matches the old one inside the same edit,
+ * each old violation matches at most one new violation of the same check with the same message,
+ * where the line and column numbers the messages refer to are ignored, since they move with the unrelated edits,
+ * but the other arguments are kept, so e.g. a method growing longer is still reported
+ *
+ * @author yangziwen
+ */
+class RatchetAuditListener implements AuditListener {
+
+    /** the positions referred to by the messages, e.g. "Duplicate import to line 3" or "at column 5" */
+    private static final Pattern POSITION_PATTERN =
+            Pattern.compile("\\b(line|column)(\\s+)\\d+", Pattern.CASE_INSENSITIVE);
+
+    private final AuditListener delegate;
+
+    private final Map<String, List<Edit>> fileEditMap = new HashMap<>();
+
+    /** the violations of the old blobs keyed by the absolute paths of the new files */
+    private final Future<Map<String, List<Violation>>> baselineFuture;
+
+    /** the count of the unmatched old violations keyed by their locations, checks and normalized messages */
+    private final Map<String, Map<String, Integer>> remainingBaselines = new ConcurrentHashMap<>();
+
+    private final AtomicInteger errorCount = new AtomicInteger();
+
+    RatchetAuditListener(
+            AuditListener delegate,
+            List<DiffEntryWrapper> diffEntries,
+            Future<Map<String, List<Violation>>> baselineFuture) {
+        this.delegate = delegate;
+        this.baselineFuture = baselineFuture;
+        for (DiffEntryWrapper diffEntry : diffEntries) {
+            fileEditMap.put(diffEntry.getAbsoluteNewPath(), diffEntry.getEditList());
+        }
+    }
+
+    /**
+     * @return the number of the forwarded violations of error level
+     */
+    int getErrorCount() {
+        return errorCount.get();
+    }
+
+    @Override
+    public void addError(AuditEvent event) {
+        if (event.getSeverityLevel() != SeverityLevel.IGNORE && isPreexisting(event)) {
+            return;
+        }
+        if (event.getSeverityLevel() == SeverityLevel.ERROR) {
+            errorCount.incrementAndGet();
+        }
+        delegate.addError(event);
+    }
+
+    private boolean isPreexisting(AuditEvent event) {
+        Map<String, Integer> remaining = remainingBaselines.computeIfAbsent(event.getFileName(), this::loadBaseline);
+        String key = createKey(locateNewLine(event.getLine(), getEdits(event.getFileName())),
+                event.getSourceName(), event.getModuleId(), event.getMessage());
+        synchronized (remaining) {
+            Integer count = remaining.get(key);
+            if (count == null) {
+                return false;
+            }
+            if (count == 1) {
+                remaining.remove(key);
+            } else {
+                remaining.put(key, count - 1);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * wait for the old violations of the file, the file is treated as without baseline if the old side failed,
+     * and the failure is reported by the engine after the check
+     */
+    private Map<String, Integer> loadBaseline(String fileName) {
+        List<Violation> violations;
+        try {
+            violations = baselineFuture.get().get(fileName);
+        } catch (ExecutionException e) {
+            violations = null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            violations = null;
+        }
+        if (violations == null) {
+            return Collections.emptyMap();
+        }
+        List<Edit> edits = getEdits(fileName);
+        Map<String, Integer> remaining = new HashMap<>();
+        for (Violation violation : violations) {
+            String key = createKey(mapOldLine(violation.getLine(), edits),
+                    violation.getSourceName(), violation.getModuleId(), violation.getMessage());
+            remaining.merge(key, 1, Integer::sum);
+        }
+        return remaining;
+    }
+
+    private List<Edit> getEdits(String fileName) {
+        return fileEditMap.getOrDefault(fileName, Collections.emptyList());
+    }
+
+    /**
+     * map the line of the old file to the new file
+     *
+     * @param oldLine   the 1-based line of the old file, or 0 for the file level violations
+     * @param edits     the edits sorted by position
+     * @return the mapped line in the form of "L{line}", or "E{index}" if the line is inside an edit
+     */
+    static String mapOldLine(int oldLine, List<Edit> edits) {
+        if (oldLine <= 0) {
+            return "L" + oldLine;
+        }
+        int index = oldLine - 1;
+        int delta = 0;
+        for (int i = 0; i < edits.size(); i++) {
+            Edit edit = edits.get(i);
+            if (index < edit.getBeginA()) {
+                break;
+            }
+            if (index < edit.getEndA()) {
+                return "E" + i;
+            }
+            delta = edit.getEndB() - edit.getEndA();
+        }
+        return "L" + (oldLine + delta);
+    }
+
+    /**
+     * locate the line of the new file in the same form as {@link #mapOldLine(int, List)}
+     *
+     * @param newLine   the 1-based line of the new file, or 0 for the file level violations
+     * @param edits     the edits sorted by position
+     * @return the line in the form of "L{line}", or "E{index}" if the line is inside an edit
+     */
+    static String locateNewLine(int newLine, List<Edit> edits) {
+        if (newLine <= 0) {
+            return "L" + newLine;
+        }
+        int index = newLine - 1;
+        for (int i = 0; i < edits.size(); i++) {
+            Edit edit = edits.get(i);
+            if (index < edit.getBeginB()) {
+                break;
+            }
+            if (index < edit.getEndB()) {
+                return "E" + i;
+            }
+        }
+        return "L" + newLine;
+    }
+
+    private static String createKey(String location, String sourceName, String moduleId, String message) {
+        return location + '\0' + sourceName + '\0' + moduleId + '\0' + normalizeMessage(message);
+    }
+
+    /**
+     * @param message   the message of the violation
+     * @return the message with the line and column numbers it refers to replaced by '#'
+     */
+    static String normalizeMessage(String message) {
+        return message != null ? POSITION_PATTERN.matcher(message).replaceAll("$1$2#") : null;
+    }
+
+    @Override
+    public void auditStarted(AuditEvent event) {
+        delegate.auditStarted(event);
+    }
+
+    @Override
+    public void auditFinished(AuditEvent event) {
+        delegate.auditFinished(event);
+    }
+
+    @Override
+    public void fileStarted(AuditEvent event) {
+        delegate.fileStarted(event);
+    }
+
+    @Override
+    public void fileFinished(AuditEvent event) {
+        remainingBaselines.remove(event.getFileName());
+        delegate.fileFinished(event);
+    }
+
+    @Override
+    public void addException(AuditEvent event, Throwable throwable) {
+        delegate.addException(event, throwable);
+    }
+
+}
@@ -0,0 +1,89 @@
+package io.github.yangziwen.checkstyle.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.BeforeExecutionFileFilter;
+
+/**
+ * The revision blob spooler
+ * write a blob to its spool file right before the checker reads it, and delete the file once it is finished,
+ * since the checker only reads the files from disk, which keeps at most one blob per worker on disk,
+ * it should be the last file filter of the checker so the rejected files are never written,
+ * a single instance could be shared by the checkers of all the workers
+ *
+ * @author yangziwen
+ */
+class RevisionBlobSpooler implements BeforeExecutionFileFilter, AuditListener {
+
+    private final Repository repository;
+
+    /** the blob ids keyed by the absolute paths of the spool files */
+    private final Map<String, ObjectId> blobIdMap;
+
+    RevisionBlobSpooler(Repository repository, Map<String, ObjectId> blobIdMap) {
+        this.repository = repository;
+        this.blobIdMap = blobIdMap;
+    }
+
+    @Override
+    public boolean accept(String uri) {
+        ObjectId blobId = blobIdMap.get(uri);
+        if (blobId == null) {
+            return true;
+        }
+        File file = new File(uri);
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            try (OutputStream out = Files.newOutputStream(file.toPath())) {
+                repository.open(blobId, Constants.OBJ_BLOB).copyTo(out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to read the blob " + blobId.name(), e);
+        }
+        return true;
+    }
+
+    @Override
+    public void fileFinished(AuditEvent event) {
+        if (event.getFileName() != null && blobIdMap.containsKey(event.getFileName())) {
+            new File(event.getFileName()).delete();
+        }
+    }
+
+    @Override
+    public void auditStarted(AuditEvent event) {
+        // do nothing
+    }
+
+    @Override
+    public void auditFinished(AuditEvent event) {
+        // do nothing
+    }
+
+    @Override
+    public void fileStarted(AuditEvent event) {
+        // do nothing
+    }
+
+    @Override
+    public void addError(AuditEvent event) {
+        // do nothing
+    }
+
+    @Override
+    public void addException(AuditEvent event, Throwable throwable) {
+        // do nothing
+    }
+
+}
@@ -0,0 +1,74 @@
+package io.github.yangziwen.checkstyle.engine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+
+import io.github.yangziwen.checkstyle.buffer.BufferPool;
+import io.github.yangziwen.checkstyle.buffer.PooledBuffer;
+import io.github.yangziwen.checkstyle.diff.DiffEntryWrapper;
+
+/**
+ * The shared blob grouper
+ * group the diff entries whose new files share the same blob id and file name,
+ * the blob ids recorded by the diff are verified against the files on disk,
+ * since the files being checked might differ from the new side of the diff, e.g. in a dirty working tree
+ *
+ * @author yangziwen
+ */
+final class SharedBlobGrouper {
+
+    private SharedBlobGrouper() {
+    }
+
+    /**
+     * group the diff entries sharing the same content
+     *
+     * @param diffEntries   the diff entries
+     * @return the groups of at least two entries in the order of the diff, keyed by the path of the first entry
+     */
+    static Map<String, List<DiffEntryWrapper>> group(List<DiffEntryWrapper> diffEntries) {
+        Map<String, List<DiffEntryWrapper>> candidates = new LinkedHashMap<>();
+        for (DiffEntryWrapper diffEntry : diffEntries) {
+            AbbreviatedObjectId newId = diffEntry.getDiffEntry().getNewId();
+            // the entries parsed from a unified diff carry no blob ids
+            if (newId == null || !newId.isComplete() || ObjectId.zeroId().equals(newId.toObjectId())) {
+                continue;
+            }
+            String key = newId.name() + "/" + diffEntry.getNewFile().getName();
+            candidates.computeIfAbsent(key, k -> new ArrayList<>()).add(diffEntry);
+        }
+        Map<String, List<DiffEntryWrapper>> groups = new LinkedHashMap<>();
+        for (List<DiffEntryWrapper> candidate : candidates.values()) {
+            if (candidate.size() < 2) {
+                continue;
+            }
+            List<DiffEntryWrapper> group = candidate.stream()
+                    .filter(SharedBlobGrouper::matchesFileContent)
+                    .collect(Collectors.toList());
+            if (group.size() > 1) {
+                groups.put(group.get(0).getAbsoluteNewPath(), group);
+            }
+        }
+        return groups;
+    }
+
+    private static boolean matchesFileContent(DiffEntryWrapper diffEntry) {
+        try (PooledBuffer buffer = BufferPool.DEFAULT.read(diffEntry.getNewFile().toPath())) {
+            ObjectId blobId = new ObjectInserter.Formatter()
+                    .idFor(Constants.OBJ_BLOB, buffer.getArray(), 0, buffer.getLength());
+            return blobId.equals(diffEntry.getDiffEntry().getNewId().toObjectId());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package io.github.yangziwen.checkstyle.engine;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The violation
+ * an accepted audit event detached from the checker
+ *
+ * @author yangziwen
+ */
+@Getter
+@Builder
+public class Violation {
+
+    private String fileName;
+
+    private int line;
+
+    private int column;
+
+    private SeverityLevel severityLevel;
+
+    private String message;
+
+    private String sourceName;
+
+    private String moduleId;
+
+    public static Violation fromEvent(AuditEvent event) {
+        return Violation.builder()
+                .fileName(event.getFileName())
+                .line(event.getLine())
+                .column(event.getColumn())
+                .severityLevel(event.getSeverityLevel())
+                .message(event.getMessage())
+                .sourceName(event.getSourceName())
+                .moduleId(event.getModuleId())
+                .build();
+    }
+
+}
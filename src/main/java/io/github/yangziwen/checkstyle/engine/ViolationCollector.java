@@ -0,0 +1,56 @@
+package io.github.yangziwen.checkstyle.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+/**
+ * The violation collector
+ * collect the accepted events of a single check as violations
+ *
+ * @author yangziwen
+ */
+public class ViolationCollector implements AuditListener {
+
+    private final List<Violation> violations = new ArrayList<>();
+
+    public synchronized List<Violation> getViolations() {
+        return new ArrayList<>(violations);
+    }
+
+    @Override
+    public synchronized void addError(AuditEvent event) {
+        if (event.getSeverityLevel() != SeverityLevel.IGNORE) {
+            violations.add(Violation.fromEvent(event));
+        }
+    }
+
+    @Override
+    public void auditStarted(AuditEvent event) {
+        // do nothing
+    }
+
+    @Override
+    public void auditFinished(AuditEvent event) {
+        // do nothing
+    }
+
+    @Override
+    public void fileStarted(AuditEvent event) {
+        // do nothing
+    }
+
+    @Override
+    public void fileFinished(AuditEvent event) {
+        // do nothing
+    }
+
+    @Override
+    public void addException(AuditEvent event, Throwable throwable) {
+        // do nothing
+    }
+
+}
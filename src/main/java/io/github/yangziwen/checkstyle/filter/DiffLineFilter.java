@@ -7,20 +7,25 @@ import java.util.concurrent.ConcurrentMap;
 import org.apache.commons.collections.CollectionUtils;
 import org.eclipse.jgit.diff.Edit;
 
+import com.puppycrawl.tools.checkstyle.TreeWalkerAuditEvent;
+import com.puppycrawl.tools.checkstyle.TreeWalkerFilter;
 import com.puppycrawl.tools.checkstyle.api.AuditEvent;
 import com.puppycrawl.tools.checkstyle.api.AutomaticBean;
 import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
 import com.puppycrawl.tools.checkstyle.api.Filter;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
 import com.puppycrawl.tools.checkstyle.checks.whitespace.EmptyLineSeparatorCheck;
 
 import io.github.yangziwen.checkstyle.diff.DiffEntryWrapper;
 
 /**
  * The diff line filter
+ * works both as a checker filter and as a tree walker filter,
+ * the latter drops the violations of the tree walker checks before they are turned into audit events
  *
  * @author yangziwen
  */
-public class DiffLineFilter extends AutomaticBean implements Filter {
+public class DiffLineFilter extends AutomaticBean implements Filter, TreeWalkerFilter {
 
     private final ConcurrentMap<String, List<Edit>> fileEditMap = new ConcurrentHashMap<>();
 
@@ -37,19 +42,54 @@ public class DiffLineFilter extends AutomaticBean implements Filter {
      */
     @Override
     public boolean accept(AuditEvent event) {
-        List<Edit> editList = fileEditMap.get(event.getFileName());
+        return findMatchedEdit(fileEditMap.get(event.getFileName()), event) != null;
+    }
+
+    /**
+     * Only accept the violations of the tree walker checks that corresponding to the diff edits
+     *
+     * @return True if the violation is corresponding to the diff edits
+     */
+    @Override
+    public boolean accept(TreeWalkerAuditEvent event) {
+        LocalizedMessage message = event.getLocalizedMessage();
+        return findMatchedEdit(fileEditMap.get(event.getFileName()),
+                message.getLineNo(), message.getSourceName()) != null;
+    }
+
+    /**
+     * Find the edit which the event corresponds to
+     *
+     * @param editList  the edits of the file which the event belongs to
+     * @param event     the audit event
+     * @return the matched edit, or null if there is no such edit
+     */
+    public static Edit findMatchedEdit(List<Edit> editList, AuditEvent event) {
+        LocalizedMessage message = event.getLocalizedMessage();
+        return findMatchedEdit(editList, event.getLine(), message != null ? message.getSourceName() : null);
+    }
+
+    /**
+     * Find the edit which the violation corresponds to
+     *
+     * @param editList      the edits of the file which the violation belongs to
+     * @param line          the line of the violation
+     * @param sourceName    the class name of the check reporting the violation
+     * @return the matched edit, or null if there is no such edit
+     */
+    public static Edit findMatchedEdit(List<Edit> editList, int line, String sourceName) {
         if (CollectionUtils.isEmpty(editList)) {
-            return false;
+            return null;
         }
         for (Edit edit : editList) {
-            if (edit.getBeginB() < event.getLine() && edit.getEndB() >= event.getLine()) {
-                return true;
+            if (edit.getBeginB() < line && edit.getEndB() >= line) {
+                return edit;
             }
-            if (isEmptyLineSeparatorCheck(event) && event.getLine() == edit.getEndB() + 1) {
-                return true;
+            if (isEmptyLineSeparatorCheck(sourceName) && line == edit.getEndB() + 1) {
+                return edit;
             }
         }
-        return false;
+        return null;
     }
 
     @Override
@@ -57,8 +97,8 @@ public class DiffLineFilter extends AutomaticBean implements Filter {
         // do nothing
     }
 
-    private boolean isEmptyLineSeparatorCheck(AuditEvent event) {
-        return EmptyLineSeparatorCheck.class.getName().equals(event.getLocalizedMessage().getSourceName());
+    private static boolean isEmptyLineSeparatorCheck(String sourceName) {
+        return EmptyLineSeparatorCheck.class.getName().equals(sourceName);
     }
 
 }
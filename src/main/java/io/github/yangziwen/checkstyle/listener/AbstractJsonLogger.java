@@ -0,0 +1,248 @@
+package io.github.yangziwen.checkstyle.listener;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.diff.Edit;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.AutomaticBean;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+import io.github.yangziwen.checkstyle.diff.DiffEntryWrapper;
+import io.github.yangziwen.checkstyle.filter.DiffLineFilter;
+
+/**
+ * The base of the json loggers
+ * the events are written to a fixed size buffer as soon as they arrive,
+ * so the memory usage does not grow with the number of events,
+ * all the methods are guarded by a lock to support the multi-threaded checker
+ *
+ * @author yangziwen
+ */
+public abstract class AbstractJsonLogger extends AutomaticBean implements AuditListener {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Object lock = new Object();
+
+    private final Writer writer;
+
+    private final boolean closeStream;
+
+    private final Map<String, DiffEntryWrapper> diffEntryMap;
+
+    private boolean firstElement = true;
+
+    protected AbstractJsonLogger(
+            OutputStream out,
+            OutputStreamOptions outputStreamOptions,
+            List<DiffEntryWrapper> diffEntryList) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.closeStream = outputStreamOptions == OutputStreamOptions.CLOSE;
+        this.diffEntryMap = diffEntryList == null
+                ? Collections.emptyMap()
+                : diffEntryList.stream().collect(Collectors.toMap(
+                        DiffEntryWrapper::getAbsoluteNewPath, Function.identity(), (e1, e2) -> e2));
+    }
+
+    @Override
+    protected void finishLocalSetup() {
+        // do nothing
+    }
+
+    @Override
+    public void auditStarted(AuditEvent event) {
+        synchronized (lock) {
+            writeHeader();
+        }
+    }
+
+    @Override
+    public void auditFinished(AuditEvent event) {
+        synchronized (lock) {
+            writeFooter();
+            try {
+                if (closeStream) {
+                    writer.close();
+                } else {
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public void fileStarted(AuditEvent event) {
+        // do nothing
+    }
+
+    @Override
+    public void fileFinished(AuditEvent event) {
+        // do nothing
+    }
+
+    @Override
+    public void addError(AuditEvent event) {
+        if (event.getSeverityLevel() == SeverityLevel.IGNORE) {
+            return;
+        }
+        DiffEntryWrapper diffEntry = diffEntryMap.get(event.getFileName());
+        Edit edit = diffEntry != null
+                ? DiffLineFilter.findMatchedEdit(diffEntry.getEditList(), event)
+                : null;
+        synchronized (lock) {
+            beginElement();
+            writeViolation(event, diffEntry, edit);
+        }
+    }
+
+    @Override
+    public void addException(AuditEvent event, Throwable throwable) {
+        StringWriter stackTrace = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(stackTrace));
+        synchronized (lock) {
+            writeException(event, stackTrace.toString());
+        }
+    }
+
+    /**
+     * write the beginning of the document, until the opening of the streamed array
+     */
+    protected abstract void writeHeader();
+
+    /**
+     * write the end of the document, from the closing of the streamed array
+     */
+    protected abstract void writeFooter();
+
+    /**
+     * write a violation as an element of the streamed array
+     *
+     * @param event         the audit event
+     * @param diffEntry     the diff entry of the file, could be null
+     * @param edit          the edit matched by the event, could be null
+     */
+    protected abstract void writeViolation(AuditEvent event, DiffEntryWrapper diffEntry, Edit edit);
+
+    /**
+     * write an exception thrown during the check
+     *
+     * @param event         the audit event
+     * @param stackTrace    the stack trace of the exception
+     */
+    protected abstract void writeException(AuditEvent event, String stackTrace);
+
+    /**
+     * write the separator if the element is not the first one of the streamed array
+     */
+    protected void beginElement() {
+        if (!firstElement) {
+            write(",");
+        }
+        firstElement = false;
+    }
+
+    protected void write(String text) {
+        try {
+            writer.write(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected void writeString(String value) {
+        write(value == null ? "null" : "\"" + escape(value) + "\"");
+    }
+
+    protected void writeField(String name, String value) {
+        writeString(name);
+        write(":");
+        writeString(value);
+    }
+
+    protected void writeField(String name, long value) {
+        writeString(name);
+        write(":");
+        write(String.valueOf(value));
+    }
+
+    /**
+     * write the range of the matched edit
+     * the line numbers are 1-based and inclusive, an empty range has its start line greater than its end line
+     *
+     * @param diffEntry     the diff entry of the file
+     * @param edit          the matched edit
+     */
+    protected void writeDiffHunk(DiffEntryWrapper diffEntry, Edit edit) {
+        write("{");
+        writeField("commitId", diffEntry.getNewCommitId());
+        write(",");
+        writeField("path", diffEntry.getNewPath());
+        if (edit != null) {
+            write(",");
+            writeField("type", edit.getType().name());
+            write(",");
+            writeField("oldStartLine", edit.getBeginA() + 1);
+            write(",");
+            writeField("oldEndLine", edit.getEndA());
+            write(",");
+            writeField("newStartLine", edit.getBeginB() + 1);
+            write(",");
+            writeField("newEndLine", edit.getEndB());
+        }
+        if (diffEntry.getDiffFallback() != null) {
+            write(",");
+            writeField("diffFallback", diffEntry.getDiffFallback().name());
+        }
+        write("}");
+    }
+
+    static String escape(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 16);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                    break;
+            }
+        }
+        return builder.toString();
+    }
+
+}
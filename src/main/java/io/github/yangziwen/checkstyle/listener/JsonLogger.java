@@ -0,0 +1,84 @@
+package io.github.yangziwen.checkstyle.listener;
+
+import java.io.OutputStream;
+import java.util.List;
+
+import org.eclipse.jgit.diff.Edit;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+
+import io.github.yangziwen.checkstyle.diff.DiffEntryWrapper;
+
+/**
+ * The json logger
+ * write the events as an array of json objects,
+ * each violation carries the diff hunk it is located in
+ *
+ * @author yangziwen
+ */
+public class JsonLogger extends AbstractJsonLogger {
+
+    public JsonLogger(
+            OutputStream out,
+            OutputStreamOptions outputStreamOptions,
+            List<DiffEntryWrapper> diffEntryList) {
+        super(out, outputStreamOptions, diffEntryList);
+    }
+
+    @Override
+    protected void writeHeader() {
+        write("{");
+        writeField("version", Checker.class.getPackage().getImplementationVersion());
+        write(",");
+        writeString("events");
+        write(":[\n");
+    }
+
+    @Override
+    protected void writeFooter() {
+        write("]}\n");
+    }
+
+    @Override
+    protected void writeViolation(AuditEvent event, DiffEntryWrapper diffEntry, Edit edit) {
+        write("{");
+        writeField("type", "violation");
+        write(",");
+        writeField("file", event.getFileName());
+        write(",");
+        writeField("line", event.getLine());
+        write(",");
+        writeField("column", event.getColumn());
+        write(",");
+        writeField("severity", event.getSeverityLevel().getName());
+        write(",");
+        writeField("message", event.getMessage());
+        write(",");
+        writeField("source", event.getSourceName());
+        if (event.getModuleId() != null) {
+            write(",");
+            writeField("moduleId", event.getModuleId());
+        }
+        if (diffEntry != null) {
+            write(",");
+            writeString("diff");
+            write(":");
+            writeDiffHunk(diffEntry, edit);
+        }
+        write("}\n");
+    }
+
+    @Override
+    protected void writeException(AuditEvent event, String stackTrace) {
+        beginElement();
+        write("{");
+        writeField("type", "exception");
+        write(",");
+        writeField("file", event.getFileName());
+        write(",");
+        writeField("stackTrace", stackTrace);
+        write("}\n");
+    }
+
+}
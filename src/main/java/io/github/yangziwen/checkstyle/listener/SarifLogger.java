@@ -0,0 +1,180 @@
+package io.github.yangziwen.checkstyle.listener;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.diff.Edit;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+import io.github.yangziwen.checkstyle.Main;
+import io.github.yangziwen.checkstyle.diff.DiffEntryWrapper;
+
+/**
+ * The sarif logger
+ * write the events as a SARIF 2.1.0 log with a single run,
+ * the diff hunk of each result is kept in its property bag
+ *
+ * @author yangziwen
+ */
+public class SarifLogger extends AbstractJsonLogger {
+
+    private static final String SARIF_SCHEMA = "https://json.schemastore.org/sarif-2.1.0.json";
+
+    private static final String SARIF_VERSION = "2.1.0";
+
+    private static final String TOOL_NAME = "diff-checkstyle";
+
+    private static final String TOOL_URI = "https://github.com/yangziwen/diff-checkstyle";
+
+    /** the exceptions are rare, so they are kept until the invocation is written at last */
+    private final List<String[]> notifications = new ArrayList<>();
+
+    public SarifLogger(
+            OutputStream out,
+            OutputStreamOptions outputStreamOptions,
+            List<DiffEntryWrapper> diffEntryList) {
+        super(out, outputStreamOptions, diffEntryList);
+    }
+
+    @Override
+    protected void writeHeader() {
+        write("{");
+        writeField("$schema", SARIF_SCHEMA);
+        write(",");
+        writeField("version", SARIF_VERSION);
+        write(",");
+        writeString("runs");
+        write(":[{");
+        writeString("tool");
+        write(":{");
+        writeString("driver");
+        write(":{");
+        writeField("name", TOOL_NAME);
+        write(",");
+        writeField("informationUri", TOOL_URI);
+        String version = Main.class.getPackage().getImplementationVersion();
+        if (version != null) {
+            write(",");
+            writeField("version", version);
+        }
+        write("}},");
+        writeString("results");
+        write(":[\n");
+    }
+
+    @Override
+    protected void writeFooter() {
+        write("],");
+        writeString("invocations");
+        write(":[{");
+        writeString("executionSuccessful");
+        write(":" + notifications.isEmpty());
+        write(",");
+        writeString("toolExecutionNotifications");
+        write(":[");
+        for (int i = 0; i < notifications.size(); i++) {
+            if (i > 0) {
+                write(",");
+            }
+            writeNotification(notifications.get(i)[0], notifications.get(i)[1]);
+        }
+        write("]}]}]}\n");
+    }
+
+    @Override
+    protected void writeViolation(AuditEvent event, DiffEntryWrapper diffEntry, Edit edit) {
+        write("{");
+        writeField("ruleId", event.getModuleId() != null ? event.getModuleId() : getRuleName(event));
+        write(",");
+        writeField("level", toLevel(event.getSeverityLevel()));
+        write(",");
+        writeString("message");
+        write(":{");
+        writeField("text", event.getMessage());
+        write("},");
+        writeString("locations");
+        write(":[{");
+        writeString("physicalLocation");
+        write(":{");
+        writeString("artifactLocation");
+        write(":{");
+        writeField("uri", new File(event.getFileName()).toPath().toUri().toString());
+        write("}");
+        if (event.getLine() > 0) {
+            write(",");
+            writeString("region");
+            write(":{");
+            writeField("startLine", event.getLine());
+            if (event.getColumn() > 0) {
+                write(",");
+                writeField("startColumn", event.getColumn());
+            }
+            write("}");
+        }
+        write("}}]");
+        write(",");
+        writeString("properties");
+        write(":{");
+        writeField("source", event.getSourceName());
+        if (diffEntry != null) {
+            write(",");
+            writeString("diff");
+            write(":");
+            writeDiffHunk(diffEntry, edit);
+        }
+        write("}}\n");
+    }
+
+    @Override
+    protected void writeException(AuditEvent event, String stackTrace) {
+        notifications.add(new String[] {event.getFileName(), stackTrace});
+    }
+
+    private void writeNotification(String fileName, String stackTrace) {
+        write("{");
+        writeField("level", "error");
+        write(",");
+        writeString("message");
+        write(":{");
+        writeField("text", stackTrace);
+        write("}");
+        if (fileName != null) {
+            write(",");
+            writeString("locations");
+            write(":[{");
+            writeString("physicalLocation");
+            write(":{");
+            writeString("artifactLocation");
+            write(":{");
+            writeField("uri", new File(fileName).toPath().toUri().toString());
+            write("}}}]");
+        }
+        write("}");
+    }
+
+    private static String getRuleName(AuditEvent event) {
+        String sourceName = event.getSourceName();
+        String simpleName = sourceName.substring(sourceName.lastIndexOf('.') + 1);
+        return simpleName.endsWith("Check")
+                ? simpleName.substring(0, simpleName.length() - "Check".length())
+                : simpleName;
+    }
+
+    private static String toLevel(SeverityLevel severityLevel) {
+        switch (severityLevel) {
+            case ERROR:
+                return "error";
+            case WARNING:
+                return "warning";
+            case INFO:
+                return "note";
+            default:
+                return "none";
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+package io.github.yangziwen.checkstyle;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CheckstyleVersionTest {
+
+    @Test
+    public void testGet() {
+        String version = CheckstyleVersion.get();
+        Assert.assertNotNull(version);
+        Assert.assertTrue(version, version.matches("\\d+\\.\\d+(\\.\\d+)?(-.+)?"));
+    }
+
+    @Test
+    public void testResolveWithoutMetadata() throws Exception {
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[0], null)) {
+            Assert.assertNull(CheckstyleVersion.resolve(classLoader));
+        }
+        Assert.assertNull(CheckstyleVersion.resolve(null));
+    }
+
+}
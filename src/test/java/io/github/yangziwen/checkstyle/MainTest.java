@@ -0,0 +1,162 @@
+package io.github.yangziwen.checkstyle;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+
+import io.github.yangziwen.checkstyle.ast.AstCache;
+import io.github.yangziwen.checkstyle.engine.CheckRequest;
+import io.github.yangziwen.checkstyle.engine.DiffCheckstyleEngine;
+import io.github.yangziwen.checkstyle.engine.ViolationCollector;
+
+public class MainTest {
+
+    private static final String SOURCE = String.join("\n",
+            "public class Foo {",
+            "",
+            "    // TODO: rename",
+            "    private int Bar;",
+            "",
+            "}",
+            "");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testMultipleConfigsWithAdvisory() throws Exception {
+        File file = writeFile("Foo.java", SOURCE);
+        File strictConfig = writeConfig("strict_checks.xml", "MemberName");
+        File advisoryConfig = writeConfig("advisory_checks.xml", "TodoComment");
+        File strictOutput = new File(folder.getRoot(), "strict.txt");
+        File advisoryOutput = new File(folder.getRoot(), "advisory.xml");
+
+        int exitStatus = Main.execute(
+                "-c", strictConfig.getPath(), "-o", strictOutput.getPath(),
+                "-A", advisoryConfig.getPath(), "-f", "xml", "-o", advisoryOutput.getPath(),
+                file.getPath());
+
+        // only the errors of the strict config count
+        Assert.assertEquals(1, exitStatus);
+        String strictResult = readFile(strictOutput);
+        Assert.assertTrue(strictResult, strictResult.contains("Foo.java:4:17: Name 'Bar' must match pattern"));
+        Assert.assertTrue(strictResult, strictResult.contains("[MemberName]"));
+        Assert.assertFalse(strictResult, strictResult.contains("TodoComment"));
+        String advisoryResult = readFile(advisoryOutput);
+        Assert.assertTrue(advisoryResult, advisoryResult.startsWith("<?xml"));
+        Assert.assertTrue(advisoryResult, advisoryResult.contains("<error line=\"3\""));
+        Assert.assertTrue(advisoryResult, advisoryResult.contains("TodoCommentCheck"));
+        Assert.assertFalse(advisoryResult, advisoryResult.contains("MemberName"));
+    }
+
+    @Test
+    public void testAdvisoryErrorsDoNotAffectExitStatus() throws Exception {
+        File file = writeFile("Foo.java", SOURCE);
+        File strictConfig = writeConfig("strict_checks.xml", "TypeName");
+        File advisoryConfig = writeConfig("advisory_checks.xml", "TodoComment", "MemberName");
+        File strictOutput = new File(folder.getRoot(), "strict.txt");
+        File advisoryOutput = new File(folder.getRoot(), "advisory.txt");
+
+        // the leading -f is shared by the configs without their own
+        int exitStatus = Main.execute("-f", "plain",
+                "-A", advisoryConfig.getPath(), "-o", advisoryOutput.getPath(),
+                "-c", strictConfig.getPath(), "-o", strictOutput.getPath(),
+                file.getPath());
+
+        Assert.assertEquals(0, exitStatus);
+        String strictResult = readFile(strictOutput);
+        Assert.assertFalse(strictResult, strictResult.contains("[ERROR]"));
+        String advisoryResult = readFile(advisoryOutput);
+        Assert.assertTrue(advisoryResult, advisoryResult.contains("[TodoComment]"));
+        Assert.assertTrue(advisoryResult, advisoryResult.contains("[MemberName]"));
+    }
+
+    @Test
+    public void testCreateAstCache() throws Exception {
+        Assert.assertNull(Main.createAstCache(null, 1));
+        Assert.assertNotNull(Main.createAstCache(folder.newFolder("ast-cache").getPath(), 1));
+
+        // the trees parsed for the first config are reused by the second one from memory
+        AstCache astCache = Main.createAstCache(null, 2);
+        Assert.assertNotNull(astCache);
+        File file = writeFile("Foo.java", SOURCE);
+        CheckRequest request = CheckRequest.builder().astCache(astCache).build();
+        for (String checkName : Arrays.asList("MemberName", "TodoComment")) {
+            DefaultConfiguration treeWalkerConfig = new DefaultConfiguration("TreeWalker");
+            treeWalkerConfig.addChild(new DefaultConfiguration(checkName));
+            DefaultConfiguration checkerConfig = new DefaultConfiguration("Checker");
+            checkerConfig.addAttribute("charset", "UTF-8");
+            checkerConfig.addChild(treeWalkerConfig);
+            new DiffCheckstyleEngine(checkerConfig).process(
+                    Collections.singletonList(file),
+                    Collections.emptyList(),
+                    new ViolationCollector(),
+                    request);
+        }
+        Assert.assertEquals(1, astCache.getMissCount());
+        Assert.assertEquals(1, astCache.getHitCount());
+    }
+
+    @Test
+    public void testAstCacheEvictionMessage() throws Exception {
+        // the cache is too small to keep any tree
+        AstCache astCache = new AstCache(null, 0L, 1L);
+        Assert.assertNull(Main.getAstCacheEvictionMessage(astCache, null, 2));
+        File file = writeFile("Foo.java", SOURCE);
+        DefaultConfiguration treeWalkerConfig = new DefaultConfiguration("TreeWalker");
+        treeWalkerConfig.addChild(new DefaultConfiguration("MemberName"));
+        DefaultConfiguration checkerConfig = new DefaultConfiguration("Checker");
+        checkerConfig.addAttribute("charset", "UTF-8");
+        checkerConfig.addChild(treeWalkerConfig);
+        new DiffCheckstyleEngine(checkerConfig).process(
+                Collections.singletonList(file),
+                Collections.emptyList(),
+                new ViolationCollector(),
+                CheckRequest.builder().astCache(astCache).build());
+        Assert.assertEquals(1, astCache.getEvictionCount());
+
+        String message = Main.getAstCacheEvictionMessage(astCache, null, 2);
+        Assert.assertNotNull(message);
+        Assert.assertTrue(message, message.startsWith("1 parsed tree(s) exceeded"));
+        Assert.assertTrue(message, message.endsWith("use --ast-cache to keep them on disk"));
+        // nothing is parsed again with a single config or with the trees kept on disk
+        Assert.assertNull(Main.getAstCacheEvictionMessage(astCache, null, 1));
+        Assert.assertNull(Main.getAstCacheEvictionMessage(astCache, folder.getRoot().getPath(), 2));
+        Assert.assertNull(Main.getAstCacheEvictionMessage(null, null, 2));
+    }
+
+    private File writeConfig(String name, String... checkNames) throws Exception {
+        StringBuilder builder = new StringBuilder()
+                .append("<?xml version=\"1.0\"?>\n")
+                .append("<!DOCTYPE module PUBLIC \"-//Checkstyle//DTD Checkstyle Configuration 1.3//EN\" ")
+                .append("\"https://checkstyle.org/dtds/configuration_1_3.dtd\">\n")
+                .append("<module name=\"Checker\">\n")
+                .append("    <property name=\"charset\" value=\"UTF-8\"/>\n")
+                .append("    <module name=\"TreeWalker\">\n");
+        for (String checkName : checkNames) {
+            builder.append("        <module name=\"").append(checkName).append("\"/>\n");
+        }
+        builder.append("    </module>\n").append("</module>\n");
+        return writeFile(name, builder.toString());
+    }
+
+    private File writeFile(String name, String content) throws Exception {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String readFile(File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,298 @@
+package io.github.yangziwen.checkstyle.ast;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.diff.Edit;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.JavaParser;
+import com.puppycrawl.tools.checkstyle.TreeWalkerAuditEvent;
+import com.puppycrawl.tools.checkstyle.TreeWalkerFilter;
+import com.puppycrawl.tools.checkstyle.api.AutomaticBean;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+
+import io.github.yangziwen.checkstyle.CheckstyleVersion;
+import io.github.yangziwen.checkstyle.diff.DiffEntryWrapper;
+import io.github.yangziwen.checkstyle.diff.DiffHelper;
+import io.github.yangziwen.checkstyle.engine.CheckRequest;
+import io.github.yangziwen.checkstyle.engine.DiffCheckstyleEngine;
+import io.github.yangziwen.checkstyle.engine.ViolationCollector;
+
+public class AstCacheTest {
+
+    private static final String[] SOURCE_LINES = {
+        "package foo;",
+        "",
+        "/**",
+        " * The foo",
+        " */",
+        "public class Foo { // TODO trailing",
+        "",
+        "    /* block */ private int Bar = 1 + 2 + 3;",
+        "",
+        "    // TODO single line",
+        "    String name = \"你好\";",
+        "}",
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testEncodeAndDecode() throws Exception {
+        FileContents contents = new FileContents("Foo.java", SOURCE_LINES);
+        DetailAST parsed = JavaParser.appendHiddenCommentNodes(JavaParser.parse(contents));
+        byte[] data = AstCodec.encode(parsed, contents);
+
+        FileContents replayed = new FileContents("Foo.java", SOURCE_LINES);
+        DetailAST decoded = AstCodec.decode(data, replayed, true);
+        Assert.assertEquals(dump(parsed), dump(decoded));
+        Assert.assertEquals(contents.getSingleLineComments().keySet(), replayed.getSingleLineComments().keySet());
+        Assert.assertEquals(contents.getBlockComments().keySet(), replayed.getBlockComments().keySet());
+        Assert.assertNotNull(replayed.getJavadocBefore(6));
+
+        DetailAST ordinary = JavaParser.parse(new FileContents("Foo.java", SOURCE_LINES));
+        Assert.assertEquals(dump(ordinary), dump(AstCodec.decode(data, null, false)));
+    }
+
+    @Test
+    public void testCheckWithCache() throws Exception {
+        File file = folder.newFile("Foo.java");
+        Files.write(file.toPath(), String.join("\n", SOURCE_LINES).getBytes(StandardCharsets.UTF_8));
+        File cacheDir = new File(folder.getRoot(), "cache");
+
+        List<String> expected = check(file, null);
+        Assert.assertEquals(3, expected.size());
+
+        AstCache coldCache = new AstCache(cacheDir);
+        Assert.assertEquals(expected, check(file, coldCache));
+        Assert.assertEquals(0, coldCache.getHitCount());
+        Assert.assertEquals(1, coldCache.getMissCount());
+
+        AstCache warmCache = new AstCache(cacheDir);
+        Assert.assertEquals(expected, check(file, warmCache));
+        Assert.assertEquals(1, warmCache.getHitCount());
+        Assert.assertEquals(0, warmCache.getMissCount());
+    }
+
+    @Test
+    public void testCachingTreeWalkerMatchesStockTreeWalker() throws Exception {
+        File file = folder.newFile("Foo.java");
+        Files.write(file.toPath(), String.join("\n", SOURCE_LINES).getBytes(StandardCharsets.UTF_8));
+        File cacheDir = new File(folder.getRoot(), "cache");
+        // the lines 6 to 10 are changed
+        List<DiffEntryWrapper> diffEntries = Collections.singletonList(DiffEntryWrapper.builder()
+                .gitDir(folder.getRoot())
+                .diffEntry(DiffHelper.createModifyDiffEntry(file.getName()))
+                .editList(Collections.singletonList(new Edit(5, 10, 5, 10)))
+                .build());
+
+        // the stock tree walker is only kept without the diff, its violations on the changed lines are expected
+        List<String> expected = check(file, null, Collections.emptyList(), true).stream()
+                .filter(violation -> {
+                    int line = Integer.parseInt(violation.substring(0, violation.indexOf(':')));
+                    return line >= 6 && line <= 10;
+                })
+                .collect(Collectors.toList());
+        Assert.assertEquals(Arrays.asList("6:0 Comment matches to-do format 'TODO'.",
+                "10:0 Comment matches to-do format 'TODO'."), expected);
+        Assert.assertEquals(expected, check(file, null, diffEntries, true));
+        Assert.assertEquals(expected, check(file, new AstCache(cacheDir), diffEntries, true));
+        Assert.assertEquals(expected, check(file, new AstCache(cacheDir), diffEntries, true));
+
+        List<String> expectedWithoutDiff = check(file, null, Collections.emptyList(), false);
+        Assert.assertEquals(expectedWithoutDiff, check(file, new AstCache(cacheDir), Collections.emptyList(), false));
+    }
+
+    @Test
+    public void testPreFilterWithoutAstCache() throws Exception {
+        File file = folder.newFile("Foo.java");
+        Files.write(file.toPath(), String.join("\n", SOURCE_LINES).getBytes(StandardCharsets.UTF_8));
+        // only the lines 6 and 7 are changed
+        List<DiffEntryWrapper> diffEntries = Collections.singletonList(DiffEntryWrapper.builder()
+                .gitDir(folder.getRoot())
+                .diffEntry(DiffHelper.createModifyDiffEntry(file.getName()))
+                .editList(Collections.singletonList(new Edit(5, 7, 5, 7)))
+                .build());
+        DefaultConfiguration todoConfig = new DefaultConfiguration("TodoComment");
+        todoConfig.addAttribute("format", "TODO");
+        DefaultConfiguration treeWalkerConfig = new DefaultConfiguration("TreeWalker");
+        treeWalkerConfig.addChild(todoConfig);
+        treeWalkerConfig.addChild(new DefaultConfiguration("MemberName"));
+        treeWalkerConfig.addChild(new DefaultConfiguration(RecordingFilter.class.getName()));
+        DefaultConfiguration checkerConfig = new DefaultConfiguration("Checker");
+        checkerConfig.addAttribute("charset", "UTF-8");
+        checkerConfig.addChild(treeWalkerConfig);
+
+        RecordingFilter.LINES.clear();
+        ViolationCollector collector = new ViolationCollector();
+        new DiffCheckstyleEngine(checkerConfig).process(
+                Collections.singletonList(file),
+                diffEntries,
+                collector,
+                CheckRequest.builder().build());
+        Assert.assertEquals(1, collector.getViolations().size());
+        // the violations on the lines 8 and 10 are dropped before the tree walker filters
+        Assert.assertEquals(Collections.singletonList(6), RecordingFilter.LINES);
+    }
+
+    @Test
+    public void testMirroredCheckstyleVersion() {
+        // fails once checkstyle is bumped, the changes of its TreeWalker must be ported before the pin is moved
+        Assert.assertEquals(CachingTreeWalker.MIRRORED_CHECKSTYLE_VERSION, CheckstyleVersion.get());
+        Assert.assertTrue(CachingTreeWalker.isSupported());
+    }
+
+    @Test
+    public void testMemoryOnlyWithoutCheckstyleVersion() throws Exception {
+        File cacheDir = new File(folder.getRoot(), "cache");
+        String key = AstCache.computeKey("content".getBytes(StandardCharsets.UTF_8), "UTF-8");
+        AstCache cache = new AstCache(cacheDir, AstCache.DEFAULT_MAX_DISK_BYTES,
+                AstCache.DEFAULT_MAX_MEMORY_BYTES, null);
+        cache.put(key, new byte[100]);
+        Assert.assertNotNull(cache.get(key));
+        Assert.assertFalse(cacheDir.exists());
+        Assert.assertNull(new AstCache(cacheDir, AstCache.DEFAULT_MAX_DISK_BYTES,
+                AstCache.DEFAULT_MAX_MEMORY_BYTES, null).get(key));
+    }
+
+    @Test
+    public void testCountEvictionsInMemory() {
+        AstCache cache = new AstCache(null, 0L, 150L);
+        String firstKey = AstCache.computeKey("first".getBytes(StandardCharsets.UTF_8), "UTF-8");
+        String secondKey = AstCache.computeKey("second".getBytes(StandardCharsets.UTF_8), "UTF-8");
+        cache.put(firstKey, new byte[100]);
+        Assert.assertEquals(0, cache.getEvictionCount());
+        cache.put(secondKey, new byte[100]);
+        Assert.assertEquals(1, cache.getEvictionCount());
+        Assert.assertNull(cache.get(firstKey));
+        Assert.assertNotNull(cache.get(secondKey));
+
+        // the tree larger than the whole cache is never kept
+        cache.put(AstCache.computeKey("third".getBytes(StandardCharsets.UTF_8), "UTF-8"), new byte[200]);
+        Assert.assertEquals(2, cache.getEvictionCount());
+        Assert.assertNotNull(cache.get(secondKey));
+    }
+
+    @Test
+    public void testEvict() throws Exception {
+        File cacheDir = new File(folder.getRoot(), "cache");
+        String oldKey = AstCache.computeKey("old".getBytes(StandardCharsets.UTF_8), "UTF-8");
+        String newKey = AstCache.computeKey("new".getBytes(StandardCharsets.UTF_8), "UTF-8");
+        new AstCache(cacheDir).put(oldKey, new byte[100]);
+        new AstCache(cacheDir).put(newKey, new byte[100]);
+        List<File> files = Files.walk(cacheDir.toPath())
+                .filter(Files::isRegularFile)
+                .map(path -> path.toFile())
+                .sorted()
+                .collect(Collectors.toList());
+        Assert.assertEquals(2, files.size());
+        File oldFile = files.stream().filter(f -> oldKey.endsWith(f.getName())).findFirst().get();
+        Assert.assertTrue(oldFile.setLastModified(System.currentTimeMillis() - 60000L));
+
+        // the files not written by the cache are never evicted, however old they are
+        File foreignFile = new File(cacheDir, "notes.txt");
+        File versionDir = oldFile.getParentFile().getParentFile().getParentFile();
+        File strayFile = new File(versionDir, "README");
+        for (File file : Arrays.asList(foreignFile, strayFile)) {
+            Files.write(file.toPath(), new byte[1000]);
+            Assert.assertTrue(file.setLastModified(System.currentTimeMillis() - 120000L));
+        }
+
+        AstCache cache = new AstCache(cacheDir, 150, AstCache.DEFAULT_MAX_MEMORY_BYTES);
+        cache.evict();
+        Assert.assertTrue(foreignFile.exists());
+        Assert.assertTrue(strayFile.exists());
+        Assert.assertFalse(oldFile.exists());
+        Assert.assertNull(cache.get(oldKey));
+        Assert.assertNotNull(cache.get(newKey));
+    }
+
+    private static List<String> check(File file, AstCache astCache) throws Exception {
+        return check(file, astCache, Collections.emptyList(), false);
+    }
+
+    private static List<String> check(
+            File file,
+            AstCache astCache,
+            List<DiffEntryWrapper> diffEntries,
+            boolean suppressMemberName) throws Exception {
+        DefaultConfiguration todoConfig = new DefaultConfiguration("TodoComment");
+        todoConfig.addAttribute("format", "TODO");
+        DefaultConfiguration treeWalkerConfig = new DefaultConfiguration("TreeWalker");
+        treeWalkerConfig.addChild(todoConfig);
+        treeWalkerConfig.addChild(new DefaultConfiguration("MemberName"));
+        if (suppressMemberName) {
+            DefaultConfiguration xpathFilterConfig = new DefaultConfiguration("SuppressionXpathSingleFilter");
+            xpathFilterConfig.addAttribute("checks", "MemberName");
+            xpathFilterConfig.addAttribute("query", "//VARIABLE_DEF[./IDENT[@text='Bar']]/IDENT");
+            treeWalkerConfig.addChild(xpathFilterConfig);
+        }
+        DefaultConfiguration checkerConfig = new DefaultConfiguration("Checker");
+        checkerConfig.addAttribute("charset", "UTF-8");
+        checkerConfig.addChild(treeWalkerConfig);
+        ViolationCollector collector = new ViolationCollector();
+        new DiffCheckstyleEngine(checkerConfig).process(
+                Collections.singletonList(file),
+                diffEntries,
+                collector,
+                CheckRequest.builder().astCache(astCache).build());
+        return collector.getViolations().stream()
+                .map(violation -> violation.getLine() + ":" + violation.getColumn() + " " + violation.getMessage())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The recording filter
+     * record the lines of the messages reaching the tree walker filters
+     *
+     * @author yangziwen
+     */
+    public static class RecordingFilter extends AutomaticBean implements TreeWalkerFilter {
+
+        static final List<Integer> LINES = new CopyOnWriteArrayList<>();
+
+        @Override
+        protected void finishLocalSetup() {
+        }
+
+        @Override
+        public boolean accept(TreeWalkerAuditEvent event) {
+            LINES.add(event.getLine());
+            return true;
+        }
+
+    }
+
+    private static String dump(DetailAST root) {
+        StringBuilder builder = new StringBuilder();
+        for (DetailAST node = root; node != null; node = node.getNextSibling()) {
+            dump(node, 0, builder);
+        }
+        return builder.toString();
+    }
+
+    private static void dump(DetailAST node, int depth, StringBuilder builder) {
+        builder.append(depth).append(' ')
+                .append(node.getType()).append(' ')
+                .append(node.getText()).append(' ')
+                .append(node.getLineNo()).append(':').append(node.getColumnNo()).append(' ')
+                .append(node.getParent() != null ? node.getParent().getType() : -1).append('\n');
+        for (DetailAST child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            dump(child, depth + 1, builder);
+        }
+    }
+
+}
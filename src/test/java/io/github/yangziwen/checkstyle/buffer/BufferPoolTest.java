@@ -0,0 +1,58 @@
+package io.github.yangziwen.checkstyle.buffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BufferPoolTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAcquireAndRelease() {
+        BufferPool pool = new BufferPool(16, 64, 64);
+        byte[] buffer = pool.acquire(17);
+        Assert.assertEquals(32, buffer.length);
+        pool.release(buffer);
+        Assert.assertEquals(32, pool.getIdleBytes());
+        Assert.assertSame(buffer, pool.acquire(20));
+        Assert.assertEquals(0, pool.getIdleBytes());
+        Assert.assertEquals(16, pool.acquire(1).length);
+
+        byte[] large = pool.acquire(65);
+        Assert.assertEquals(65, large.length);
+        pool.release(large);
+        Assert.assertEquals(0, pool.getIdleBytes());
+
+        pool.release(pool.acquire(64));
+        pool.release(pool.acquire(64));
+        Assert.assertEquals(64, pool.getIdleBytes());
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        BufferPool pool = new BufferPool(16, 64, 1024);
+        byte[] content = new byte[100];
+        Arrays.fill(content, (byte) 'a');
+        File file = folder.newFile("A.java");
+        Files.write(file.toPath(), content);
+        try (PooledBuffer buffer = pool.read(file.toPath())) {
+            Assert.assertEquals(100, buffer.getLength());
+            Assert.assertArrayEquals(content, Arrays.copyOf(buffer.getArray(), buffer.getLength()));
+        }
+        // the stream longer than expected grows the buffer
+        PooledBuffer buffer = pool.read(new ByteArrayInputStream(content), 10);
+        Assert.assertEquals(100, buffer.getLength());
+        Assert.assertArrayEquals(content, Arrays.copyOf(buffer.getArray(), buffer.getLength()));
+        buffer.close();
+        Assert.assertNull(buffer.getArray());
+    }
+
+}
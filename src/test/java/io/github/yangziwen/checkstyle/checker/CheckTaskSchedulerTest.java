@@ -0,0 +1,49 @@
+package io.github.yangziwen.checkstyle.checker;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CheckTaskSchedulerTest {
+
+    @Test
+    public void testScheduleLargestFirst() {
+        List<CheckTask> tasks = Arrays.asList(
+                newTask("small1.java", 10),
+                newTask("huge.java", 1000),
+                newTask("small2.java", 20),
+                newTask("medium.java", 300));
+
+        List<CheckBatch> batches = new CheckTaskScheduler(2).schedule(tasks);
+
+        Assert.assertEquals(new File("huge.java"), batches.get(0).getFiles().get(0));
+        Assert.assertEquals(1, batches.get(0).getTasks().size());
+        Assert.assertEquals(1330L, batches.stream().mapToLong(CheckBatch::getCost).sum());
+        Assert.assertEquals(4, batches.stream().mapToInt(batch -> batch.getTasks().size()).sum());
+    }
+
+    @Test
+    public void testScheduleSmallTasksIntoOneBatch() {
+        List<CheckTask> tasks = Arrays.asList(
+                newTask("big.java", 800),
+                newTask("small1.java", 1),
+                newTask("small2.java", 1),
+                newTask("small3.java", 1));
+
+        List<CheckBatch> batches = new CheckTaskScheduler(1).schedule(tasks);
+
+        Assert.assertEquals(2, batches.size());
+        Assert.assertEquals(3, batches.get(1).getTasks().size());
+    }
+
+    private static CheckTask newTask(String fileName, long cost) {
+        return CheckTask.builder()
+                .file(new File(fileName))
+                .cost(cost)
+                .build();
+    }
+
+}
@@ -0,0 +1,34 @@
+package io.github.yangziwen.checkstyle.checker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.checks.naming.MemberNameCheck;
+
+public class FailFastControllerTest {
+
+    @Test
+    public void testTriggeredByErrors() {
+        FailFastController controller = new FailFastController(2);
+        Assert.assertTrue(controller.accept("A.java"));
+
+        controller.addError(newEvent(SeverityLevel.ERROR));
+        controller.addError(newEvent(SeverityLevel.WARNING));
+        Assert.assertFalse(controller.isTriggered());
+        Assert.assertTrue(controller.accept("B.java"));
+
+        controller.addError(newEvent(SeverityLevel.ERROR));
+        Assert.assertTrue(controller.isTriggered());
+        Assert.assertFalse(controller.accept("C.java"));
+    }
+
+    private AuditEvent newEvent(SeverityLevel severityLevel) {
+        LocalizedMessage message = new LocalizedMessage(1, 1, "bundle", "key", null,
+                severityLevel, null, MemberNameCheck.class, "custom message");
+        return new AuditEvent(this, "A.java", message);
+    }
+
+}
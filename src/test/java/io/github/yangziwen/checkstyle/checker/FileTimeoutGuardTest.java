@@ -0,0 +1,104 @@
+package io.github.yangziwen.checkstyle.checker;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+
+import io.github.yangziwen.checkstyle.engine.Violation;
+import io.github.yangziwen.checkstyle.engine.ViolationCollector;
+
+public class FileTimeoutGuardTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static volatile CountDownLatch release;
+
+    @Before
+    public void before() {
+        release = new CountDownLatch(1);
+    }
+
+    @After
+    public void after() {
+        // let go of the abandoned worker in case it was not interrupted
+        release.countDown();
+    }
+
+    @Test
+    public void testTimeoutFileIsReportedAndSkipped() throws Exception {
+        File slowFile = folder.newFile("Slow.java");
+        File normalFile = folder.newFile("Normal.java");
+        Files.write(slowFile.toPath(), "int y;\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(normalFile.toPath(), "int x ;\n".getBytes(StandardCharsets.UTF_8));
+
+        ViolationCollector collector = new ViolationCollector();
+        int errorCount = ParallelChecker.builder()
+                .rootModuleFactory(FileTimeoutGuardTest::createChecker)
+                .listener(collector)
+                .threadsNumber(1)
+                .fileTimeoutMillis(300)
+                .build()
+                .process(Arrays.asList(CheckBatch.of(Arrays.asList(
+                        CheckTask.builder().file(slowFile).cost(1).build(),
+                        CheckTask.builder().file(normalFile).cost(1).build()))));
+
+        Assert.assertEquals(2, errorCount);
+        List<Violation> violations = collector.getViolations();
+        Assert.assertEquals(2, violations.size());
+        Assert.assertEquals(Arrays.asList(slowFile.getAbsolutePath(), normalFile.getAbsolutePath()),
+                violations.stream().map(Violation::getFileName).collect(Collectors.toList()));
+        Assert.assertEquals("Check timed out after 300 ms, the file is skipped", violations.get(0).getMessage());
+        Assert.assertEquals(FileTimeoutGuard.class.getName(), violations.get(0).getSourceName());
+    }
+
+    private static Checker createChecker() throws CheckstyleException {
+        DefaultConfiguration semicolonConfig = new DefaultConfiguration("RegexpSingleline");
+        semicolonConfig.addAttribute("format", " ;");
+        DefaultConfiguration checkerConfig = new DefaultConfiguration("Checker");
+        checkerConfig.addChild(semicolonConfig);
+        Checker checker = new Checker();
+        checker.setModuleClassLoader(Checker.class.getClassLoader());
+        checker.configure(checkerConfig);
+        checker.addFileSetCheck(new BlockingCheck());
+        return checker;
+    }
+
+    /**
+     * blocks on the slow file until released or interrupted,
+     * so the timeout does not depend on how long any real check takes
+     */
+    private static class BlockingCheck extends AbstractFileSetCheck {
+
+        @Override
+        protected void processFiltered(File file, FileText fileText) {
+            if (!"Slow.java".equals(file.getName())) {
+                return;
+            }
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,54 @@
+package io.github.yangziwen.checkstyle.checker;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ThreadsNumberTunerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testTuneCheckerThreads() {
+        // a small diff stays single-threaded
+        Assert.assertEquals(1, ThreadsNumberTuner.tuneCheckerThreads(3, 10L * 1024 * 1024, 8));
+        Assert.assertEquals(1, ThreadsNumberTuner.tuneCheckerThreads(100, 100L * 1024, 8));
+        Assert.assertEquals(1, ThreadsNumberTuner.tuneCheckerThreads(0, 0L, 8));
+        Assert.assertEquals(3, ThreadsNumberTuner.tuneCheckerThreads(12, 10L * 1024 * 1024, 8));
+        Assert.assertEquals(2, ThreadsNumberTuner.tuneCheckerThreads(100, 512L * 1024, 8));
+        Assert.assertEquals(8, ThreadsNumberTuner.tuneCheckerThreads(1000, 100L * 1024 * 1024, 8));
+    }
+
+    @Test
+    public void testGetAvailableCpusWithCgroupV2() throws Exception {
+        File root = folder.newFolder("v2");
+        write(new File(root, "cpu.max"), "max 100000\n");
+        Assert.assertEquals(16, ThreadsNumberTuner.getAvailableCpus(16, root.toPath()));
+        write(new File(root, "cpu.max"), "250000 100000\n");
+        Assert.assertEquals(3, ThreadsNumberTuner.getAvailableCpus(16, root.toPath()));
+        Assert.assertEquals(2, ThreadsNumberTuner.getAvailableCpus(2, root.toPath()));
+    }
+
+    @Test
+    public void testGetAvailableCpusWithCgroupV1() throws Exception {
+        File root = folder.newFolder("v1");
+        write(new File(root, "cpu/cpu.cfs_quota_us"), "-1\n");
+        write(new File(root, "cpu/cpu.cfs_period_us"), "100000\n");
+        Assert.assertEquals(16, ThreadsNumberTuner.getAvailableCpus(16, root.toPath()));
+        write(new File(root, "cpu/cpu.cfs_quota_us"), "400000\n");
+        Assert.assertEquals(4, ThreadsNumberTuner.getAvailableCpus(16, root.toPath()));
+        Assert.assertEquals(16, ThreadsNumberTuner.getAvailableCpus(16, new File(root, "absent").toPath()));
+    }
+
+    private static void write(File file, String content) throws Exception {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
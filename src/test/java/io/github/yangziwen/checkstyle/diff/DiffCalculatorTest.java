@@ -97,6 +97,47 @@ public class DiffCalculatorTest extends RepositoryTestCase {
 
     }
 
+    @Test
+    public void testCalculateDiffWithObjectPrefetcher() throws Exception {
+        try (Git git = new Git(db)) {
+            File repoDir = git.getRepository().getDirectory().getParentFile();
+            File fileToChange = new File(repoDir, "changed.txt");
+            writeStringToFile(fileToChange, new StringBuilder()
+                    .append("first line")
+                    .append("\n")
+                    .append("second line")
+                    .append("\n")
+                    .toString());
+            git.add().addFilepattern(fileToChange.getName()).call();
+            RevCommit oldCommit = doCommit(git);
+
+            writeStringToFile(fileToChange, new StringBuilder()
+                    .append("first line")
+                    .append("\n")
+                    .append("second line changed")
+                    .append("\n")
+                    .toString());
+            git.add().addFilepattern(fileToChange.getName()).call();
+            RevCommit newCommit = doCommit(git);
+            git.gc().call();
+
+            DiffCalculator calculator = DiffCalculator.builder()
+                    .diffAlgorithm(new HistogramDiff())
+                    .objectPrefetcher(ObjectPrefetcher.builder().build())
+                    .build();
+            List<DiffEntryWrapper> wrappers = calculator.calculateDiff(
+                    repoDir, oldCommit.name(), newCommit.name(), false);
+
+            Assert.assertEquals(1, wrappers.size());
+
+            List<Edit> edits = wrappers.get(0).getEditList();
+            Assert.assertEquals(1, edits.size());
+            Assert.assertEquals(Edit.Type.REPLACE, edits.get(0).getType());
+            Assert.assertEquals(1, edits.get(0).getBeginB());
+            Assert.assertEquals(2, edits.get(0).getEndB());
+        }
+    }
+
     @Test
     public void testDoCalculateCommitDiffWhenFileChanged() throws Exception {
         try (Git git = new Git(db);
@@ -297,6 +338,48 @@ public class DiffCalculatorTest extends RepositoryTestCase {
 
     }
 
+    @Test
+    public void testCalculateDiffExceedingBudget() throws Exception {
+        try (Git git = new Git(db)) {
+            File repoDir = git.getRepository().getDirectory().getParentFile();
+            File pathologicalFile = new File(repoDir, "pathological.txt");
+            File normalFile = new File(repoDir, "normal.txt");
+            StringBuilder oldContent = new StringBuilder();
+            StringBuilder newContent = new StringBuilder();
+            for (int i = 0; i < 5000; i++) {
+                oldContent.append(i % 3).append("\n");
+                newContent.append(i * 7 % 5).append("\n");
+            }
+            writeStringToFile(pathologicalFile, oldContent.toString());
+            writeStringToFile(normalFile, "first line\n");
+            git.add().addFilepattern(".").call();
+            RevCommit oldCommit = doCommit(git);
+
+            writeStringToFile(pathologicalFile, newContent.toString());
+            writeStringToFile(normalFile, "first line changed\n");
+            git.add().addFilepattern(".").call();
+            RevCommit newCommit = doCommit(git);
+
+            DiffCalculator calculator = DiffCalculator.builder()
+                    .diffAlgorithm(new HistogramDiff())
+                    .diffBudgetMillis(50)
+                    .build();
+            List<DiffEntryWrapper> wrappers = calculator.calculateDiff(
+                    repoDir, oldCommit.name(), newCommit.name(), false);
+            Assert.assertEquals(2, wrappers.size());
+
+            DiffEntryWrapper normalWrapper = wrappers.get(0);
+            Assert.assertEquals("normal.txt", normalWrapper.getNewPath());
+            Assert.assertNull(normalWrapper.getDiffFallback());
+
+            DiffEntryWrapper pathologicalWrapper = wrappers.get(1);
+            Assert.assertEquals("pathological.txt", pathologicalWrapper.getNewPath());
+            Assert.assertEquals(DiffFallback.WHOLE_FILE, pathologicalWrapper.getDiffFallback());
+            Assert.assertEquals(Collections.singletonList(new Edit(0, 5000, 0, 5000)),
+                    pathologicalWrapper.getEditList());
+        }
+    }
+
     private static void writeStringToFile(File file, String content) {
         try (OutputStream out = new FileOutputStream(file)) {
             out.write(content.getBytes());
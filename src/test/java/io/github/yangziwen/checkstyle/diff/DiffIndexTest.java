@@ -0,0 +1,79 @@
+package io.github.yangziwen.checkstyle.diff;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jgit.diff.DiffEntry.ChangeType;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DiffIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        File repoDir = folder.newFolder("repo");
+        ObjectId fooId = new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, Constants.encode("foo"));
+        ObjectId barId = new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, Constants.encode("bar"));
+        List<DiffEntryWrapper> diffEntries = Arrays.asList(
+                DiffEntryWrapper.builder()
+                        .gitDir(repoDir)
+                        .newCommitId(fooId.name())
+                        .diffEntry(DiffHelper.createModifyDiffEntry("src/Foo.java", fooId))
+                        .editList(Arrays.asList(new Edit(0, 1, 0, 2), new Edit(5, 7, 6, 6)))
+                        .diffFallback(DiffFallback.MYERS)
+                        .build(),
+                DiffEntryWrapper.builder()
+                        .gitDir(new File(repoDir, "libs/sub"))
+                        .pathPrefix("libs/sub/")
+                        .diffEntry(DiffHelper.createAddDiffEntry("Bar.java", barId))
+                        .editList(Arrays.asList(new Edit(0, 0, 0, 3)))
+                        .build(),
+                DiffEntryWrapper.builder()
+                        .gitDir(repoDir)
+                        .newCommitId(fooId.name())
+                        .diffEntry(DiffHelper.createModifyDiffEntry("src/Empty.java", fooId))
+                        .editList(Collections.emptyList())
+                        .build());
+        Path indexFile = folder.getRoot().toPath().resolve("index/diff.idx");
+        DiffIndex.write(diffEntries, indexFile);
+
+        List<DiffEntryWrapper> indexedEntries = DiffIndex.read(indexFile);
+        Assert.assertEquals(3, indexedEntries.size());
+        for (int i = 0; i < diffEntries.size(); i++) {
+            DiffEntryWrapper expected = diffEntries.get(i);
+            DiffEntryWrapper actual = indexedEntries.get(i);
+            Assert.assertEquals(expected.getNewPath(), actual.getNewPath());
+            Assert.assertEquals(expected.getNewFile().getAbsoluteFile(), actual.getNewFile());
+            Assert.assertEquals(expected.getNewCommitId(), actual.getNewCommitId());
+            Assert.assertEquals(expected.getDiffEntry().getChangeType(), actual.getDiffEntry().getChangeType());
+            Assert.assertEquals(expected.getDiffEntry().getNewId(), actual.getDiffEntry().getNewId());
+            Assert.assertEquals(expected.getDiffFallback(), actual.getDiffFallback());
+            Assert.assertEquals(expected.getEditList(), actual.getEditList());
+        }
+        Assert.assertEquals("libs/sub/Bar.java", indexedEntries.get(1).getNewPath());
+        Assert.assertEquals(ChangeType.ADD, indexedEntries.get(1).getDiffEntry().getChangeType());
+        Assert.assertNull(indexedEntries.get(1).getNewCommitId());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadInvalidIndex() throws Exception {
+        Path indexFile = folder.newFile("diff.idx").toPath();
+        Files.write(indexFile, Constants.encode("diff --git a/Foo.java b/Foo.java\n"));
+        DiffIndex.read(indexFile);
+    }
+
+}
@@ -10,8 +10,10 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import com.puppycrawl.tools.checkstyle.TreeWalkerAuditEvent;
 import com.puppycrawl.tools.checkstyle.api.AuditEvent;
 import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.checks.naming.MemberNameCheck;
 import com.puppycrawl.tools.checkstyle.checks.whitespace.EmptyLineSeparatorCheck;
 
 import io.github.yangziwen.checkstyle.filter.DiffLineFilter;
@@ -72,4 +74,27 @@ public class DiffLineFilterTest {
         Assert.assertTrue(filter.accept(event));
     }
 
+    @Test
+    public void testAcceptTreeWalkerEvent() {
+        String fileName = "test";
+
+        DiffEntryWrapper wrapper = PowerMockito.mock(DiffEntryWrapper.class);
+        PowerMockito.doReturn(fileName).when(wrapper).getAbsoluteNewPath();
+        PowerMockito.doReturn(Arrays.asList(new Edit(4, 4, 4, 6))).when(wrapper).getEditList();
+
+        DiffLineFilter filter = new DiffLineFilter(Arrays.asList(wrapper));
+
+        Assert.assertFalse(filter.accept(createTreeWalkerEvent(fileName, 4, MemberNameCheck.class)));
+        Assert.assertTrue(filter.accept(createTreeWalkerEvent(fileName, 5, MemberNameCheck.class)));
+        Assert.assertTrue(filter.accept(createTreeWalkerEvent(fileName, 6, MemberNameCheck.class)));
+        Assert.assertFalse(filter.accept(createTreeWalkerEvent(fileName, 7, MemberNameCheck.class)));
+        Assert.assertTrue(filter.accept(createTreeWalkerEvent(fileName, 7, EmptyLineSeparatorCheck.class)));
+        Assert.assertFalse(filter.accept(createTreeWalkerEvent("other", 5, MemberNameCheck.class)));
+    }
+
+    private static TreeWalkerAuditEvent createTreeWalkerEvent(String fileName, int line, Class<?> sourceClass) {
+        LocalizedMessage message = new LocalizedMessage(line, "messages", "key", null, null, sourceClass, "message");
+        return new TreeWalkerAuditEvent(null, fileName, message, null);
+    }
+
 }
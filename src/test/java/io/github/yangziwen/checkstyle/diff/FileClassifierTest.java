@@ -0,0 +1,139 @@
+package io.github.yangziwen.checkstyle.diff;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.HistogramDiff;
+import org.eclipse.jgit.junit.RepositoryTestCase;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileClassifierTest extends RepositoryTestCase {
+
+    @Before
+    public void before() throws Exception {
+        setUp();
+    }
+
+    @Test
+    public void testCalculateDiffWithoutBinaryAndGeneratedFiles() throws Exception {
+        try (Git git = new Git(db)) {
+            File repoDir = git.getRepository().getDirectory().getParentFile();
+            writeTrashFile(".gitattributes", "*.dat binary\n");
+            writeTrashFile("gen/.gitattributes", "*.java linguist-generated\n");
+            git.add().addFilepattern(".").call();
+            RevCommit oldCommit = git.commit().setMessage("init").call();
+
+            writeTrashFile("Foo.java", "class Foo {}\n");
+            writeTrashFile("Bar.java", "@Generated(\"protoc\")\nclass Bar {}\n");
+            writeTrashFile("Image.java", "class Image {}\n\u0000\u0001\n");
+            writeTrashFile("table.dat", "plain text marked as binary\n");
+            writeTrashFile("gen/Baz.java", "class Baz {}\n");
+            git.add().addFilepattern(".").call();
+            RevCommit newCommit = git.commit().setMessage("change").call();
+
+            DiffCalculator calculator = DiffCalculator.builder()
+                    .diffAlgorithm(new HistogramDiff())
+                    .build();
+            Assert.assertEquals(Collections.singletonList("Foo.java"),
+                    getNewPaths(calculator.calculateDiff(repoDir, oldCommit.name(), newCommit.name(), false)));
+
+            DiffCalculator calculatorWithoutMarkers = DiffCalculator.builder()
+                    .diffAlgorithm(new HistogramDiff())
+                    .fileClassifier(FileClassifier.builder()
+                            .generatedMarkers(Collections.emptyList())
+                            .build())
+                    .build();
+            Assert.assertEquals(Arrays.asList("Bar.java", "Foo.java"),
+                    getNewPaths(calculatorWithoutMarkers.calculateDiff(
+                            repoDir, oldCommit.name(), newCommit.name(), false)));
+        }
+    }
+
+    @Test
+    public void testCalculateIndexedDiffWithoutGeneratedFiles() throws Exception {
+        try (Git git = new Git(db)) {
+            File repoDir = git.getRepository().getDirectory().getParentFile();
+            writeTrashFile("Foo.java", "class Foo {}\n");
+            git.add().addFilepattern(".").call();
+            RevCommit oldCommit = git.commit().setMessage("init").call();
+
+            writeTrashFile("Foo.java", "class Foo {\n}\n");
+            writeTrashFile("Bar.java", "// @Generated by some tool\nclass Bar {}\n");
+            git.add().addFilepattern(".").call();
+
+            DiffCalculator calculator = DiffCalculator.builder()
+                    .diffAlgorithm(new HistogramDiff())
+                    .build();
+            Assert.assertEquals(Collections.singletonList("Foo.java"),
+                    getNewPaths(calculator.calculateDiff(repoDir, oldCommit.name(), oldCommit.name(), true)));
+        }
+    }
+
+    @Test
+    public void testGeneratedMarkerMatchedAsWholeTokenInHeader() throws Exception {
+        try (Git git = new Git(db)) {
+            File repoDir = git.getRepository().getDirectory().getParentFile();
+            writeTrashFile("Foo.java", "class Foo {}\n");
+            git.add().addFilepattern(".").call();
+            RevCommit oldCommit = git.commit().setMessage("init").call();
+
+            writeTrashFile("User.java", "package demo;\n\n"
+                    + "import javax.persistence.GeneratedValue;\n\n"
+                    + "@Entity\n"
+                    + "public class User {\n"
+                    + "    /** not @Generated by any tool */\n"
+                    + "    @Id @GeneratedValue\n"
+                    + "    private Long id;\n"
+                    + "}\n");
+            writeTrashFile("Proto.java", "// Generated by the protocol buffer compiler.\n"
+                    + "package demo;\n\n"
+                    + "import java.util.List;\n\n"
+                    + "@javax.annotation.Generated(value = {\"protoc\"})\n"
+                    + "public final class Proto {\n"
+                    + "}\n");
+            git.add().addFilepattern(".").call();
+            RevCommit newCommit = git.commit().setMessage("change").call();
+
+            DiffCalculator calculator = DiffCalculator.builder()
+                    .diffAlgorithm(new HistogramDiff())
+                    .build();
+            Assert.assertEquals(Collections.singletonList("User.java"),
+                    getNewPaths(calculator.calculateDiff(repoDir, oldCommit.name(), newCommit.name(), false)));
+        }
+    }
+
+    @Test
+    public void testExtractHeader() {
+        String header = FileClassifier.extractHeader("/* license */\n"
+                + "package demo;\n"
+                + "import lombok.Generated;\n"
+                + "// a note\n"
+                + "@SuppressWarnings(\"@Generated\")\n"
+                + "public class Foo {\n"
+                + "    @Generated int x;\n"
+                + "}\n");
+        Assert.assertTrue(header.contains("/* license */"));
+        Assert.assertTrue(header.contains("@SuppressWarnings("));
+        Assert.assertTrue(header.contains("public class Foo"));
+        Assert.assertFalse(header.contains("import"));
+        Assert.assertFalse(header.contains("a note"));
+        Assert.assertFalse(FileClassifier.compileMarker("@Generated").matcher(header).find());
+        Assert.assertTrue(FileClassifier.compileMarker("DO NOT EDIT")
+                .matcher(FileClassifier.extractHeader("// DO NOT EDIT\nclass Foo {}")).find());
+    }
+
+    private static List<String> getNewPaths(List<DiffEntryWrapper> wrappers) {
+        return wrappers.stream()
+                .map(DiffEntryWrapper::getNewPath)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,116 @@
+package io.github.yangziwen.checkstyle.diff;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.junit.RepositoryTestCase;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MergeBaseResolverTest extends RepositoryTestCase {
+
+    private static final String DEFAULT_USERNAME = "test";
+
+    private static final String DEFAULT_EMAIL = "test@test.com";
+
+    @Before
+    public void before() throws Exception {
+        setUp();
+    }
+
+    @Test
+    public void testResolveDivergedBranches() throws Exception {
+        try (Git git = new Git(db);
+                RevWalk walk = new RevWalk(db)) {
+            File repoDir = db.getDirectory().getParentFile();
+            RevCommit forkPoint = commitFile(git, new File(repoDir, "a.txt"), "a");
+            git.branchCreate().setName("topic").call();
+            RevCommit upstream = commitFile(git, new File(repoDir, "b.txt"), "b");
+            git.checkout().setName("topic").call();
+            RevCommit topic = commitFile(git, new File(repoDir, "c.txt"), "c");
+
+            MergeBaseResolver resolver = new MergeBaseResolver();
+            RevCommit mergeBase = resolver.resolve(db, walk, walk.parseCommit(upstream), walk.parseCommit(topic));
+            Assert.assertEquals(forkPoint, mergeBase);
+
+            File cacheDir = new File(db.getDirectory(), MergeBaseResolver.CACHE_DIR_NAME);
+            Assert.assertTrue(new File(cacheDir, MergeBaseResolver.MERGE_BASE_CACHE_FILE_NAME).isFile());
+            Assert.assertEquals(forkPoint,
+                    resolver.resolve(db, walk, walk.parseCommit(upstream), walk.parseCommit(topic)));
+        }
+    }
+
+    @Test
+    public void testResolveAncestor() throws Exception {
+        try (Git git = new Git(db);
+                RevWalk walk = new RevWalk(db)) {
+            File repoDir = db.getDirectory().getParentFile();
+            RevCommit first = commitFile(git, new File(repoDir, "a.txt"), "a");
+            commitFile(git, new File(repoDir, "a.txt"), "b");
+            RevCommit third = commitFile(git, new File(repoDir, "a.txt"), "c");
+
+            MergeBaseResolver resolver = new MergeBaseResolver(false);
+            Assert.assertEquals(first,
+                    resolver.resolve(db, walk, walk.parseCommit(first), walk.parseCommit(third)));
+            Assert.assertEquals(first,
+                    resolver.resolve(db, walk, walk.parseCommit(third), walk.parseCommit(first)));
+            Assert.assertFalse(new File(db.getDirectory(), MergeBaseResolver.CACHE_DIR_NAME).exists());
+        }
+    }
+
+    @Test
+    public void testCacheIsAppendedAndCompacted() throws Exception {
+        try (Git git = new Git(db);
+                RevWalk walk = new RevWalk(db)) {
+            File repoDir = db.getDirectory().getParentFile();
+            RevCommit first = commitFile(git, new File(repoDir, "a.txt"), "a");
+            RevCommit second = commitFile(git, new File(repoDir, "a.txt"), "b");
+
+            File cacheDir = new File(db.getDirectory(), MergeBaseResolver.CACHE_DIR_NAME);
+            File cacheFile = new File(cacheDir, MergeBaseResolver.MERGE_BASE_CACHE_FILE_NAME);
+            Assert.assertTrue(cacheDir.mkdirs());
+            StringBuilder content = new StringBuilder();
+            for (int i = 0; i <= 2 * MergeBaseResolver.MAX_MERGE_BASE_CACHE_SIZE; i++) {
+                content.append(String.format("%040x:%040x=%s\n", i, i + 1, first.name()));
+            }
+            Files.write(cacheFile.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+
+            MergeBaseResolver resolver = new MergeBaseResolver();
+            Assert.assertEquals(first,
+                    resolver.resolve(db, walk, walk.parseCommit(second), walk.parseCommit(first)));
+            List<String> lines = Files.readAllLines(cacheFile.toPath(), StandardCharsets.UTF_8);
+            Assert.assertEquals(MergeBaseResolver.MAX_MERGE_BASE_CACHE_SIZE + 1, lines.size());
+            Assert.assertEquals(second.name() + ":" + first.name() + "=" + first.name(),
+                    lines.get(lines.size() - 1));
+
+            // a cached result is not appended again
+            Assert.assertEquals(first,
+                    resolver.resolve(db, walk, walk.parseCommit(second), walk.parseCommit(first)));
+            Assert.assertEquals(lines, Files.readAllLines(cacheFile.toPath(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static RevCommit commitFile(Git git, File file, String content) throws Exception {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        git.add().addFilepattern(file.getName()).call();
+        return git.commit()
+                .setAuthor(DEFAULT_USERNAME, DEFAULT_EMAIL)
+                .setCommitter(DEFAULT_USERNAME, DEFAULT_EMAIL)
+                .setMessage("commit " + content)
+                .call();
+    }
+
+}
@@ -0,0 +1,51 @@
+package io.github.yangziwen.checkstyle.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SharedTextCacheTest {
+
+    @Test
+    public void testGet() {
+        ObjectId sharedId = idFor("shared");
+        ObjectId otherId = idFor("other");
+        List<DiffEntry> entries = Arrays.asList(
+                DiffHelper.createAddDiffEntry("a/Shared.java", sharedId),
+                DiffHelper.createAddDiffEntry("b/Shared.java", sharedId),
+                DiffHelper.createAddDiffEntry("Other.java", otherId));
+        SharedTextCache cache = new SharedTextCache(entries);
+        List<ObjectId> loadedIds = new ArrayList<>();
+
+        RawText first = cache.get(entries.get(0), DiffEntry.Side.NEW, id -> load(id, loadedIds));
+        RawText second = cache.get(entries.get(1), DiffEntry.Side.NEW, id -> load(id, loadedIds));
+        Assert.assertSame(first, second);
+        Assert.assertEquals(Arrays.asList(sharedId), loadedIds);
+
+        // dropped at its last use
+        Assert.assertNotSame(first, cache.get(entries.get(1), DiffEntry.Side.NEW, id -> load(id, loadedIds)));
+
+        // the missing old side is never cached
+        cache.get(entries.get(2), DiffEntry.Side.OLD, id -> load(id, loadedIds));
+        cache.get(entries.get(2), DiffEntry.Side.NEW, id -> load(id, loadedIds));
+        Assert.assertEquals(Arrays.asList(sharedId, sharedId, null, otherId), loadedIds);
+    }
+
+    private static RawText load(ObjectId id, List<ObjectId> loadedIds) {
+        loadedIds.add(id);
+        return new RawText(Constants.encode("line\n"));
+    }
+
+    private static ObjectId idFor(String content) {
+        return new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, Constants.encode(content));
+    }
+
+}
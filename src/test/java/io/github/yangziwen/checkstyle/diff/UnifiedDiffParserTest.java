@@ -0,0 +1,92 @@
+package io.github.yangziwen.checkstyle.diff;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.List;
+
+import org.eclipse.jgit.diff.Edit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UnifiedDiffParserTest {
+
+    private final File baseDir = new File("/tmp/repo");
+
+    @Test
+    public void testParseZeroContextDiff() throws Exception {
+        String diff = new StringBuilder()
+                .append("diff --git a/src/Foo.java b/src/Foo.java\n")
+                .append("index 1234567..89abcde 100644\n")
+                .append("--- a/src/Foo.java\n")
+                .append("+++ b/src/Foo.java\n")
+                .append("@@ -2 +2 @@ class Foo {\n")
+                .append("-    int a;\n")
+                .append("+    int b;\n")
+                .append("@@ -5,0 +6,2 @@\n")
+                .append("+    int c;\n")
+                .append("+    int d;\n")
+                .append("@@ -9,2 +10,0 @@\n")
+                .append("-    int e;\n")
+                .append("-    int f;\n")
+                .append("diff --git a/src/Bar.java b/src/Bar.java\n")
+                .append("new file mode 100644\n")
+                .append("--- /dev/null\n")
+                .append("+++ b/src/Bar.java\n")
+                .append("@@ -0,0 +1 @@\n")
+                .append("+class Bar {}\n")
+                .append("\\ No newline at end of file\n")
+                .append("diff --git a/src/Baz.java b/src/Baz.java\n")
+                .append("deleted file mode 100644\n")
+                .append("--- a/src/Baz.java\n")
+                .append("+++ /dev/null\n")
+                .append("@@ -1 +0,0 @@\n")
+                .append("-class Baz {}\n")
+                .toString();
+        List<DiffEntryWrapper> entries = new UnifiedDiffParser(baseDir).parse(new StringReader(diff));
+        Assert.assertEquals(2, entries.size());
+
+        DiffEntryWrapper foo = entries.get(0);
+        Assert.assertEquals("src/Foo.java", foo.getNewPath());
+        Assert.assertEquals(new File(baseDir, "src/Foo.java"), foo.getNewFile());
+        List<Edit> edits = foo.getEditList();
+        Assert.assertEquals(3, edits.size());
+        Assert.assertEquals(new Edit(1, 2, 1, 2), edits.get(0));
+        Assert.assertEquals(new Edit(5, 5, 5, 7), edits.get(1));
+        Assert.assertEquals(new Edit(8, 10, 10, 10), edits.get(2));
+
+        DiffEntryWrapper bar = entries.get(1);
+        Assert.assertEquals("src/Bar.java", bar.getNewPath());
+        Assert.assertEquals(new Edit(0, 0, 0, 1), bar.getEditList().get(0));
+    }
+
+    @Test
+    public void testParseDiffWithContextLines() throws Exception {
+        String diff = new StringBuilder()
+                .append("--- src/Foo.java\t2020-01-01 00:00:00\n")
+                .append("+++ src/Foo.java\t2020-01-02 00:00:00\n")
+                .append("@@ -1,5 +1,6 @@\n")
+                .append(" class Foo {\n")
+                .append("-    int a;\n")
+                .append("+    int b;\n")
+                .append(" \n")
+                .append("+    int c;\n")
+                .append("     int d;\n")
+                .append(" }\n")
+                .append("--- \"a/src/Q\\303\\274x.java\"\n")
+                .append("+++ \"b/src/Q\\303\\274x.java\"\n")
+                .append("@@ -1 +1 @@\n")
+                .append("-class A {}\n")
+                .append("+class B {}\n")
+                .toString();
+        List<DiffEntryWrapper> entries = new UnifiedDiffParser(baseDir).parse(new StringReader(diff));
+        Assert.assertEquals(2, entries.size());
+
+        List<Edit> edits = entries.get(0).getEditList();
+        Assert.assertEquals(2, edits.size());
+        Assert.assertEquals(new Edit(1, 2, 1, 2), edits.get(0));
+        Assert.assertEquals(new Edit(3, 3, 3, 4), edits.get(1));
+
+        Assert.assertEquals("src/Qüx.java", entries.get(1).getNewPath());
+    }
+
+}
@@ -0,0 +1,65 @@
+package io.github.yangziwen.checkstyle.discovery;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileDiscovererTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+
+    @Before
+    public void before() throws Exception {
+        root = folder.newFolder("root");
+        for (String path : Arrays.asList(
+                "a/A.java", "a/b/B.java", "a/b/c/C.java", "a/gen/G.java", "d/D.java", "d/e/E.java", "F.java")) {
+            File file = new File(root, path);
+            file.getParentFile().mkdirs();
+            Assert.assertTrue(file.createNewFile());
+        }
+    }
+
+    @Test
+    public void testDiscover() {
+        List<String> files = discover(FileDiscoverer.builder().threadsNumber(4).build(), root);
+        Assert.assertEquals(Arrays.asList(
+                "F.java", "a/A.java", "a/b/B.java", "a/b/c/C.java", "a/gen/G.java", "d/D.java", "d/e/E.java"), files);
+    }
+
+    @Test
+    public void testDiscoverWithExclusions() {
+        List<Path> excludedPaths = Arrays.asList(
+                new File(root, "a/b").toPath(),
+                new File(root, "d/../d/e").toPath(),
+                new File(root, "not/exist").toPath());
+        FileDiscoverer discoverer = FileDiscoverer.builder()
+                .threadsNumber(2)
+                .excludedPaths(excludedPaths)
+                .excludePatterns(Collections.singletonList(Pattern.compile("gen$")))
+                .build();
+        Assert.assertEquals(Arrays.asList("F.java", "a/A.java", "d/D.java"), discover(discoverer, root));
+        Assert.assertEquals(Collections.emptyList(), discover(discoverer, new File(root, "a/b")));
+        Assert.assertEquals(Collections.singletonList("a/b/c/C.java"),
+                discover(FileDiscoverer.builder().build(), new File(root, "a/b/c/C.java")));
+    }
+
+    private List<String> discover(FileDiscoverer discoverer, File file) {
+        return discoverer.discover(Collections.singletonList(file)).stream()
+                .map(f -> root.toPath().relativize(f.toPath()).toString().replace(File.separatorChar, '/'))
+                .collect(Collectors.toList());
+    }
+
+}
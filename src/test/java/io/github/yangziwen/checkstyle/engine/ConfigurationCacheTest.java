@@ -0,0 +1,80 @@
+package io.github.yangziwen.checkstyle.engine;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.checks.naming.MemberNameCheck;
+
+public class ConfigurationCacheTest {
+
+    private static final String CONFIG_CONTENT = new StringBuilder()
+            .append("<?xml version=\"1.0\"?>\n")
+            .append("<!DOCTYPE module PUBLIC \"-//Checkstyle//DTD Checkstyle Configuration 1.3//EN\"")
+            .append(" \"https://checkstyle.org/dtds/configuration_1_3.dtd\">\n")
+            .append("<module name=\"Checker\">\n")
+            .append("  <property name=\"severity\" value=\"${severity}\"/>\n")
+            .append("  <module name=\"TreeWalker\">\n")
+            .append("    <module name=\"MemberName\"/>\n")
+            .append("  </module>\n")
+            .append("</module>\n")
+            .toString();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLoad() throws Exception {
+        File configFile = folder.newFile("checks.xml");
+        Files.write(configFile.toPath(), CONFIG_CONTENT.getBytes(StandardCharsets.UTF_8));
+        File cacheDir = new File(folder.getRoot(), "cache");
+        ConfigurationCache cache = new ConfigurationCache(cacheDir);
+
+        Properties properties = new Properties();
+        properties.setProperty("severity", "warning");
+        Configuration loaded = cache.load(configFile.getPath(), properties, false);
+        assertResolved(loaded, "warning");
+        Assert.assertEquals(1, cacheDir.list().length);
+
+        Configuration cached = cache.load(configFile.getPath(), properties, false);
+        assertResolved(cached, "warning");
+        Assert.assertEquals(1, cacheDir.list().length);
+
+        properties.setProperty("severity", "error");
+        assertResolved(cache.load(configFile.getPath(), properties, false), "error");
+        Assert.assertEquals(2, cacheDir.list().length);
+    }
+
+    @Test
+    public void testBypassedWithoutCheckstyleVersion() throws Exception {
+        File configFile = folder.newFile("checks.xml");
+        Files.write(configFile.toPath(), CONFIG_CONTENT.getBytes(StandardCharsets.UTF_8));
+        File cacheDir = new File(folder.getRoot(), "cache");
+        ConfigurationCache cache = new ConfigurationCache(cacheDir, Checker.class.getClassLoader(), null);
+
+        Properties properties = new Properties();
+        properties.setProperty("severity", "warning");
+        Configuration loaded = cache.load(configFile.getPath(), properties, false);
+        Assert.assertEquals("Checker", loaded.getName());
+        Assert.assertEquals("warning", loaded.getAttribute("severity"));
+        Assert.assertFalse(cacheDir.exists());
+    }
+
+    private static void assertResolved(Configuration configuration, String severity) throws Exception {
+        Assert.assertEquals(Checker.class.getName(), configuration.getName());
+        Assert.assertEquals(severity, configuration.getAttribute("severity"));
+        Configuration treeWalker = configuration.getChildren()[0];
+        Assert.assertEquals(TreeWalker.class.getName(), treeWalker.getName());
+        Assert.assertEquals(MemberNameCheck.class.getName(), treeWalker.getChildren()[0].getName());
+    }
+
+}
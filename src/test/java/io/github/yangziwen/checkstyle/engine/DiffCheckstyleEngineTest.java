@@ -0,0 +1,414 @@
+package io.github.yangziwen.checkstyle.engine;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.junit.RepositoryTestCase;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.submodule.SubmoduleWalk;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+import io.github.yangziwen.checkstyle.CheckstyleVersion;
+import io.github.yangziwen.checkstyle.diff.DiffEntryWrapper;
+import io.github.yangziwen.checkstyle.diff.RevisionBlob;
+
+public class DiffCheckstyleEngineTest extends RepositoryTestCase {
+
+    private DiffCheckstyleEngine engine;
+
+    @Before
+    public void before() throws Exception {
+        setUp();
+        DefaultConfiguration regexpConfig = new DefaultConfiguration("RegexpSingleline");
+        regexpConfig.addAttribute("format", "TODO");
+        regexpConfig.addAttribute("message", "todo found");
+        DefaultConfiguration checkerConfig = new DefaultConfiguration("Checker");
+        checkerConfig.addChild(regexpConfig);
+        engine = new DiffCheckstyleEngine(checkerConfig);
+    }
+
+    @Test
+    public void testCheck() throws Exception {
+        CheckRequest request = prepareRequest();
+        CheckResult result = engine.check(request);
+        Assert.assertEquals(1, result.getErrorCount());
+        Assert.assertEquals(1, result.getDiffEntries().size());
+        Assert.assertEquals(1, result.getViolations().size());
+        Violation violation = result.getViolations().get(0);
+        Assert.assertEquals(3, violation.getLine());
+        Assert.assertEquals("todo found", violation.getMessage());
+    }
+
+    @Test
+    public void testCheckConcurrently() throws Exception {
+        CheckRequest request = prepareRequest();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<CheckResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> engine.check(request)));
+            }
+            for (Future<CheckResult> future : futures) {
+                CheckResult result = future.get();
+                Assert.assertEquals(1, result.getErrorCount());
+                Assert.assertEquals(1, result.getViolations().size());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCheckSharedBlobs() throws Exception {
+        try (Git git = new Git(db)) {
+            File repoDir = git.getRepository().getDirectory().getParentFile();
+            writeTrashFile("a/Foo.java", "// TODO a\nclass Foo {\n}\n");
+            writeTrashFile("b/Foo.java", "class Foo {\n    // TODO b\n}\n");
+            git.add().addFilepattern(".").call();
+            RevCommit oldCommit = git.commit().setMessage("init").call();
+            writeTrashFile("a/Foo.java", "// TODO a\nclass Foo {\n    // TODO b\n}\n");
+            writeTrashFile("b/Foo.java", "// TODO a\nclass Foo {\n    // TODO b\n}\n");
+            git.add().addFilepattern(".").call();
+            RevCommit newCommit = git.commit().setMessage("change").call();
+            List<DiffEntryWrapper> diffEntries = DiffCheckstyleEngine.calculateDiffEntries(CheckRequest.builder()
+                    .repoDir(repoDir)
+                    .baseRev(oldCommit.name())
+                    .headRev(newCommit.name())
+                    .build());
+            Assert.assertEquals(1, SharedBlobGrouper.group(diffEntries).size());
+            for (int threadsNumber = 1; threadsNumber <= 2; threadsNumber++) {
+                CheckResult result = engine.check(CheckRequest.builder()
+                        .repoDir(repoDir)
+                        .baseRev(oldCommit.name())
+                        .headRev(newCommit.name())
+                        .threadsNumber(threadsNumber)
+                        .build());
+                Assert.assertEquals(2, result.getErrorCount());
+                List<String> violations = result.getViolations().stream()
+                        .map(violation -> new File(violation.getFileName()).getParentFile().getName()
+                                + ":" + violation.getLine())
+                        .sorted()
+                        .collect(Collectors.toList());
+                Assert.assertEquals(Arrays.asList("a:3", "b:1"), violations);
+            }
+        }
+    }
+
+    @Test
+    public void testRatchet() throws Exception {
+        File cacheDir = createTempDirectory("baseline-cache");
+        try (Git git = new Git(db)) {
+            File repoDir = git.getRepository().getDirectory().getParentFile();
+            writeTrashFile("Foo.java", "// TODO first\nclass Foo {\n}\n");
+            git.add().addFilepattern("Foo.java").call();
+            RevCommit oldCommit = git.commit().setMessage("init").call();
+            writeTrashFile("Foo.java", "// header\n// TODO first\nclass Foo {\n    // TODO second\n}\n");
+            writeTrashFile("Bar.java", "// TODO bar\nclass Bar {\n}\n");
+            git.add().addFilepattern(".").call();
+            RevCommit newCommit = git.commit().setMessage("change").call();
+            CheckRequest request = CheckRequest.builder()
+                    .repoDir(repoDir)
+                    .baseRev(oldCommit.name())
+                    .headRev(newCommit.name())
+                    .failFastThreshold(1)
+                    .build();
+            List<DiffEntryWrapper> diffEntries = DiffCheckstyleEngine.calculateDiffEntries(request);
+            for (int i = 0; i < 2; i++) {
+                ViolationCollector collector = new ViolationCollector();
+                CheckResult result = engine.ratchet(diffEntries, collector, request, new BaselineCache(cacheDir));
+                Assert.assertEquals(2, result.getErrorCount());
+                List<String> violations = collector.getViolations().stream()
+                        .map(violation -> new File(violation.getFileName()).getName() + ":" + violation.getLine())
+                        .sorted()
+                        .collect(Collectors.toList());
+                Assert.assertEquals(Arrays.asList("Bar.java:1", "Foo.java:4"), violations);
+            }
+            Assert.assertEquals(1, Files.walk(cacheDir.toPath()).filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    public void testRatchetIgnoresPositionsInMessages() throws Exception {
+        DefaultConfiguration methodLengthConfig = new DefaultConfiguration("MethodLength");
+        methodLengthConfig.addAttribute("max", "4");
+        DefaultConfiguration treeWalkerConfig = new DefaultConfiguration("TreeWalker");
+        treeWalkerConfig.addChild(new DefaultConfiguration("LeftCurly"));
+        treeWalkerConfig.addChild(methodLengthConfig);
+        DefaultConfiguration checkerConfig = new DefaultConfiguration("Checker");
+        checkerConfig.addChild(treeWalkerConfig);
+        DiffCheckstyleEngine ratchetEngine = new DiffCheckstyleEngine(checkerConfig);
+        try (Git git = new Git(db)) {
+            File repoDir = git.getRepository().getDirectory().getParentFile();
+            writeTrashFile("Foo.java", "class Foo {\n    void foo()\n    {\n        int a = 1;\n    }\n"
+                    + "    void bar() {\n        int a = 1;\n        int b = 2;\n        int c = 3;\n    }\n}\n");
+            git.add().addFilepattern("Foo.java").call();
+            RevCommit oldCommit = git.commit().setMessage("init").call();
+            writeTrashFile("Foo.java", "class Foo {\n    void foo()\n        {\n        int a = 1;\n    }\n"
+                    + "    void bar() {\n        int a = 1;\n        int b = 2;\n        int c = 3;\n"
+                    + "        int d = 4;\n    }\n}\n");
+            git.add().addFilepattern("Foo.java").call();
+            RevCommit newCommit = git.commit().setMessage("change").call();
+            CheckRequest request = CheckRequest.builder()
+                    .repoDir(repoDir)
+                    .baseRev(oldCommit.name())
+                    .headRev(newCommit.name())
+                    .build();
+            List<DiffEntryWrapper> diffEntries = DiffCheckstyleEngine.calculateDiffEntries(request);
+            ViolationCollector collector = new ViolationCollector();
+            CheckResult result = ratchetEngine.ratchet(diffEntries, collector, request, null);
+            // the brace moving from column 5 to 9 is still the same violation,
+            // while the method growing from 5 to 6 lines is a new one
+            Assert.assertEquals(1, result.getErrorCount());
+            Assert.assertEquals(6, collector.getViolations().get(0).getLine());
+            Assert.assertTrue(collector.getViolations().get(0).getMessage().startsWith("Method length is 6 lines"));
+        }
+        Assert.assertEquals("'{' at column # should be on the previous line.",
+                RatchetAuditListener.normalizeMessage("'{' at column 5 should be on the previous line."));
+        Assert.assertEquals("Duplicate import to line # - java.util.List.",
+                RatchetAuditListener.normalizeMessage("Duplicate import to line 3 - java.util.List."));
+        Assert.assertEquals("Method length is 151 lines (max allowed is 150).",
+                RatchetAuditListener.normalizeMessage("Method length is 151 lines (max allowed is 150)."));
+    }
+
+    @Test
+    public void testBaselineCacheKeyedByPath() throws Exception {
+        BaselineCache baselineCache = new BaselineCache(createTempDirectory("baseline-cache"));
+        ObjectId blobId = ObjectId.fromString("0123456789abcdef0123456789abcdef01234567");
+        List<Violation> violations = Arrays.asList(Violation.builder()
+                .line(1)
+                .column(0)
+                .severityLevel(SeverityLevel.ERROR)
+                .message("todo found")
+                .sourceName("TodoComment")
+                .build());
+        baselineCache.put("config", "src/a/Foo.java", blobId, violations);
+        Assert.assertEquals(1, baselineCache.get("config", "src/a/Foo.java", blobId).size());
+        // the same blob may be checked differently at another path, e.g. by the package checks
+        Assert.assertNull(baselineCache.get("config", "src/b/Foo.java", blobId));
+        Assert.assertNull(baselineCache.get("other", "src/a/Foo.java", blobId));
+    }
+
+    @Test
+    public void testBaselineConfigKeyByCheckstyleVersion() {
+        DefaultConfiguration configuration = new DefaultConfiguration("Checker");
+        configuration.addChild(new DefaultConfiguration("TreeWalker"));
+        String configKey = BaselineCache.computeConfigKey(configuration);
+        Assert.assertNotNull(configKey);
+        Assert.assertEquals(configKey, BaselineCache.computeConfigKey(configuration, CheckstyleVersion.get()));
+        Assert.assertNotEquals(configKey, BaselineCache.computeConfigKey(configuration, "0.0"));
+        // the cache is not used without the checkstyle version
+        Assert.assertNull(BaselineCache.computeConfigKey(configuration, null));
+    }
+
+    @Test
+    public void testCheckRevision() throws Exception {
+        try (Git git = new Git(db)) {
+            File repoDir = git.getRepository().getDirectory().getParentFile();
+            writeTrashFile("src/Foo.java", "// TODO foo\nclass Foo {\n}\n");
+            writeTrashFile("vendor/lib/Foo.java", "// TODO foo\nclass Foo {\n}\n");
+            writeTrashFile("src/Bar.java", "class Bar {\n    // TODO bar\n}\n");
+            writeTrashFile("src/Baz.java", "// TODO baz\n@Generated\nclass Baz {\n}\n");
+            git.add().addFilepattern(".").call();
+            RevCommit commit = git.commit().setMessage("init").call();
+            for (int threadsNumber = 1; threadsNumber <= 2; threadsNumber++) {
+                CheckRequest request = CheckRequest.builder()
+                        .repoDir(repoDir)
+                        .headRev(commit.name())
+                        .threadsNumber(threadsNumber)
+                        .build();
+                List<RevisionBlob> blobs = DiffCheckstyleEngine.scanRevision(request);
+                Assert.assertEquals(2, blobs.size());
+                Assert.assertEquals(Arrays.asList("src/Foo.java", "vendor/lib/Foo.java"), blobs.get(1).getPaths());
+                ViolationCollector collector = new ViolationCollector();
+                CheckResult result = engine.checkRevision(blobs, collector, request);
+                Assert.assertEquals(3, result.getErrorCount());
+                List<String> violations = collector.getViolations().stream()
+                        .map(violation -> repoDir.toPath().relativize(new File(violation.getFileName()).toPath())
+                                .toString().replace(File.separatorChar, '/') + ":" + violation.getLine())
+                        .sorted()
+                        .collect(Collectors.toList());
+                Assert.assertEquals(Arrays.asList("src/Bar.java:2", "src/Foo.java:1", "vendor/lib/Foo.java:1"),
+                        violations);
+            }
+        }
+    }
+
+    @Test
+    public void testCheckBatch() throws Exception {
+        CheckRequest request = prepareRequest();
+        File missingDir = new File(request.getRepoDir(), "missing");
+        String manifest = "# repositories\n"
+                + request.getRepoDir().getName() + " " + request.getBaseRev() + " " + request.getHeadRev() + "\n"
+                + "\n"
+                + missingDir.getAbsolutePath() + " HEAD~\n";
+        List<BatchEntry> entries = BatchEntry.parseManifest(
+                new StringReader(manifest), request.getRepoDir().getParentFile());
+        Assert.assertEquals(2, entries.size());
+        Assert.assertEquals(request.getRepoDir(), entries.get(0).getRepoDir());
+        Assert.assertEquals(CheckRequest.HEAD, entries.get(1).getHeadRev());
+
+        BatchChecker batchChecker = BatchChecker.builder()
+                .engine(engine)
+                .threadsNumber(2)
+                .build();
+        ViolationCollector collector = new ViolationCollector();
+        List<BatchResult> results = batchChecker.check(batchChecker.calculateDiffs(entries), collector);
+        Assert.assertEquals(2, results.size());
+        Assert.assertNull(results.get(0).getFailure());
+        Assert.assertEquals(1, results.get(0).getErrorCount());
+        Assert.assertEquals(1, results.get(0).getDiffEntries().size());
+        Assert.assertNotNull(results.get(1).getFailure());
+        Assert.assertEquals(1, collector.getViolations().size());
+        Assert.assertEquals(3, collector.getViolations().get(0).getLine());
+    }
+
+    @Test
+    public void testCheckBatchWithHeadOtherThanWorkTree() throws Exception {
+        CheckRequest request = prepareRequest();
+        File repoDir = request.getRepoDir();
+        try (Git git = new Git(db)) {
+            writeTrashFile("Foo.java", "// TODO first\nclass Foo {\n    int a;\n    // TODO second\n"
+                    + "    // TODO third\n}\n");
+            git.add().addFilepattern("Foo.java").call();
+            git.commit().setMessage("third").call();
+        }
+        // the head of the first entry is not checked out, so its files are read from the git objects
+        List<BatchEntry> entries = Arrays.asList(
+                BatchEntry.builder().repoDir(repoDir).baseRev(request.getBaseRev()).headRev(request.getHeadRev())
+                        .build(),
+                BatchEntry.builder().repoDir(repoDir).baseRev(request.getHeadRev()).build());
+
+        BatchChecker batchChecker = BatchChecker.builder()
+                .engine(engine)
+                .threadsNumber(2)
+                .build();
+        ViolationCollector collector = new ViolationCollector();
+        List<BatchResult> results = batchChecker.check(batchChecker.calculateDiffs(entries), collector);
+        Assert.assertNull(results.get(0).getFailure());
+        Assert.assertEquals(1, results.get(0).getErrorCount());
+        Assert.assertNull(results.get(1).getFailure());
+        Assert.assertEquals(1, results.get(1).getErrorCount());
+        List<String> violations = collector.getViolations().stream()
+                .map(violation -> violation.getFileName() + ":" + violation.getLine())
+                .sorted()
+                .collect(Collectors.toList());
+        String fileName = new File(repoDir, "Foo.java").getAbsolutePath();
+        Assert.assertEquals(Arrays.asList(fileName + ":3", fileName + ":5"), violations);
+    }
+
+    @Test
+    public void testCheckSubmodules() throws Exception {
+        try (Git git = new Git(db)) {
+            File repoDir = git.getRepository().getDirectory().getParentFile();
+            try (Git subGit = new Git(createWorkRepository())) {
+                File subDir = subGit.getRepository().getDirectory().getParentFile();
+                Files.write(new File(subDir, "Bar.java").toPath(), "class Bar {\n}\n".getBytes());
+                subGit.add().addFilepattern("Bar.java").call();
+                subGit.commit().setMessage("init").call();
+                git.submoduleAdd().setPath("sub").setURI(subDir.toURI().toString()).call().close();
+            }
+            writeTrashFile("Foo.java", "class Foo {\n}\n");
+            git.add().addFilepattern(".").call();
+            RevCommit oldCommit = git.commit().setMessage("init").call();
+
+            try (Git subGit = new Git(SubmoduleWalk.getSubmoduleRepository(db, "sub"))) {
+                writeTrashFile("sub/Bar.java", "class Bar {\n    // TODO bar\n}\n");
+                subGit.add().addFilepattern("Bar.java").call();
+                subGit.commit().setMessage("second").call();
+            }
+            writeTrashFile("Foo.java", "class Foo {\n    // TODO foo\n}\n");
+            git.add().addFilepattern(".").call();
+            RevCommit newCommit = git.commit().setMessage("second").call();
+
+            CheckRequest request = CheckRequest.builder()
+                    .repoDir(repoDir)
+                    .baseRev(oldCommit.getName())
+                    .headRev(newCommit.getName())
+                    .build();
+            Assert.assertEquals(Arrays.asList("Foo.java", "sub"), DiffCheckstyleEngine.calculateDiffEntries(request)
+                    .stream().map(DiffEntryWrapper::getNewPath).sorted().collect(Collectors.toList()));
+
+            CheckResult result = engine.check(request.toBuilder()
+                    .recurseSubmodules(true)
+                    .threadsNumber(2)
+                    .build());
+            Assert.assertEquals(Arrays.asList("Foo.java", "sub/Bar.java"), result.getDiffEntries().stream()
+                    .map(DiffEntryWrapper::getNewPath).sorted().collect(Collectors.toList()));
+            Assert.assertEquals(new File(repoDir, "sub/Bar.java"), result.getDiffEntries().stream()
+                    .filter(diffEntry -> diffEntry.getNewPath().startsWith("sub/"))
+                    .findFirst().get().getNewFile());
+            Assert.assertEquals(2, result.getErrorCount());
+
+            // the old blob of the submodule file is read from the submodule repository
+            CheckRequest recursiveRequest = request.toBuilder().recurseSubmodules(true).build();
+            ViolationCollector collector = new ViolationCollector();
+            CheckResult ratchetResult = engine.ratchet(DiffCheckstyleEngine.calculateDiffEntries(recursiveRequest),
+                    collector, recursiveRequest, null);
+            Assert.assertEquals(2, ratchetResult.getErrorCount());
+            Assert.assertEquals(Arrays.asList("Bar.java:2", "Foo.java:2"), collector.getViolations().stream()
+                    .map(violation -> new File(violation.getFileName()).getName() + ":" + violation.getLine())
+                    .sorted()
+                    .collect(Collectors.toList()));
+
+            List<DiffEntryWrapper> excluded = DiffCheckstyleEngine.calculateDiffEntries(request.toBuilder()
+                    .recurseSubmodules(true)
+                    .excludePatterns(Arrays.asList(Pattern.compile("sub/.*")))
+                    .build());
+            Assert.assertEquals(1, excluded.size());
+            Assert.assertEquals("Foo.java", excluded.get(0).getNewPath());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseMalformedManifest() throws Exception {
+        BatchEntry.parseManifest(new StringReader("repo\n"), null);
+    }
+
+    @Test
+    public void testMapOldLine() {
+        List<Edit> edits = Arrays.asList(new Edit(0, 0, 0, 1), new Edit(3, 5, 4, 5));
+        Assert.assertEquals("L2", RatchetAuditListener.mapOldLine(1, edits));
+        Assert.assertEquals("L4", RatchetAuditListener.mapOldLine(3, edits));
+        Assert.assertEquals("E1", RatchetAuditListener.mapOldLine(4, edits));
+        Assert.assertEquals("L6", RatchetAuditListener.mapOldLine(6, edits));
+        Assert.assertEquals("E0", RatchetAuditListener.locateNewLine(1, edits));
+        Assert.assertEquals("E1", RatchetAuditListener.locateNewLine(5, edits));
+        Assert.assertEquals("L6", RatchetAuditListener.locateNewLine(6, edits));
+    }
+
+    private CheckRequest prepareRequest() throws Exception {
+        try (Git git = new Git(db)) {
+            File repoDir = git.getRepository().getDirectory().getParentFile();
+            File file = new File(repoDir, "Foo.java");
+            writeTrashFile(file.getName(), "// TODO first\nclass Foo {\n}\n");
+            git.add().addFilepattern(file.getName()).call();
+            RevCommit oldCommit = git.commit().setMessage("init").call();
+            writeTrashFile(file.getName(), "// TODO first\nclass Foo {\n    // TODO second\n}\n");
+            git.add().addFilepattern(file.getName()).call();
+            RevCommit newCommit = git.commit().setMessage("change").call();
+            return CheckRequest.builder()
+                    .repoDir(repoDir)
+                    .baseRev(oldCommit.name())
+                    .headRev(newCommit.name())
+                    .build();
+        }
+    }
+
+}
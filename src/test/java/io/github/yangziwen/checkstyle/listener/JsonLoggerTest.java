@@ -0,0 +1,47 @@
+package io.github.yangziwen.checkstyle.listener;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AutomaticBean.OutputStreamOptions;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.checks.naming.MemberNameCheck;
+
+public class JsonLoggerTest {
+
+    @Test
+    public void testWriteEvents() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonLogger logger = new JsonLogger(out, OutputStreamOptions.NONE, Collections.emptyList());
+        logger.auditStarted(new AuditEvent(this));
+        logger.addError(newEvent("/tmp/A.java", 3, SeverityLevel.ERROR));
+        logger.addError(newEvent("/tmp/B.java", 5, SeverityLevel.IGNORE));
+        logger.addError(newEvent("/tmp/\"C\".java", 7, SeverityLevel.WARNING));
+        logger.auditFinished(new AuditEvent(this));
+
+        String json = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        Assert.assertTrue(json.startsWith("{\"version\":"));
+        Assert.assertTrue(json.contains("\"file\":\"/tmp/A.java\",\"line\":3"));
+        Assert.assertFalse(json.contains("/tmp/B.java"));
+        Assert.assertTrue(json.contains("\n,{\"type\":\"violation\",\"file\":\"/tmp/\\\"C\\\".java\""));
+        Assert.assertTrue(json.endsWith("]}\n"));
+    }
+
+    @Test
+    public void testEscape() {
+        Assert.assertEquals("a\\\\b\\n\\u0001", AbstractJsonLogger.escape("a\\b\n\u0001"));
+    }
+
+    private AuditEvent newEvent(String fileName, int line, SeverityLevel severityLevel) {
+        LocalizedMessage message = new LocalizedMessage(line, 1, "bundle", "key", null,
+                severityLevel, null, MemberNameCheck.class, "custom message");
+        return new AuditEvent(this, fileName, message);
+    }
+
+}
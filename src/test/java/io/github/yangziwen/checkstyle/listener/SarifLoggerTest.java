@@ -0,0 +1,121 @@
+package io.github.yangziwen.checkstyle.listener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AutomaticBean.OutputStreamOptions;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.checks.naming.MemberNameCheck;
+
+import io.github.yangziwen.checkstyle.engine.CheckRequest;
+import io.github.yangziwen.checkstyle.engine.DiffCheckstyleEngine;
+
+public class SarifLoggerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAudit() throws Exception {
+        File file = new File(folder.newFolder("a \"b\""), "Foo.java");
+        Files.write(file.toPath(), String.join("\n",
+                "public class Foo {",
+                "    private int Bar;",
+                "}",
+                "").getBytes(StandardCharsets.UTF_8));
+
+        DefaultConfiguration memberNameConfig = new DefaultConfiguration("MemberName");
+        memberNameConfig.addAttribute("id", "member\"name");
+        memberNameConfig.addMessage("name.invalidPattern", "Name \"{0}\" is bad,\nsee C:\\docs");
+        DefaultConfiguration treeWalkerConfig = new DefaultConfiguration("TreeWalker");
+        treeWalkerConfig.addChild(memberNameConfig);
+        treeWalkerConfig.addChild(new DefaultConfiguration("TypeName"));
+        DefaultConfiguration checkerConfig = new DefaultConfiguration("Checker");
+        checkerConfig.addAttribute("charset", "UTF-8");
+        checkerConfig.addChild(treeWalkerConfig);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SarifLogger logger = new SarifLogger(out, OutputStreamOptions.NONE, Collections.emptyList());
+        new DiffCheckstyleEngine(checkerConfig).process(
+                Collections.singletonList(file),
+                Collections.emptyList(),
+                logger,
+                CheckRequest.builder().build());
+
+        String sarif = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        Assert.assertTrue(sarif, sarif.startsWith("{\"$schema\":"));
+        Assert.assertTrue(sarif, sarif.contains("\"version\":\"2.1.0\",\"runs\":[{\"tool\":{\"driver\":{"));
+        Assert.assertTrue(sarif, sarif.contains("\"name\":\"diff-checkstyle\""));
+        // only the member name is violated, so a single result is written
+        Assert.assertEquals(sarif, 1, countOf(sarif, "\"ruleId\":"));
+        Assert.assertTrue(sarif, sarif.contains("\"results\":[\n{\"ruleId\":\"member\\\"name\",\"level\":\"error\","));
+        Assert.assertTrue(sarif, sarif.contains(
+                "\"message\":{\"text\":\"Name \\\"Bar\\\" is bad,\\nsee C:\\\\docs\"}"));
+        Assert.assertTrue(sarif, sarif.contains("\"locations\":[{\"physicalLocation\":{\"artifactLocation\":"
+                + "{\"uri\":\"" + file.toPath().toUri() + "\"},\"region\":{\"startLine\":2,\"startColumn\":17}}}]"));
+        Assert.assertTrue(sarif, sarif.contains("/a%20%22b%22/Foo.java\""));
+        Assert.assertTrue(sarif, sarif.contains(
+                "\"properties\":{\"source\":\"" + MemberNameCheck.class.getName() + "\"}}"));
+        Assert.assertTrue(sarif, sarif.endsWith(
+                "\"invocations\":[{\"executionSuccessful\":true,\"toolExecutionNotifications\":[]}]}]}\n"));
+    }
+
+    @Test
+    public void testRuleIdAndLevelWithoutModuleId() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SarifLogger logger = new SarifLogger(out, OutputStreamOptions.NONE, Collections.emptyList());
+        logger.auditStarted(new AuditEvent(this));
+        logger.addError(newEvent("/tmp/A.java", 3, SeverityLevel.WARNING));
+        logger.addError(newEvent("/tmp/B.java", 5, SeverityLevel.IGNORE));
+        logger.addError(newEvent("/tmp/C.java", 0, SeverityLevel.INFO));
+        logger.auditFinished(new AuditEvent(this));
+
+        String sarif = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        Assert.assertTrue(sarif, sarif.contains("{\"ruleId\":\"MemberName\",\"level\":\"warning\","));
+        Assert.assertTrue(sarif, sarif.contains("{\"ruleId\":\"MemberName\",\"level\":\"note\","));
+        Assert.assertFalse(sarif, sarif.contains("B.java"));
+        // no region is written for the file level events
+        Assert.assertTrue(sarif, sarif.contains("{\"uri\":\"file:///tmp/C.java\"}}}]"));
+    }
+
+    @Test
+    public void testWriteException() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SarifLogger logger = new SarifLogger(out, OutputStreamOptions.NONE, Collections.emptyList());
+        logger.auditStarted(new AuditEvent(this));
+        logger.addException(new AuditEvent(this, "/tmp/A.java"), new IllegalStateException("\"broken\""));
+        logger.auditFinished(new AuditEvent(this));
+
+        String sarif = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        Assert.assertTrue(sarif, sarif.contains("\"results\":[\n],"));
+        Assert.assertTrue(sarif, sarif.contains("\"executionSuccessful\":false,"));
+        Assert.assertTrue(sarif, sarif.contains("java.lang.IllegalStateException: \\\"broken\\\"\\n"));
+        Assert.assertTrue(sarif, sarif.contains("{\"uri\":\"file:///tmp/A.java\"}}}]}]}]}]}\n"));
+    }
+
+    private AuditEvent newEvent(String fileName, int line, SeverityLevel severityLevel) {
+        LocalizedMessage message = new LocalizedMessage(line, 1, "bundle", "key", null,
+                severityLevel, null, MemberNameCheck.class, "custom message");
+        return new AuditEvent(this, fileName, message);
+    }
+
+    private static int countOf(String text, String token) {
+        int count = 0;
+        for (int index = text.indexOf(token); index >= 0; index = text.indexOf(token, index + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+}